@@ -322,6 +322,13 @@ public class Disassembler {
         writeR('[', instr.r, ']');
         break;
 
+      case Machine.LOOPop:
+        System.out.print ("LOOP  ");
+        blankN();
+        writeD(instr.d);
+        writeR('[', instr.r, ']');
+        break;
+
       case Machine.HALTop:
         System.out.print ("HALT  ");
     }
@@ -24,6 +24,11 @@ public class Interpreter {
 
   static String objectName;
 
+  // With -count, the number of instructions executed is shown once the
+  // program has terminated.
+  static boolean counting;
+  static long executed;
+
 
 // DATA STORE
 
@@ -436,8 +441,11 @@ public class Interpreter {
 
     Instruction currentInstr;
     int op, r, n, d, addr, index;
+    final boolean count = counting;
 
-    // Initialize registers ...
+    // Initialize data store and registers ...
+    java.util.Arrays.fill(data, 0);
+    executed = 0;
     ST = SB;
     HT = HB;
     LB = SB;
@@ -446,6 +454,8 @@ public class Interpreter {
     do {
       // Fetch instruction ...
       currentInstr = Machine.code[CP];
+      if (count)
+        executed++;
       // Decode instruction ...
       op = currentInstr.op;
       r = currentInstr.r;
@@ -567,6 +577,15 @@ public class Interpreter {
           else
             CP = CP + 1;
           break;
+        case Machine.LOOPop:
+          // steps the counter on top of the stack, and jumps, unless it
+          // has reached the bound beneath it
+          if (data[ST - 1] < data[ST - 2]) {
+            data[ST - 1] = data[ST - 1] + 1;
+            CP = d + content(r);
+          } else
+            CP = CP + 1;
+          break;
         case Machine.HALTop:
           status = halted;
           break;
@@ -617,15 +636,21 @@ public class Interpreter {
   public static void main(String[] args) {
     System.out.println("********** TAM Interpreter (Java Version 2.1) **********");
 
-    if (args.length == 1)
-      objectName = args[0];
-  	else
-      objectName = "obj.tam";
+    objectName = "obj.tam";
+    counting = false;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-count"))
+        counting = true;
+      else
+        objectName = args[i];
+    }
 
     loadObjectProgram(objectName);
     if (CT != CB) {
       interpretProgram();
       showStatus();
+      if (counting)
+        System.out.println(executed + " instructions executed.");
     }
   }
 }
@@ -28,7 +28,9 @@ public abstract class AST {
     return position;
   }
 
-  public abstract Object visit(Visitor v, Object o);
+  public abstract <R, A> R visit(Visitor<R, A> v, A o);
+
+  public abstract <A> int visit(IntVisitor<A> v, A o);
 
   public SourcePosition	position;
   public RuntimeEntity  entity;
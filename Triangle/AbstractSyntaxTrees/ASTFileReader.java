@@ -0,0 +1,413 @@
+/*
+ * @(#)ASTFileReader.java
+ *
+ * Restores a checked abstract syntax tree written by ASTFileWriter.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public final class ASTFileReader {
+
+  private final DataInputStream in;
+  private final ArrayList<AST> nodes;
+  private final ArrayList<String> spellings;
+  private int lastLine, lastOffset;
+
+  private ASTFileReader (DataInputStream in, ArrayList<AST> nodes) {
+    this.in = in;
+    this.nodes = nodes;
+    spellings = new ArrayList<String>();
+  }
+
+  // Returns the tree held in the named file, linked to the given standard
+  // environment, or null if the file was written by another version of
+  // the compiler or for a source program with a different hash. A file
+  // whose checksum does not match, or that does not decode to a tree, is
+  // reported as an IOException.
+
+  public static Program read (String fileName, AST[] standard,
+                              byte[] sourceHash) throws IOException {
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(fileName)));
+    try {
+      if (in.readInt() != ASTFileWriter.MAGIC
+          || in.readInt() != ASTFileWriter.VERSION)
+        return null;
+      long fileLength = new File(fileName).length();
+      byte[] hash = new byte[boundedLength(in, fileLength, fileName)];
+      in.readFully(hash);
+      if (!Arrays.equals(hash, sourceHash))
+        return null;
+      byte[] payload = new byte[boundedLength(in, fileLength, fileName)];
+      long checksum = in.readLong();
+      in.readFully(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if (crc.getValue() != checksum || in.read() != -1)
+        throw new IOException("bad checksum in " + fileName);
+      ASTFileReader reader =
+        new ASTFileReader(new DataInputStream(new ByteArrayInputStream(payload)),
+                          ASTFileWriter.standardNodes(standard));
+      int first = reader.nodes.size();
+      AST ast = reader.node();
+      if (!(ast instanceof Program))
+        throw new IOException("no program in " + fileName);
+      for (int i = first; i < reader.nodes.size(); i++)
+        reader.decorations(reader.nodes.get(i));
+      return (Program) ast;
+    } catch (RuntimeException e) {
+      // a cast, array store or index that fails on a damaged file
+      throw new IOException("malformed tree in " + fileName);
+    } finally {
+      in.close();
+    }
+  }
+
+  // Reads the length of a block, which a damaged file may give as more
+  // than the whole file holds.
+
+  private static int boundedLength (DataInputStream in, long fileLength,
+                                    String fileName) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > fileLength)
+      throw new IOException("bad length in " + fileName);
+    return length;
+  }
+
+  private void decorations (AST ast) throws IOException {
+    if (ast instanceof Identifier) {
+      ((Identifier) ast).type = (TypeDenoter) node();
+      ((Identifier) ast).decl = node();
+    } else if (ast instanceof Operator) {
+      ((Operator) ast).decl = (Declaration) node();
+    } else if (ast instanceof Expression) {
+      ((Expression) ast).type = (TypeDenoter) node();
+    } else if (ast instanceof Vname) {
+      Vname vAST = (Vname) ast;
+      vAST.type = (TypeDenoter) node();
+      vAST.variable = flag();
+      vAST.indexed = flag();
+    } else if (ast instanceof Declaration) {
+      ((Declaration) ast).duplicated = flag();
+    } else if (ast instanceof TypeDenoter) {
+      ((TypeDenoter) ast).canonical = flag();
+    }
+  }
+
+  private AST node () throws IOException {
+    int n = number() - 1;
+    if (n < 0)
+      return null;
+    if (n < nodes.size())
+      return nodes.get(n);
+    if (n > nodes.size())
+      throw new IOException("bad node reference " + n);
+    nodes.add(null);
+    AST ast = body();
+    nodes.set(n, ast);
+    return ast;
+  }
+
+  private AST[] nary (AST[] items) throws IOException {
+    for (int i = 0; i < items.length; i++)
+      items[i] = node();
+    return items;
+  }
+
+  // A variable declaration has either a type denoter or an initializing
+  // expression.
+
+  private VarDeclaration varDeclaration (SourcePosition pos)
+      throws IOException {
+    VarDeclaration dAST = new VarDeclaration((Identifier) node(),
+                                             (TypeDenoter) node(), pos);
+    dAST.E = (Expression) node();
+    return dAST;
+  }
+
+  private String string () throws IOException {
+    int n = number();
+    if (n < spellings.size())
+      return spellings.get(n);
+    if (n > spellings.size())
+      throw new IOException("bad spelling reference " + n);
+    String spelling = in.readUTF();
+    spellings.add(spelling);
+    return spelling;
+  }
+
+  private int signed () throws IOException {
+    int n = number();
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private boolean flag () throws IOException {
+    return number() != 0;
+  }
+
+  private int number () throws IOException {
+    int n = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      n |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return n;
+    }
+  }
+
+  private AST body () throws IOException {
+    int kind = number();
+    int start = lastLine + signed();
+    int finish = start + signed();
+    int startOffset = lastOffset + signed();
+    int finishOffset = startOffset + signed();
+    SourcePosition pos = new SourcePosition(start, finish,
+                                            startOffset, finishOffset);
+    lastLine = start;
+    lastOffset = startOffset;
+    switch (kind) {
+
+    case ASTKind.PROGRAM:
+      return new Program((Command) node(), pos);
+    case ASTKind.ASSIGN_COMMAND:
+      return new AssignCommand((Vname) node(), (Expression) node(), pos);
+    case ASTKind.CALL_COMMAND:
+      return new CallCommand((Identifier) node(),
+                             (ActualParameterSequence) node(),
+                             pos);
+    case ASTKind.DO_UNTIL_COMMAND:
+      return new DoUntilCommand((Command) node(), (Expression) node(), pos);
+    case ASTKind.DO_WHILE_COMMAND:
+      return new DoWhileCommand((Command) node(), (Expression) node(), pos);
+    case ASTKind.ELSIF_COMMAND:
+      return new ElsIfCommand((Expression) node(),
+                              (Command) node(),
+                              (Command) node(),
+                              pos);
+    case ASTKind.EMPTY_COMMAND:
+      return new EmptyCommand(pos);
+    case ASTKind.ERROR_COMMAND:
+      return new ErrorCommand(pos);
+    case ASTKind.FOR_COMMAND:
+      return new ForCommand((Identifier) node(),
+                            (Expression) node(),
+                            (Expression) node(),
+                            (Command) node(),
+                            pos);
+    case ASTKind.IF_COMMAND:
+      return new IfCommand((Expression) node(),
+                           (Command) node(),
+                           (Command) node(),
+                           pos);
+    case ASTKind.LET_COMMAND:
+      return new LetCommand((Declaration) node(), (Command) node(), pos);
+    case ASTKind.SEQUENTIAL_COMMAND:
+      return new SequentialCommand(
+        (Command[]) nary(new Command[number()]), pos);
+    case ASTKind.UNTIL_COMMAND:
+      return new UntilCommand((Expression) node(), (Command) node(), pos);
+    case ASTKind.WHILE_COMMAND:
+      return new WhileCommand((Expression) node(), (Command) node(), pos);
+    case ASTKind.ARRAY_EXPRESSION:
+      return new ArrayExpression((ArrayAggregate) node(), pos);
+    case ASTKind.BINARY_EXPRESSION:
+      return new BinaryExpression((Expression) node(),
+                                  (Operator) node(),
+                                  (Expression) node(),
+                                  pos);
+    case ASTKind.CALL_EXPRESSION:
+      return new CallExpression((Identifier) node(),
+                                (ActualParameterSequence) node(),
+                                pos);
+    case ASTKind.CHARACTER_EXPRESSION:
+      return new CharacterExpression((CharacterLiteral) node(), pos);
+    case ASTKind.EMPTY_EXPRESSION:
+      return new EmptyExpression(pos);
+    case ASTKind.ERROR_EXPRESSION:
+      return new ErrorExpression(pos);
+    case ASTKind.IF_EXPRESSION:
+      return new IfExpression((Expression) node(),
+                              (Expression) node(),
+                              (Expression) node(),
+                              pos);
+    case ASTKind.INTEGER_EXPRESSION:
+      return new IntegerExpression((IntegerLiteral) node(), pos);
+    case ASTKind.LET_EXPRESSION:
+      return new LetExpression((Declaration) node(),
+                               (Expression) node(),
+                               pos);
+    case ASTKind.RECORD_EXPRESSION:
+      return new RecordExpression((RecordAggregate) node(), pos);
+    case ASTKind.UNARY_EXPRESSION:
+      return new UnaryExpression((Operator) node(), (Expression) node(), pos);
+    case ASTKind.VNAME_EXPRESSION:
+      return new VnameExpression((Vname) node(), pos);
+    case ASTKind.BINARY_OPERATOR_DECLARATION:
+      return new BinaryOperatorDeclaration((Operator) node(),
+                                           (TypeDenoter) node(),
+                                           (TypeDenoter) node(),
+                                           (TypeDenoter) node(),
+                                           pos);
+    case ASTKind.CONST_DECLARATION:
+      return new ConstDeclaration((Identifier) node(),
+                                  (Expression) node(),
+                                  pos);
+    case ASTKind.ERROR_DECLARATION:
+      return new ErrorDeclaration((Identifier) node(), pos);
+    case ASTKind.FUNC_DECLARATION:
+      return new FuncDeclaration((Identifier) node(),
+                                 (FormalParameterSequence) node(),
+                                 (TypeDenoter) node(),
+                                 (Expression) node(),
+                                 pos);
+    case ASTKind.PRIVATE_DECLARATION:
+      return new PrivateDeclaration((Declaration) node(),
+                                    (Declaration) node(),
+                                    pos);
+    case ASTKind.PROC_DECLARATION:
+      return new ProcDeclaration((Identifier) node(),
+                                 (FormalParameterSequence) node(),
+                                 (Command) node(),
+                                 pos);
+    case ASTKind.PROC_FUNCS:
+      return new ProcFuncs((Declaration) node(), (Declaration) node(), pos);
+    case ASTKind.REC_DECLARATION:
+      return new RecDeclaration((Declaration) node(), pos);
+    case ASTKind.SEQUENTIAL_DECLARATION:
+      return new SequentialDeclaration(
+        (Declaration[]) nary(new Declaration[number()]), pos);
+    case ASTKind.TYPE_DECLARATION:
+      return new TypeDeclaration((Identifier) node(),
+                                 (TypeDenoter) node(),
+                                 pos);
+    case ASTKind.UNARY_OPERATOR_DECLARATION:
+      return new UnaryOperatorDeclaration((Operator) node(),
+                                          (TypeDenoter) node(),
+                                          (TypeDenoter) node(),
+                                          pos);
+    case ASTKind.VAR_DECLARATION:
+      return varDeclaration(pos);
+    case ASTKind.VAR_INITIALIZED:
+      return new VarInitialized((Identifier) node(),
+                                (Expression) node(),
+                                pos);
+    case ASTKind.MULTIPLE_ARRAY_AGGREGATE:
+      return new MultipleArrayAggregate((Expression) node(),
+                                        (ArrayAggregate) node(),
+                                        pos);
+    case ASTKind.SINGLE_ARRAY_AGGREGATE:
+      return new SingleArrayAggregate((Expression) node(), pos);
+    case ASTKind.MULTIPLE_RECORD_AGGREGATE:
+      return new MultipleRecordAggregate((Identifier) node(),
+                                         (Expression) node(),
+                                         (RecordAggregate) node(),
+                                         pos);
+    case ASTKind.SINGLE_RECORD_AGGREGATE:
+      return new SingleRecordAggregate((Identifier) node(),
+                                       (Expression) node(),
+                                       pos);
+    case ASTKind.CONST_FORMAL_PARAMETER:
+      return new ConstFormalParameter((Identifier) node(),
+                                      (TypeDenoter) node(),
+                                      pos);
+    case ASTKind.FUNC_FORMAL_PARAMETER:
+      return new FuncFormalParameter((Identifier) node(),
+                                     (FormalParameterSequence) node(),
+                                     (TypeDenoter) node(),
+                                     pos);
+    case ASTKind.PROC_FORMAL_PARAMETER:
+      return new ProcFormalParameter((Identifier) node(),
+                                     (FormalParameterSequence) node(),
+                                     pos);
+    case ASTKind.VAR_FORMAL_PARAMETER:
+      return new VarFormalParameter((Identifier) node(),
+                                    (TypeDenoter) node(),
+                                    pos);
+    case ASTKind.EMPTY_FORMAL_PARAMETER_SEQUENCE:
+      return new EmptyFormalParameterSequence(pos);
+    case ASTKind.MULTIPLE_FORMAL_PARAMETER_SEQUENCE:
+      return new MultipleFormalParameterSequence((FormalParameter) node(),
+                                                 (FormalParameterSequence) node(),
+                                                 pos);
+    case ASTKind.SINGLE_FORMAL_PARAMETER_SEQUENCE:
+      return new SingleFormalParameterSequence((FormalParameter) node(), pos);
+    case ASTKind.CONST_ACTUAL_PARAMETER:
+      return new ConstActualParameter((Expression) node(), pos);
+    case ASTKind.FUNC_ACTUAL_PARAMETER:
+      return new FuncActualParameter((Identifier) node(), pos);
+    case ASTKind.PROC_ACTUAL_PARAMETER:
+      return new ProcActualParameter((Identifier) node(), pos);
+    case ASTKind.VAR_ACTUAL_PARAMETER:
+      return new VarActualParameter((Vname) node(), pos);
+    case ASTKind.EMPTY_ACTUAL_PARAMETER_SEQUENCE:
+      return new EmptyActualParameterSequence(pos);
+    case ASTKind.MULTIPLE_ACTUAL_PARAMETER_SEQUENCE:
+      return new MultipleActualParameterSequence((ActualParameter) node(),
+                                                 (ActualParameterSequence) node(),
+                                                 pos);
+    case ASTKind.SINGLE_ACTUAL_PARAMETER_SEQUENCE:
+      return new SingleActualParameterSequence((ActualParameter) node(), pos);
+    case ASTKind.ANY_TYPE_DENOTER:
+      return new AnyTypeDenoter(pos);
+    case ASTKind.ARRAY_TYPE_DENOTER:
+      return new ArrayTypeDenoter((IntegerLiteral) node(),
+                                  (TypeDenoter) node(),
+                                  pos);
+    case ASTKind.ARRAY_TYPE_DENOTER_STATIC:
+      return new ArrayTypeDenoterStatic((IntegerLiteral) node(),
+                                        (IntegerLiteral) node(),
+                                        (TypeDenoter) node(),
+                                        pos);
+    case ASTKind.BOOL_TYPE_DENOTER:
+      return new BoolTypeDenoter(pos);
+    case ASTKind.CHAR_TYPE_DENOTER:
+      return new CharTypeDenoter(pos);
+    case ASTKind.ERROR_TYPE_DENOTER:
+      return new ErrorTypeDenoter(pos);
+    case ASTKind.SIMPLE_TYPE_DENOTER:
+      return new SimpleTypeDenoter((Identifier) node(), pos);
+    case ASTKind.INT_TYPE_DENOTER:
+      return new IntTypeDenoter(pos);
+    case ASTKind.RECORD_TYPE_DENOTER:
+      return new RecordTypeDenoter((FieldTypeDenoter) node(), pos);
+    case ASTKind.MULTIPLE_FIELD_TYPE_DENOTER:
+      return new MultipleFieldTypeDenoter((Identifier) node(),
+                                          (TypeDenoter) node(),
+                                          (FieldTypeDenoter) node(),
+                                          pos);
+    case ASTKind.SINGLE_FIELD_TYPE_DENOTER:
+      return new SingleFieldTypeDenoter((Identifier) node(),
+                                        (TypeDenoter) node(),
+                                        pos);
+    case ASTKind.CHARACTER_LITERAL:
+      return new CharacterLiteral(string(), pos);
+    case ASTKind.IDENTIFIER:
+      return new Identifier(string(), pos);
+    case ASTKind.INTEGER_LITERAL:
+      return new IntegerLiteral(string(), pos);
+    case ASTKind.OPERATOR:
+      return new Operator(string(), pos);
+    case ASTKind.DOT_VNAME:
+      return new DotVname((Vname) node(), (Identifier) node(), pos);
+    case ASTKind.SIMPLE_VNAME:
+      return new SimpleVname((Identifier) node(), pos);
+    case ASTKind.SUBSCRIPT_VNAME:
+      return new SubscriptVname((Vname) node(), (Expression) node(), pos);
+
+    default:
+      throw new IOException("unknown node kind " + kind);
+    }
+  }
+}
@@ -0,0 +1,742 @@
+/*
+ * @(#)ASTFileWriter.java
+ *
+ * Writes a checked abstract syntax tree, decorations included, to a
+ * binary file from which ASTFileReader can restore it.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+
+// A file holds a header (MAGIC, VERSION, the hash of the source program,
+// and the length and CRC-32 of the rest of the file), then the tree, then
+// the decorations of its nodes. The checksum lets a reader reject a file
+// that has been damaged since it was written.
+//
+// The checker shares subtrees and links the tree to the standard
+// environment and to canonical type denoters of its own making, so the
+// tree is written as a graph. Every node is numbered as it is first
+// reached, and a reference to it is written as its number + 1, or 0 for
+// null; a reference to the next free number is followed by the node
+// itself: its kind (as in ASTKind), its position, and then references to
+// its children, in the order of the fields that hold them. The nodes of
+// the standard environment are numbered first, in a fixed order, and are
+// never written.
+// Decorations are written once the tree is complete, node by node in order
+// of number, and may themselves introduce further nodes.
+//
+// Numbers are written as variable-length unsigned ints, and spellings are
+// numbered in the same way as nodes. The start of a position is written
+// relative to that of the node before, and its finish relative to its
+// start, so that most positions take a byte or two per field.
+//
+// The file is written under a temporary name in the same directory, then
+// renamed into place, so that a reader never sees it half written, and
+// concurrent writers of the same file leave one whole copy or the other.
+
+public final class ASTFileWriter implements Visitor<Object, Object> {
+
+  final static int MAGIC = 0x54415354;  // "TAST"
+  final static int VERSION = 3;
+
+  private DataOutputStream out;
+  private final IdentityHashMap<AST, Integer> numbers;
+  private final ArrayList<AST> nodes;
+  private final HashMap<String, Integer> spellings;
+  private int lastLine, lastOffset;
+
+  private ASTFileWriter (OutputStream out) {
+    this.out = new DataOutputStream(out);
+    numbers = new IdentityHashMap<AST, Integer>();
+    nodes = new ArrayList<AST>();
+    spellings = new HashMap<String, Integer>();
+  }
+
+  public static void write (Program ast, AST[] standard, byte[] sourceHash,
+                            String fileName) throws IOException {
+    File target = new File(fileName).getAbsoluteFile();
+    File temp = File.createTempFile(target.getName(), ".tmp",
+                                    target.getParentFile());
+    boolean written = false;
+    try {
+      write(ast, standard, sourceHash,
+            new BufferedOutputStream(new FileOutputStream(temp)));
+      Files.move(temp.toPath(), target.toPath(),
+                 StandardCopyOption.ATOMIC_MOVE,
+                 StandardCopyOption.REPLACE_EXISTING);
+      written = true;
+    } finally {
+      if (!written)
+        temp.delete();
+    }
+  }
+
+  private static void write (Program ast, AST[] standard, byte[] sourceHash,
+                             OutputStream file) throws IOException {
+    try {
+      ASTFileWriter writer = new ASTFileWriter(OutputStream.nullOutputStream());
+      writer.number(standard);
+      writer.out = new DataOutputStream(file);
+      writer.out.writeInt(MAGIC);
+      writer.out.writeInt(VERSION);
+      writer.out.writeInt(sourceHash.length);
+      writer.out.write(sourceHash);
+      DataOutputStream header = writer.out;
+      ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      writer.out = new DataOutputStream(payload);
+      int first = writer.nodes.size();
+      writer.node(ast);
+      for (int i = first; i < writer.nodes.size(); i++)
+        writer.decorations(writer.nodes.get(i));
+      writer.out.flush();
+      CRC32 crc = new CRC32();
+      crc.update(payload.toByteArray());
+      header.writeInt(payload.size());
+      header.writeLong(crc.getValue());
+      payload.writeTo(header);
+      header.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      file.close();
+    }
+  }
+
+  // Returns the nodes of the standard environment in the order in which
+  // they are numbered.
+
+  static ArrayList<AST> standardNodes (AST[] standard) {
+    ASTFileWriter writer = new ASTFileWriter(OutputStream.nullOutputStream());
+    writer.number(standard);
+    return writer.nodes;
+  }
+
+  private void number (AST[] standard) {
+    for (int i = 0; i < standard.length; i++)
+      node(standard[i]);
+    // Nothing of the standard environment is written, its spellings
+    // included.
+    spellings.clear();
+  }
+
+  private void decorations (AST ast) {
+    if (ast instanceof Identifier) {
+      node(((Identifier) ast).type);
+      node(((Identifier) ast).decl);
+    } else if (ast instanceof Operator) {
+      node(((Operator) ast).decl);
+    } else if (ast instanceof Expression) {
+      node(((Expression) ast).type);
+    } else if (ast instanceof Vname) {
+      Vname vAST = (Vname) ast;
+      node(vAST.type);
+      flag(vAST.variable);
+      flag(vAST.indexed);
+    } else if (ast instanceof Declaration) {
+      flag(((Declaration) ast).duplicated);
+    } else if (ast instanceof TypeDenoter) {
+      flag(((TypeDenoter) ast).canonical);
+    }
+  }
+
+  private void node (AST ast) {
+    if (ast == null) {
+      number(0);
+      return;
+    }
+    Integer n = numbers.get(ast);
+    if (n != null) {
+      number(n.intValue() + 1);
+      return;
+    }
+    numbers.put(ast, Integer.valueOf(nodes.size()));
+    nodes.add(ast);
+    number(nodes.size());
+    // These declarations have no visitor methods of their own.
+    if (ast instanceof PrivateDeclaration) {
+      header(ASTKind.PRIVATE_DECLARATION, ast);
+      node(((PrivateDeclaration) ast).D);
+      node(((PrivateDeclaration) ast).D2);
+    } else if (ast instanceof ProcFuncs) {
+      header(ASTKind.PROC_FUNCS, ast);
+      node(((ProcFuncs) ast).D1);
+      node(((ProcFuncs) ast).D2);
+    } else if (ast instanceof RecDeclaration) {
+      header(ASTKind.REC_DECLARATION, ast);
+      node(((RecDeclaration) ast).D);
+    } else
+      ast.visit(this, null);
+  }
+
+  private void header (int kind, AST ast) {
+    SourcePosition pos = ast.position;
+    number(kind);
+    signed(pos.start - lastLine);
+    signed(pos.finish - pos.start);
+    signed(pos.startOffset - lastOffset);
+    signed(pos.finishOffset - pos.startOffset);
+    lastLine = pos.start;
+    lastOffset = pos.startOffset;
+  }
+
+  private void nary (int kind, AST ast, AST[] items) {
+    header(kind, ast);
+    number(items.length);
+    for (int i = 0; i < items.length; i++)
+      node(items[i]);
+  }
+
+  private void terminal (int kind, Terminal ast) {
+    header(kind, ast);
+    Integer n = spellings.get(ast.spelling);
+    if (n != null)
+      number(n.intValue());
+    else {
+      number(spellings.size());
+      spellings.put(ast.spelling, Integer.valueOf(spellings.size()));
+      try {
+        out.writeUTF(ast.spelling);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // Interleaves negative and positive n, so that small magnitudes give
+  // small numbers.
+
+  private void signed (int n) {
+    number((n << 1) ^ (n >> 31));
+  }
+
+  private void flag (boolean b) {
+    number(b ? 1 : 0);
+  }
+
+  // Writes n in seven-bit groups, least significant first; the top bit of
+  // each byte is set if another follows. A negative n takes five bytes.
+
+  private void number (int n) {
+    try {
+      while ((n & ~0x7F) != 0) {
+        out.writeByte((n & 0x7F) | 0x80);
+        n >>>= 7;
+      }
+      out.writeByte(n);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Programs
+
+  public Object visitProgram (Program ast, Object o) {
+    header(ASTKind.PROGRAM, ast);
+    node(ast.C);
+    return null;
+  }
+
+  // Commands
+
+  public Object visitAssignCommand (AssignCommand ast, Object o) {
+    header(ASTKind.ASSIGN_COMMAND, ast);
+    node(ast.V);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitCallCommand (CallCommand ast, Object o) {
+    header(ASTKind.CALL_COMMAND, ast);
+    node(ast.I);
+    node(ast.APS);
+    return null;
+  }
+
+  public Object visitDoUntilCommand (DoUntilCommand ast, Object o) {
+    header(ASTKind.DO_UNTIL_COMMAND, ast);
+    node(ast.C);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitDoWhileCommand (DoWhileCommand ast, Object o) {
+    header(ASTKind.DO_WHILE_COMMAND, ast);
+    node(ast.C);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitElsIfCommand (ElsIfCommand ast, Object o) {
+    header(ASTKind.ELSIF_COMMAND, ast);
+    node(ast.E1);
+    node(ast.C);
+    node(ast.C2);
+    return null;
+  }
+
+  public Object visitEmptyCommand (EmptyCommand ast, Object o) {
+    header(ASTKind.EMPTY_COMMAND, ast);
+    return null;
+  }
+
+  public Object visitErrorCommand (ErrorCommand ast, Object o) {
+    header(ASTKind.ERROR_COMMAND, ast);
+    return null;
+  }
+
+  public Object visitForCommand (ForCommand ast, Object o) {
+    header(ASTKind.FOR_COMMAND, ast);
+    node(ast.I);
+    node(ast.E1);
+    node(ast.E2);
+    node(ast.C);
+    return null;
+  }
+
+  public Object visitIfCommand (IfCommand ast, Object o) {
+    header(ASTKind.IF_COMMAND, ast);
+    node(ast.E);
+    node(ast.C1);
+    node(ast.C2);
+    return null;
+  }
+
+  public Object visitLetCommand (LetCommand ast, Object o) {
+    header(ASTKind.LET_COMMAND, ast);
+    node(ast.D);
+    node(ast.C);
+    return null;
+  }
+
+  public Object visitSequentialCommand (SequentialCommand ast, Object o) {
+    nary(ASTKind.SEQUENTIAL_COMMAND, ast, ast.CS);
+    return null;
+  }
+
+  public Object visitUntilCommand (UntilCommand ast, Object o) {
+    header(ASTKind.UNTIL_COMMAND, ast);
+    node(ast.E);
+    node(ast.C);
+    return null;
+  }
+
+  public Object visitWhileCommand (WhileCommand ast, Object o) {
+    header(ASTKind.WHILE_COMMAND, ast);
+    node(ast.E);
+    node(ast.C);
+    return null;
+  }
+
+  // Expressions
+
+  public Object visitArrayExpression (ArrayExpression ast, Object o) {
+    header(ASTKind.ARRAY_EXPRESSION, ast);
+    node(ast.AA);
+    return null;
+  }
+
+  public Object visitBinaryExpression (BinaryExpression ast, Object o) {
+    header(ASTKind.BINARY_EXPRESSION, ast);
+    node(ast.E1);
+    node(ast.O);
+    node(ast.E2);
+    return null;
+  }
+
+  public Object visitCallExpression (CallExpression ast, Object o) {
+    header(ASTKind.CALL_EXPRESSION, ast);
+    node(ast.I);
+    node(ast.APS);
+    return null;
+  }
+
+  public Object visitCharacterExpression (CharacterExpression ast, Object o) {
+    header(ASTKind.CHARACTER_EXPRESSION, ast);
+    node(ast.CL);
+    return null;
+  }
+
+  public Object visitEmptyExpression (EmptyExpression ast, Object o) {
+    header(ASTKind.EMPTY_EXPRESSION, ast);
+    return null;
+  }
+
+  public Object visitErrorExpression (ErrorExpression ast, Object o) {
+    header(ASTKind.ERROR_EXPRESSION, ast);
+    return null;
+  }
+
+  public Object visitIfExpression (IfExpression ast, Object o) {
+    header(ASTKind.IF_EXPRESSION, ast);
+    node(ast.E1);
+    node(ast.E2);
+    node(ast.E3);
+    return null;
+  }
+
+  public Object visitIntegerExpression (IntegerExpression ast, Object o) {
+    header(ASTKind.INTEGER_EXPRESSION, ast);
+    node(ast.IL);
+    return null;
+  }
+
+  public Object visitLetExpression (LetExpression ast, Object o) {
+    header(ASTKind.LET_EXPRESSION, ast);
+    node(ast.D);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitRecordExpression (RecordExpression ast, Object o) {
+    header(ASTKind.RECORD_EXPRESSION, ast);
+    node(ast.RA);
+    return null;
+  }
+
+  public Object visitUnaryExpression (UnaryExpression ast, Object o) {
+    header(ASTKind.UNARY_EXPRESSION, ast);
+    node(ast.O);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitVnameExpression (VnameExpression ast, Object o) {
+    header(ASTKind.VNAME_EXPRESSION, ast);
+    node(ast.V);
+    return null;
+  }
+
+  // Declarations
+
+  public Object visitBinaryOperatorDeclaration (BinaryOperatorDeclaration ast, Object o) {
+    header(ASTKind.BINARY_OPERATOR_DECLARATION, ast);
+    node(ast.O);
+    node(ast.ARG1);
+    node(ast.ARG2);
+    node(ast.RES);
+    return null;
+  }
+
+  public Object visitConstDeclaration (ConstDeclaration ast, Object o) {
+    header(ASTKind.CONST_DECLARATION, ast);
+    node(ast.I);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitErrorDeclaration (ErrorDeclaration ast, Object o) {
+    header(ASTKind.ERROR_DECLARATION, ast);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitFuncDeclaration (FuncDeclaration ast, Object o) {
+    header(ASTKind.FUNC_DECLARATION, ast);
+    node(ast.I);
+    node(ast.FPS);
+    node(ast.T);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitProcDeclaration (ProcDeclaration ast, Object o) {
+    header(ASTKind.PROC_DECLARATION, ast);
+    node(ast.I);
+    node(ast.FPS);
+    node(ast.C);
+    return null;
+  }
+
+  public Object visitSequentialDeclaration (SequentialDeclaration ast, Object o) {
+    nary(ASTKind.SEQUENTIAL_DECLARATION, ast, ast.DS);
+    return null;
+  }
+
+  public Object visitTypeDeclaration (TypeDeclaration ast, Object o) {
+    header(ASTKind.TYPE_DECLARATION, ast);
+    node(ast.I);
+    node(ast.T);
+    return null;
+  }
+
+  public Object visitUnaryOperatorDeclaration (UnaryOperatorDeclaration ast, Object o) {
+    header(ASTKind.UNARY_OPERATOR_DECLARATION, ast);
+    node(ast.O);
+    node(ast.ARG);
+    node(ast.RES);
+    return null;
+  }
+
+  public Object visitVarDeclaration (VarDeclaration ast, Object o) {
+    header(ASTKind.VAR_DECLARATION, ast);
+    node(ast.I);
+    node(ast.T);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitVarInitialized (VarInitialized ast, Object o) {
+    header(ASTKind.VAR_INITIALIZED, ast);
+    node(ast.I);
+    node(ast.E);
+    return null;
+  }
+
+  // Array Aggregates
+
+  public Object visitMultipleArrayAggregate (MultipleArrayAggregate ast, Object o) {
+    header(ASTKind.MULTIPLE_ARRAY_AGGREGATE, ast);
+    node(ast.E);
+    node(ast.AA);
+    return null;
+  }
+
+  public Object visitSingleArrayAggregate (SingleArrayAggregate ast, Object o) {
+    header(ASTKind.SINGLE_ARRAY_AGGREGATE, ast);
+    node(ast.E);
+    return null;
+  }
+
+  // Record Aggregates
+
+  public Object visitMultipleRecordAggregate (MultipleRecordAggregate ast, Object o) {
+    header(ASTKind.MULTIPLE_RECORD_AGGREGATE, ast);
+    node(ast.I);
+    node(ast.E);
+    node(ast.RA);
+    return null;
+  }
+
+  public Object visitSingleRecordAggregate (SingleRecordAggregate ast, Object o) {
+    header(ASTKind.SINGLE_RECORD_AGGREGATE, ast);
+    node(ast.I);
+    node(ast.E);
+    return null;
+  }
+
+  // Formal Parameters
+
+  public Object visitConstFormalParameter (ConstFormalParameter ast, Object o) {
+    header(ASTKind.CONST_FORMAL_PARAMETER, ast);
+    node(ast.I);
+    node(ast.T);
+    return null;
+  }
+
+  public Object visitFuncFormalParameter (FuncFormalParameter ast, Object o) {
+    header(ASTKind.FUNC_FORMAL_PARAMETER, ast);
+    node(ast.I);
+    node(ast.FPS);
+    node(ast.T);
+    return null;
+  }
+
+  public Object visitProcFormalParameter (ProcFormalParameter ast, Object o) {
+    header(ASTKind.PROC_FORMAL_PARAMETER, ast);
+    node(ast.I);
+    node(ast.FPS);
+    return null;
+  }
+
+  public Object visitVarFormalParameter (VarFormalParameter ast, Object o) {
+    header(ASTKind.VAR_FORMAL_PARAMETER, ast);
+    node(ast.I);
+    node(ast.T);
+    return null;
+  }
+
+  // Formal Parameter Sequences
+
+  public Object visitEmptyFormalParameterSequence (EmptyFormalParameterSequence ast, Object o) {
+    header(ASTKind.EMPTY_FORMAL_PARAMETER_SEQUENCE, ast);
+    return null;
+  }
+
+  public Object visitMultipleFormalParameterSequence (MultipleFormalParameterSequence ast, Object o) {
+    header(ASTKind.MULTIPLE_FORMAL_PARAMETER_SEQUENCE, ast);
+    node(ast.FP);
+    node(ast.FPS);
+    return null;
+  }
+
+  public Object visitSingleFormalParameterSequence (SingleFormalParameterSequence ast, Object o) {
+    header(ASTKind.SINGLE_FORMAL_PARAMETER_SEQUENCE, ast);
+    node(ast.FP);
+    return null;
+  }
+
+  // Actual Parameters
+
+  public Object visitConstActualParameter (ConstActualParameter ast, Object o) {
+    header(ASTKind.CONST_ACTUAL_PARAMETER, ast);
+    node(ast.E);
+    return null;
+  }
+
+  public Object visitFuncActualParameter (FuncActualParameter ast, Object o) {
+    header(ASTKind.FUNC_ACTUAL_PARAMETER, ast);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitProcActualParameter (ProcActualParameter ast, Object o) {
+    header(ASTKind.PROC_ACTUAL_PARAMETER, ast);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitVarActualParameter (VarActualParameter ast, Object o) {
+    header(ASTKind.VAR_ACTUAL_PARAMETER, ast);
+    node(ast.V);
+    return null;
+  }
+
+  // Actual Parameter Sequences
+
+  public Object visitEmptyActualParameterSequence (EmptyActualParameterSequence ast, Object o) {
+    header(ASTKind.EMPTY_ACTUAL_PARAMETER_SEQUENCE, ast);
+    return null;
+  }
+
+  public Object visitMultipleActualParameterSequence (MultipleActualParameterSequence ast, Object o) {
+    header(ASTKind.MULTIPLE_ACTUAL_PARAMETER_SEQUENCE, ast);
+    node(ast.AP);
+    node(ast.APS);
+    return null;
+  }
+
+  public Object visitSingleActualParameterSequence (SingleActualParameterSequence ast, Object o) {
+    header(ASTKind.SINGLE_ACTUAL_PARAMETER_SEQUENCE, ast);
+    node(ast.AP);
+    return null;
+  }
+
+  // Type Denoters
+
+  public Object visitAnyTypeDenoter (AnyTypeDenoter ast, Object o) {
+    header(ASTKind.ANY_TYPE_DENOTER, ast);
+    return null;
+  }
+
+  public Object visitArrayTypeDenoter (ArrayTypeDenoter ast, Object o) {
+    header(ASTKind.ARRAY_TYPE_DENOTER, ast);
+    node(ast.IL);
+    node(ast.T);
+    return null;
+  }
+
+  public Object visitArrayTypeDenoterStatic (ArrayTypeDenoterStatic ast, Object o) {
+    header(ASTKind.ARRAY_TYPE_DENOTER_STATIC, ast);
+    node(ast.IL);
+    node(ast.IL2);
+    node(ast.T);
+    return null;
+  }
+
+  public Object visitBoolTypeDenoter (BoolTypeDenoter ast, Object o) {
+    header(ASTKind.BOOL_TYPE_DENOTER, ast);
+    return null;
+  }
+
+  public Object visitCharTypeDenoter (CharTypeDenoter ast, Object o) {
+    header(ASTKind.CHAR_TYPE_DENOTER, ast);
+    return null;
+  }
+
+  public Object visitErrorTypeDenoter (ErrorTypeDenoter ast, Object o) {
+    header(ASTKind.ERROR_TYPE_DENOTER, ast);
+    return null;
+  }
+
+  public Object visitSimpleTypeDenoter (SimpleTypeDenoter ast, Object o) {
+    header(ASTKind.SIMPLE_TYPE_DENOTER, ast);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitIntTypeDenoter (IntTypeDenoter ast, Object o) {
+    header(ASTKind.INT_TYPE_DENOTER, ast);
+    return null;
+  }
+
+  public Object visitRecordTypeDenoter (RecordTypeDenoter ast, Object o) {
+    header(ASTKind.RECORD_TYPE_DENOTER, ast);
+    node(ast.FT);
+    return null;
+  }
+
+  public Object visitMultipleFieldTypeDenoter (MultipleFieldTypeDenoter ast, Object o) {
+    header(ASTKind.MULTIPLE_FIELD_TYPE_DENOTER, ast);
+    node(ast.I);
+    node(ast.T);
+    node(ast.FT);
+    return null;
+  }
+
+  public Object visitSingleFieldTypeDenoter (SingleFieldTypeDenoter ast, Object o) {
+    header(ASTKind.SINGLE_FIELD_TYPE_DENOTER, ast);
+    node(ast.I);
+    node(ast.T);
+    return null;
+  }
+
+  // Literals, Identifiers and Operators
+
+  public Object visitCharacterLiteral (CharacterLiteral ast, Object o) {
+    terminal(ASTKind.CHARACTER_LITERAL, ast);
+    return null;
+  }
+
+  public Object visitIdentifier (Identifier ast, Object o) {
+    terminal(ASTKind.IDENTIFIER, ast);
+    return null;
+  }
+
+  public Object visitIntegerLiteral (IntegerLiteral ast, Object o) {
+    terminal(ASTKind.INTEGER_LITERAL, ast);
+    return null;
+  }
+
+  public Object visitOperator (Operator ast, Object o) {
+    terminal(ASTKind.OPERATOR, ast);
+    return null;
+  }
+
+  // Value-or-variable names
+
+  public Object visitDotVname (DotVname ast, Object o) {
+    header(ASTKind.DOT_VNAME, ast);
+    node(ast.V);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitSimpleVname (SimpleVname ast, Object o) {
+    header(ASTKind.SIMPLE_VNAME, ast);
+    node(ast.I);
+    return null;
+  }
+
+  public Object visitSubscriptVname (SubscriptVname ast, Object o) {
+    header(ASTKind.SUBSCRIPT_VNAME, ast);
+    node(ast.V);
+    node(ast.E);
+    return null;
+  }
+}
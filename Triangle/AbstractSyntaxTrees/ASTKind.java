@@ -0,0 +1,95 @@
+/*
+ * @(#)ASTKind.java
+ *
+ * The numbers by which the kinds of AST node are identified outside the
+ * object tree.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+// A checked AST file (see ASTFileWriter) identifies the class of each node
+// by one of these numbers. They are written to files, so a number is never
+// reused for another kind of node.
+
+public final class ASTKind {
+
+  public final static int
+    PROGRAM = 0,
+    ASSIGN_COMMAND = 1,
+    CALL_COMMAND = 2,
+    DO_UNTIL_COMMAND = 3,
+    DO_WHILE_COMMAND = 4,
+    ELSIF_COMMAND = 5,
+    EMPTY_COMMAND = 6,
+    ERROR_COMMAND = 7,
+    FOR_COMMAND = 8,
+    IF_COMMAND = 9,
+    LET_COMMAND = 10,
+    SEQUENTIAL_COMMAND = 11,
+    UNTIL_COMMAND = 12,
+    WHILE_COMMAND = 13,
+    ARRAY_EXPRESSION = 14,
+    BINARY_EXPRESSION = 15,
+    CALL_EXPRESSION = 16,
+    CHARACTER_EXPRESSION = 17,
+    EMPTY_EXPRESSION = 18,
+    ERROR_EXPRESSION = 19,
+    IF_EXPRESSION = 20,
+    INTEGER_EXPRESSION = 21,
+    LET_EXPRESSION = 22,
+    RECORD_EXPRESSION = 23,
+    UNARY_EXPRESSION = 24,
+    VNAME_EXPRESSION = 25,
+    BINARY_OPERATOR_DECLARATION = 26,
+    CONST_DECLARATION = 27,
+    ERROR_DECLARATION = 28,
+    FUNC_DECLARATION = 29,
+    PRIVATE_DECLARATION = 30,
+    PROC_DECLARATION = 31,
+    PROC_FUNCS = 32,
+    REC_DECLARATION = 33,
+    SEQUENTIAL_DECLARATION = 34,
+    TYPE_DECLARATION = 35,
+    UNARY_OPERATOR_DECLARATION = 36,
+    VAR_DECLARATION = 37,
+    VAR_INITIALIZED = 38,
+    MULTIPLE_ARRAY_AGGREGATE = 39,
+    SINGLE_ARRAY_AGGREGATE = 40,
+    MULTIPLE_RECORD_AGGREGATE = 41,
+    SINGLE_RECORD_AGGREGATE = 42,
+    CONST_FORMAL_PARAMETER = 43,
+    FUNC_FORMAL_PARAMETER = 44,
+    PROC_FORMAL_PARAMETER = 45,
+    VAR_FORMAL_PARAMETER = 46,
+    EMPTY_FORMAL_PARAMETER_SEQUENCE = 47,
+    MULTIPLE_FORMAL_PARAMETER_SEQUENCE = 48,
+    SINGLE_FORMAL_PARAMETER_SEQUENCE = 49,
+    CONST_ACTUAL_PARAMETER = 50,
+    FUNC_ACTUAL_PARAMETER = 51,
+    PROC_ACTUAL_PARAMETER = 52,
+    VAR_ACTUAL_PARAMETER = 53,
+    EMPTY_ACTUAL_PARAMETER_SEQUENCE = 54,
+    MULTIPLE_ACTUAL_PARAMETER_SEQUENCE = 55,
+    SINGLE_ACTUAL_PARAMETER_SEQUENCE = 56,
+    ANY_TYPE_DENOTER = 57,
+    ARRAY_TYPE_DENOTER = 58,
+    ARRAY_TYPE_DENOTER_STATIC = 59,
+    BOOL_TYPE_DENOTER = 60,
+    CHAR_TYPE_DENOTER = 61,
+    ERROR_TYPE_DENOTER = 62,
+    SIMPLE_TYPE_DENOTER = 63,
+    INT_TYPE_DENOTER = 64,
+    RECORD_TYPE_DENOTER = 65,
+    MULTIPLE_FIELD_TYPE_DENOTER = 66,
+    SINGLE_FIELD_TYPE_DENOTER = 67,
+    CHARACTER_LITERAL = 68,
+    IDENTIFIER = 69,
+    INTEGER_LITERAL = 70,
+    OPERATOR = 71,
+    DOT_VNAME = 72,
+    SIMPLE_VNAME = 73,
+    SUBSCRIPT_VNAME = 74;
+
+  private ASTKind () {
+  }
+}
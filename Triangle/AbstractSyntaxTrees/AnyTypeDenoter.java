@@ -22,7 +22,11 @@ public class AnyTypeDenoter extends TypeDenoter {
     super (thePosition);
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitAnyTypeDenoter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitAnyTypeDenoter(this, o);
   }
 
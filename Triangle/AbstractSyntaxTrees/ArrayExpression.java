@@ -24,7 +24,11 @@ public class ArrayExpression extends Expression {
     AA = aaAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitArrayExpression(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitArrayExpression(this, o);
   }
 
@@ -25,15 +25,22 @@ public class ArrayTypeDenoter extends TypeDenoter {
     T = tAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitArrayTypeDenoter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitArrayTypeDenoter(this, o);
   }
 
   public boolean equals (Object obj) {
-    if (obj != null && obj instanceof ErrorTypeDenoter)
+    if (obj == this)
+      return true;
+    else if (obj != null && obj instanceof ErrorTypeDenoter)
       return true;
     else if (obj != null && obj instanceof ArrayTypeDenoter)
-      return this.IL.spelling.compareTo(((ArrayTypeDenoter) obj).IL.spelling) == 0 &&
+      return !(this.canonical && ((ArrayTypeDenoter) obj).canonical) &&
+             this.IL.spelling.compareTo(((ArrayTypeDenoter) obj).IL.spelling) == 0 &&
              this.T.equals(((ArrayTypeDenoter) obj).T);
     else
       return false;
@@ -11,7 +11,11 @@ public class ArrayTypeDenoterStatic extends TypeDenoter {
         T = tAST;
     }
 
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitArrayTypeDenoterStatic(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitArrayTypeDenoterStatic(this, o);
     }
 
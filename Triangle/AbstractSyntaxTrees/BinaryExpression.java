@@ -26,7 +26,11 @@ public class BinaryExpression extends Expression {
     E2 = e2AST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitBinaryExpression(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitBinaryExpression(this, o);
   }
 
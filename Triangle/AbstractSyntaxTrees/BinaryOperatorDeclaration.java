@@ -28,7 +28,11 @@ public class BinaryOperatorDeclaration extends Declaration {
     RES = resultAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitBinaryOperatorDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitBinaryOperatorDeclaration(this, o);
   }
 
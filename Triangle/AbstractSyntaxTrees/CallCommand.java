@@ -25,7 +25,11 @@ public class CallCommand extends Command {
     APS = apsAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitCallCommand(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitCallCommand(this, o);
   }
 
@@ -25,7 +25,11 @@ public class CallExpression extends Expression {
     APS = apsAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitCallExpression(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitCallExpression(this, o);
   }
 
@@ -22,7 +22,11 @@ public class CharacterLiteral extends Terminal {
     super (theSpelling, thePosition);
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitCharacterLiteral(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitCharacterLiteral(this, o);
   }
 
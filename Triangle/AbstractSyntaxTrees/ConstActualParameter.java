@@ -23,7 +23,11 @@ public class ConstActualParameter extends ActualParameter {
     E = eAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitConstActualParameter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitConstActualParameter(this, o);
   }
 
@@ -25,11 +25,14 @@ public class ConstDeclaration extends Declaration {
     E = eAST;
   }
 
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitConstDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
+    return v.visitConstDeclaration(this, o);
+  }
+
   public Identifier I;
   public Expression E;
-
-    @Override
-    public Object visit(Visitor v, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
 }
@@ -25,7 +25,11 @@ public class ConstFormalParameter extends FormalParameter {
     T = tAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitConstFormalParameter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitConstFormalParameter(this, o);
   }
 
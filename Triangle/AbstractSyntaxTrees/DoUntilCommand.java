@@ -23,7 +23,11 @@ public class DoUntilCommand extends Command{
     public Command C;
     public Expression E;
 
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitDoUntilCommand(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitDoUntilCommand(this, o);
     }
 }
@@ -24,7 +24,11 @@ public class DoWhileCommand extends Command{
     public Command C;
     public Expression E;
 
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitDoWhileCommand(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitDoWhileCommand(this, o);
     }
 }
@@ -24,7 +24,11 @@ public class DotVname extends Vname {
     I = iAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitDotVname(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitDotVname(this, o);
   }
 
@@ -24,7 +24,11 @@ public class ElsIfCommand extends Command {
     public Command C2;
 
     @Override
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitElsIfCommand(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitElsIfCommand(this, o);
     }
 }
@@ -0,0 +1,25 @@
+/*
+ * @(#)ErrorCommand.java
+ *
+ * Stands for a command that contained a syntactic error, and whose
+ * tokens were skipped by the parser's error recovery.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+public class ErrorCommand extends Command {
+
+  public ErrorCommand (SourcePosition thePosition) {
+    super (thePosition);
+  }
+
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitErrorCommand(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
+    return v.visitErrorCommand(this, o);
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * @(#)ErrorDeclaration.java
+ *
+ * Stands for a declaration that contained a syntactic error, and whose
+ * tokens were skipped by the parser's error recovery. I is the declared
+ * identifier if the parser got as far as it, and null otherwise.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+public class ErrorDeclaration extends Declaration {
+
+  public ErrorDeclaration (Identifier iAST, SourcePosition thePosition) {
+    super (thePosition);
+    I = iAST;
+  }
+
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitErrorDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
+    return v.visitErrorDeclaration(this, o);
+  }
+
+  public Identifier I;
+}
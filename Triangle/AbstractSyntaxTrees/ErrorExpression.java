@@ -0,0 +1,25 @@
+/*
+ * @(#)ErrorExpression.java
+ *
+ * Stands for an expression that contained a syntactic error, and whose
+ * tokens were skipped by the parser's error recovery.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+public class ErrorExpression extends Expression {
+
+  public ErrorExpression (SourcePosition thePosition) {
+    super (thePosition);
+  }
+
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitErrorExpression(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
+    return v.visitErrorExpression(this, o);
+  }
+}
@@ -27,7 +27,11 @@ public class ForCommand extends Command{
     public Command C;
 
     @Override
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitForCommand(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitForCommand(this, o);
     }
     
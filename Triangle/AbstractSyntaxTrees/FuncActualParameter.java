@@ -23,7 +23,11 @@ public class FuncActualParameter extends ActualParameter {
     I = iAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitFuncActualParameter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitFuncActualParameter(this, o);
   }
 
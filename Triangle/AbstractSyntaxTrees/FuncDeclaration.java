@@ -28,7 +28,11 @@ public class FuncDeclaration extends Declaration {
     E = eAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitFuncDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitFuncDeclaration(this, o);
   }
 
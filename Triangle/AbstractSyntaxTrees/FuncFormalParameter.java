@@ -26,7 +26,11 @@ public class FuncFormalParameter extends FormalParameter {
     T = tAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitFuncFormalParameter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitFuncFormalParameter(this, o);
   }
 
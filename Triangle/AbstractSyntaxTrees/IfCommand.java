@@ -26,7 +26,11 @@ public class IfCommand extends Command {
     C2 = c2AST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitIfCommand(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitIfCommand(this, o);
   }
 
@@ -26,7 +26,11 @@ public class IfExpression extends Expression {
     E3 = e3AST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitIfExpression(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitIfExpression(this, o);
   }
 
@@ -0,0 +1,114 @@
+/*
+ * @(#)IntVisitor.java
+ *
+ * A visitor whose visits each return an int, such as a size, so that
+ * passes computing sizes need not box their results.
+ */
+
+package Triangle.AbstractSyntaxTrees;
+
+// Each node class dispatches to an IntVisitor through its own visit method,
+// alongside the one for Visitor, so an IntVisitor visits without any boxing
+// or casting.
+
+public interface IntVisitor<A> {
+
+  // Commands
+  public abstract int visitAssignCommand(AssignCommand ast, A o);
+  public abstract int visitCallCommand(CallCommand ast, A o);
+  public abstract int visitDoUntilCommand(DoUntilCommand ast, A o);
+  public abstract int visitDoWhileCommand(DoWhileCommand ast, A o);
+  public abstract int visitEmptyCommand(EmptyCommand ast, A o);
+  public abstract int visitElsIfCommand(ElsIfCommand ast, A o);
+  public abstract int visitErrorCommand(ErrorCommand ast, A o);
+  public abstract int visitForCommand(ForCommand ast, A o);
+  public abstract int visitIfCommand(IfCommand ast, A o);
+  public abstract int visitLetCommand(LetCommand ast, A o);
+  public abstract int visitSequentialCommand(SequentialCommand ast, A o);
+  public abstract int visitUntilCommand(UntilCommand ast, A o);
+  public abstract int visitWhileCommand(WhileCommand ast, A o);
+
+
+  // Expressions
+  public abstract int visitArrayExpression(ArrayExpression ast, A o);
+  public abstract int visitBinaryExpression(BinaryExpression ast, A o);
+  public abstract int visitCallExpression(CallExpression ast, A o);
+  public abstract int visitCharacterExpression(CharacterExpression ast, A o);
+  public abstract int visitEmptyExpression(EmptyExpression ast, A o);
+  public abstract int visitErrorExpression(ErrorExpression ast, A o);
+  public abstract int visitIfExpression(IfExpression ast, A o);
+  public abstract int visitIntegerExpression(IntegerExpression ast, A o);
+  public abstract int visitLetExpression(LetExpression ast, A o);
+  public abstract int visitRecordExpression(RecordExpression ast, A o);
+  public abstract int visitUnaryExpression(UnaryExpression ast, A o);
+  public abstract int visitVnameExpression(VnameExpression ast, A o);
+
+  // Declarations
+  public abstract int visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, A o);
+  public abstract int visitConstDeclaration(ConstDeclaration ast, A o);
+  public abstract int visitErrorDeclaration(ErrorDeclaration ast, A o);
+  public abstract int visitFuncDeclaration(FuncDeclaration ast, A o);
+  public abstract int visitProcDeclaration(ProcDeclaration ast, A o);
+  public abstract int visitSequentialDeclaration(SequentialDeclaration ast, A o);
+  public abstract int visitTypeDeclaration(TypeDeclaration ast, A o);
+  public abstract int visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, A o);
+  public abstract int visitVarDeclaration(VarDeclaration ast, A o);
+  public abstract int visitVarInitialized(VarInitialized ast, A o);
+
+  // Array Aggregates
+  public abstract int visitMultipleArrayAggregate(MultipleArrayAggregate ast, A o);
+  public abstract int visitSingleArrayAggregate(SingleArrayAggregate ast, A o);
+
+  // Record Aggregates
+  public abstract int visitMultipleRecordAggregate(MultipleRecordAggregate ast, A o);
+  public abstract int visitSingleRecordAggregate(SingleRecordAggregate ast, A o);
+
+  // Formal Parameters
+  public abstract int visitConstFormalParameter(ConstFormalParameter ast, A o);
+  public abstract int visitFuncFormalParameter(FuncFormalParameter ast, A o);
+  public abstract int visitProcFormalParameter(ProcFormalParameter ast, A o);
+  public abstract int visitVarFormalParameter(VarFormalParameter ast, A o);
+
+  public abstract int visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, A o);
+  public abstract int visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, A o);
+  public abstract int visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, A o);
+
+  // Actual Parameters
+  public abstract int visitConstActualParameter(ConstActualParameter ast, A o);
+  public abstract int visitFuncActualParameter(FuncActualParameter ast, A o);
+  public abstract int visitProcActualParameter(ProcActualParameter ast, A o);
+  public abstract int visitVarActualParameter(VarActualParameter ast, A o);
+
+  public abstract int visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, A o);
+  public abstract int visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, A o);
+  public abstract int visitSingleActualParameterSequence(SingleActualParameterSequence ast, A o);
+
+  // Type Denoters
+  public abstract int visitAnyTypeDenoter(AnyTypeDenoter ast, A o);
+  public abstract int visitArrayTypeDenoter(ArrayTypeDenoter ast, A o);
+  public abstract int visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, A o);
+  public abstract int visitBoolTypeDenoter(BoolTypeDenoter ast, A o);
+  public abstract int visitCharTypeDenoter(CharTypeDenoter ast, A o);
+  public abstract int visitErrorTypeDenoter(ErrorTypeDenoter ast, A o);
+  public abstract int visitSimpleTypeDenoter(SimpleTypeDenoter ast, A o);
+  public abstract int visitIntTypeDenoter(IntTypeDenoter ast, A o);
+  public abstract int visitRecordTypeDenoter(RecordTypeDenoter ast, A o);
+
+  public abstract int visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, A o);
+  public abstract int visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, A o);
+
+  // Literals, Identifiers and Operators
+  public abstract int visitCharacterLiteral(CharacterLiteral ast, A o);
+  public abstract int visitIdentifier(Identifier ast, A o);
+  public abstract int visitIntegerLiteral(IntegerLiteral ast, A o);
+  public abstract int visitOperator(Operator ast, A o);
+
+  // Value-or-variable names
+  public abstract int visitDotVname(DotVname ast, A o);
+  public abstract int visitSimpleVname(SimpleVname ast, A o);
+  public abstract int visitSubscriptVname(SubscriptVname ast, A o);
+
+  // Programs
+  public abstract int visitProgram(Program ast, A o);
+
+}
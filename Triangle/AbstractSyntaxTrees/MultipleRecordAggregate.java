@@ -26,7 +26,11 @@ public class MultipleRecordAggregate extends RecordAggregate {
     RA = raAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitMultipleRecordAggregate(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitMultipleRecordAggregate(this, o);
   }
 
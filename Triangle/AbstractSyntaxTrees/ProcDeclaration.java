@@ -26,7 +26,11 @@ public class ProcDeclaration extends Declaration {
     C = cAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitProcDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitProcDeclaration(this, o);
   }
 
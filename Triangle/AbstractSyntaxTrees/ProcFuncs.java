@@ -27,8 +27,13 @@ public class ProcFuncs extends Declaration {
   public Declaration D1, D2;
 
     @Override
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
+    @Override
+    public <A> int visit(IntVisitor<A> v, A o) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
 }
@@ -23,15 +23,22 @@ public class RecordTypeDenoter extends TypeDenoter {
     FT = ftAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitRecordTypeDenoter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitRecordTypeDenoter(this, o);
   }
 
   public boolean equals (Object obj) {
-    if (obj != null && obj instanceof ErrorTypeDenoter)
+    if (obj == this)
+      return true;
+    else if (obj != null && obj instanceof ErrorTypeDenoter)
       return true;
     else if (obj != null && obj instanceof RecordTypeDenoter)
-      return this.FT.equals(((RecordTypeDenoter) obj).FT);
+      return !(this.canonical && ((RecordTypeDenoter) obj).canonical) &&
+             this.FT.equals(((RecordTypeDenoter) obj).FT);
     else
       return false;
   }
@@ -16,17 +16,23 @@ package Triangle.AbstractSyntaxTrees;
 
 import Triangle.SyntacticAnalyzer.SourcePosition;
 
+// A sequence of two or more commands, held in a flat array rather than as
+// a chain of nested pairs, so that long sequences cost no nesting depth.
+
 public class SequentialCommand extends Command {
 
-  public SequentialCommand (Command c1AST, Command c2AST, SourcePosition thePosition) {
+  public SequentialCommand (Command[] csAST, SourcePosition thePosition) {
     super (thePosition);
-    C1 = c1AST;
-    C2 = c2AST;
+    CS = csAST;
+  }
+
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSequentialCommand(this, o);
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSequentialCommand(this, o);
   }
 
-  public Command C1, C2;
+  public Command[] CS;
 }
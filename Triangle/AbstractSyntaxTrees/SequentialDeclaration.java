@@ -16,18 +16,24 @@ package Triangle.AbstractSyntaxTrees;
 
 import Triangle.SyntacticAnalyzer.SourcePosition;
 
+// A sequence of two or more declarations, held in a flat array rather
+// than as a chain of nested pairs.
+
 public class SequentialDeclaration extends Declaration {
 
-  public SequentialDeclaration (Declaration d1AST, Declaration d2AST,
+  public SequentialDeclaration (Declaration[] dsAST,
                        SourcePosition thePosition) {
     super (thePosition);
-    D1 = d1AST;
-    D2 = d2AST;
+    DS = dsAST;
+  }
+
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSequentialDeclaration(this, o);
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSequentialDeclaration(this, o);
   }
 
-  public Declaration D1, D2;
+  public Declaration[] DS;
 }
@@ -23,7 +23,11 @@ public class SimpleTypeDenoter extends TypeDenoter {
     I = iAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSimpleTypeDenoter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSimpleTypeDenoter(this, o);
   }
 
@@ -24,7 +24,11 @@ public class SingleActualParameterSequence extends ActualParameterSequence {
     AP = apAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSingleActualParameterSequence(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSingleActualParameterSequence(this, o);
   }
 
@@ -24,7 +24,11 @@ public class SingleArrayAggregate extends ArrayAggregate {
     E = eAST;
   }
 
-  public Object visit (Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSingleArrayAggregate(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSingleArrayAggregate(this, o);
   }
 
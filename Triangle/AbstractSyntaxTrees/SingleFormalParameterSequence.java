@@ -24,7 +24,11 @@ public class SingleFormalParameterSequence extends FormalParameterSequence {
     FP = fpAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSingleFormalParameterSequence(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSingleFormalParameterSequence(this, o);
   }
 
@@ -25,7 +25,11 @@ public class SingleRecordAggregate extends RecordAggregate {
     E = eAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitSingleRecordAggregate(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitSingleRecordAggregate(this, o);
   }
 
@@ -24,4 +24,9 @@ public abstract class TypeDenoter extends AST {
 
   public abstract boolean equals(Object obj);
 
+  // Set by the contextual analyzer on the single instance that it keeps of
+  // each structurally distinct array or record type. Two such instances
+  // are equal only if they are the same instance.
+  public boolean canonical;
+
 }
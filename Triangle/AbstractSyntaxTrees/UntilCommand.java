@@ -21,7 +21,11 @@ public class UntilCommand extends Command {
     }
 
     @Override
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitUntilCommand(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitUntilCommand(this, o);
     }
     
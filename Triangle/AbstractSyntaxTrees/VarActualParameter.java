@@ -23,7 +23,11 @@ public class VarActualParameter extends ActualParameter {
     V = vAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitVarActualParameter(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitVarActualParameter(this, o);
   }
 
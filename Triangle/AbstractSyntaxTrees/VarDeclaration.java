@@ -32,7 +32,11 @@ public class VarDeclaration extends Declaration {
     E = eAST;
   }
 
-  public Object visit(Visitor v, Object o) {
+  public <R, A> R visit(Visitor<R, A> v, A o) {
+    return v.visitVarDeclaration(this, o);
+  }
+
+  public <A> int visit(IntVisitor<A> v, A o) {
     return v.visitVarDeclaration(this, o);
   }
 
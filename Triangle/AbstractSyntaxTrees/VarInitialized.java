@@ -13,7 +13,11 @@ public class VarInitialized extends Declaration {
     public Identifier I;
     public Expression E;
 
-    public Object visit(Visitor v, Object o) {
+    public <R, A> R visit(Visitor<R, A> v, A o) {
+        return v.visitVarInitialized(this, o);
+    }
+
+    public <A> int visit(IntVisitor<A> v, A o) {
         return v.visitVarInitialized(this, o);
     }
 }
\ No newline at end of file
@@ -14,101 +14,108 @@
 
 package Triangle.AbstractSyntaxTrees;
 
-public interface Visitor {
+// A visitor returns a result of type R from each visit, given an argument
+// of type A. A pass whose visits all return an int implements IntVisitor
+// instead, so that no result is boxed.
+
+public interface Visitor<R, A> {
 
   // Commands
-  public abstract Object visitAssignCommand(AssignCommand ast, Object o);
-  public abstract Object visitCallCommand(CallCommand ast, Object o);
-  public abstract Object visitDoUntilCommand(DoUntilCommand ast, Object o);
-  public abstract Object visitDoWhileCommand(DoWhileCommand ast, Object o);
-  public abstract Object visitEmptyCommand(EmptyCommand ast, Object o);
-  public abstract Object visitElsIfCommand(ElsIfCommand ast, Object o);
-  public abstract Object visitForCommand(ForCommand ast, Object o);
-  public abstract Object visitIfCommand(IfCommand ast, Object o);
-  public abstract Object visitLetCommand(LetCommand ast, Object o);
-  public abstract Object visitSequentialCommand(SequentialCommand ast, Object o);
-  public abstract Object visitUntilCommand(UntilCommand ast, Object o);
-  public abstract Object visitWhileCommand(WhileCommand ast, Object o);
+  public abstract R visitAssignCommand(AssignCommand ast, A o);
+  public abstract R visitCallCommand(CallCommand ast, A o);
+  public abstract R visitDoUntilCommand(DoUntilCommand ast, A o);
+  public abstract R visitDoWhileCommand(DoWhileCommand ast, A o);
+  public abstract R visitEmptyCommand(EmptyCommand ast, A o);
+  public abstract R visitElsIfCommand(ElsIfCommand ast, A o);
+  public abstract R visitErrorCommand(ErrorCommand ast, A o);
+  public abstract R visitForCommand(ForCommand ast, A o);
+  public abstract R visitIfCommand(IfCommand ast, A o);
+  public abstract R visitLetCommand(LetCommand ast, A o);
+  public abstract R visitSequentialCommand(SequentialCommand ast, A o);
+  public abstract R visitUntilCommand(UntilCommand ast, A o);
+  public abstract R visitWhileCommand(WhileCommand ast, A o);
 
 
   // Expressions
-  public abstract Object visitArrayExpression(ArrayExpression ast, Object o);
-  public abstract Object visitBinaryExpression(BinaryExpression ast, Object o);
-  public abstract Object visitCallExpression(CallExpression ast, Object o);
-  public abstract Object visitCharacterExpression(CharacterExpression ast, Object o);
-  public abstract Object visitEmptyExpression(EmptyExpression ast, Object o);
-  public abstract Object visitIfExpression(IfExpression ast, Object o);
-  public abstract Object visitIntegerExpression(IntegerExpression ast, Object o);
-  public abstract Object visitLetExpression(LetExpression ast, Object o);
-  public abstract Object visitRecordExpression(RecordExpression ast, Object o);
-  public abstract Object visitUnaryExpression(UnaryExpression ast, Object o);
-  public abstract Object visitVnameExpression(VnameExpression ast, Object o);
+  public abstract R visitArrayExpression(ArrayExpression ast, A o);
+  public abstract R visitBinaryExpression(BinaryExpression ast, A o);
+  public abstract R visitCallExpression(CallExpression ast, A o);
+  public abstract R visitCharacterExpression(CharacterExpression ast, A o);
+  public abstract R visitEmptyExpression(EmptyExpression ast, A o);
+  public abstract R visitErrorExpression(ErrorExpression ast, A o);
+  public abstract R visitIfExpression(IfExpression ast, A o);
+  public abstract R visitIntegerExpression(IntegerExpression ast, A o);
+  public abstract R visitLetExpression(LetExpression ast, A o);
+  public abstract R visitRecordExpression(RecordExpression ast, A o);
+  public abstract R visitUnaryExpression(UnaryExpression ast, A o);
+  public abstract R visitVnameExpression(VnameExpression ast, A o);
 
   // Declarations
-  public abstract Object visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Object o);
-  public abstract Object visitConstDeclaration(ConstDeclaration ast, Object o);
-  public abstract Object visitFuncDeclaration(FuncDeclaration ast, Object o);
-  public abstract Object visitProcDeclaration(ProcDeclaration ast, Object o);
-  public abstract Object visitSequentialDeclaration(SequentialDeclaration ast, Object o);
-  public abstract Object visitTypeDeclaration(TypeDeclaration ast, Object o);
-  public abstract Object visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Object o);
-  public abstract Object visitVarDeclaration(VarDeclaration ast, Object o);
-  public abstract Object visitVarInitialized(VarInitialized ast, Object o);
+  public abstract R visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, A o);
+  public abstract R visitConstDeclaration(ConstDeclaration ast, A o);
+  public abstract R visitErrorDeclaration(ErrorDeclaration ast, A o);
+  public abstract R visitFuncDeclaration(FuncDeclaration ast, A o);
+  public abstract R visitProcDeclaration(ProcDeclaration ast, A o);
+  public abstract R visitSequentialDeclaration(SequentialDeclaration ast, A o);
+  public abstract R visitTypeDeclaration(TypeDeclaration ast, A o);
+  public abstract R visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, A o);
+  public abstract R visitVarDeclaration(VarDeclaration ast, A o);
+  public abstract R visitVarInitialized(VarInitialized ast, A o);
 
   // Array Aggregates
-  public abstract Object visitMultipleArrayAggregate(MultipleArrayAggregate ast, Object o);
-  public abstract Object visitSingleArrayAggregate(SingleArrayAggregate ast, Object o);
+  public abstract R visitMultipleArrayAggregate(MultipleArrayAggregate ast, A o);
+  public abstract R visitSingleArrayAggregate(SingleArrayAggregate ast, A o);
 
   // Record Aggregates
-  public abstract Object visitMultipleRecordAggregate(MultipleRecordAggregate ast, Object o);
-  public abstract Object visitSingleRecordAggregate(SingleRecordAggregate ast, Object o);
+  public abstract R visitMultipleRecordAggregate(MultipleRecordAggregate ast, A o);
+  public abstract R visitSingleRecordAggregate(SingleRecordAggregate ast, A o);
 
   // Formal Parameters
-  public abstract Object visitConstFormalParameter(ConstFormalParameter ast, Object o);
-  public abstract Object visitFuncFormalParameter(FuncFormalParameter ast, Object o);
-  public abstract Object visitProcFormalParameter(ProcFormalParameter ast, Object o);
-  public abstract Object visitVarFormalParameter(VarFormalParameter ast, Object o);
+  public abstract R visitConstFormalParameter(ConstFormalParameter ast, A o);
+  public abstract R visitFuncFormalParameter(FuncFormalParameter ast, A o);
+  public abstract R visitProcFormalParameter(ProcFormalParameter ast, A o);
+  public abstract R visitVarFormalParameter(VarFormalParameter ast, A o);
 
-  public abstract Object visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Object o);
-  public abstract Object visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Object o);
-  public abstract Object visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Object o);
+  public abstract R visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, A o);
+  public abstract R visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, A o);
+  public abstract R visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, A o);
 
   // Actual Parameters
-  public abstract Object visitConstActualParameter(ConstActualParameter ast, Object o);
-  public abstract Object visitFuncActualParameter(FuncActualParameter ast, Object o);
-  public abstract Object visitProcActualParameter(ProcActualParameter ast, Object o);
-  public abstract Object visitVarActualParameter(VarActualParameter ast, Object o);
+  public abstract R visitConstActualParameter(ConstActualParameter ast, A o);
+  public abstract R visitFuncActualParameter(FuncActualParameter ast, A o);
+  public abstract R visitProcActualParameter(ProcActualParameter ast, A o);
+  public abstract R visitVarActualParameter(VarActualParameter ast, A o);
 
-  public abstract Object visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Object o);
-  public abstract Object visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Object o);
-  public abstract Object visitSingleActualParameterSequence(SingleActualParameterSequence ast, Object o);
+  public abstract R visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, A o);
+  public abstract R visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, A o);
+  public abstract R visitSingleActualParameterSequence(SingleActualParameterSequence ast, A o);
 
   // Type Denoters
-  public abstract Object visitAnyTypeDenoter(AnyTypeDenoter ast, Object o);
-  public abstract Object visitArrayTypeDenoter(ArrayTypeDenoter ast, Object o);
-  public abstract Object visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Object o);
-  public abstract Object visitBoolTypeDenoter(BoolTypeDenoter ast, Object o);
-  public abstract Object visitCharTypeDenoter(CharTypeDenoter ast, Object o);
-  public abstract Object visitErrorTypeDenoter(ErrorTypeDenoter ast, Object o);
-  public abstract Object visitSimpleTypeDenoter(SimpleTypeDenoter ast, Object o);
-  public abstract Object visitIntTypeDenoter(IntTypeDenoter ast, Object o);
-  public abstract Object visitRecordTypeDenoter(RecordTypeDenoter ast, Object o);
-
-  public abstract Object visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Object o);
-  public abstract Object visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Object o);
+  public abstract R visitAnyTypeDenoter(AnyTypeDenoter ast, A o);
+  public abstract R visitArrayTypeDenoter(ArrayTypeDenoter ast, A o);
+  public abstract R visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, A o);
+  public abstract R visitBoolTypeDenoter(BoolTypeDenoter ast, A o);
+  public abstract R visitCharTypeDenoter(CharTypeDenoter ast, A o);
+  public abstract R visitErrorTypeDenoter(ErrorTypeDenoter ast, A o);
+  public abstract R visitSimpleTypeDenoter(SimpleTypeDenoter ast, A o);
+  public abstract R visitIntTypeDenoter(IntTypeDenoter ast, A o);
+  public abstract R visitRecordTypeDenoter(RecordTypeDenoter ast, A o);
+
+  public abstract R visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, A o);
+  public abstract R visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, A o);
 
   // Literals, Identifiers and Operators
-  public abstract Object visitCharacterLiteral(CharacterLiteral ast, Object o);
-  public abstract Object visitIdentifier(Identifier ast, Object o);
-  public abstract Object visitIntegerLiteral(IntegerLiteral ast, Object o);
-  public abstract Object visitOperator(Operator ast, Object o);
+  public abstract R visitCharacterLiteral(CharacterLiteral ast, A o);
+  public abstract R visitIdentifier(Identifier ast, A o);
+  public abstract R visitIntegerLiteral(IntegerLiteral ast, A o);
+  public abstract R visitOperator(Operator ast, A o);
 
   // Value-or-variable names
-  public abstract Object visitDotVname(DotVname ast, Object o);
-  public abstract Object visitSimpleVname(SimpleVname ast, Object o);
-  public abstract Object visitSubscriptVname(SubscriptVname ast, Object o);
+  public abstract R visitDotVname(DotVname ast, A o);
+  public abstract R visitSimpleVname(SimpleVname ast, A o);
+  public abstract R visitSubscriptVname(SubscriptVname ast, A o);
 
   // Programs
-  public abstract Object visitProgram(Program ast, Object o);
+  public abstract R visitProgram(Program ast, A o);
 
 }
@@ -0,0 +1,23 @@
+/*
+ * @(#)Access.java
+ *
+ * How a run-time entity is reached by the object program.
+ */
+
+package Triangle.CodeGenerator;
+
+// Each kind corresponds to one subclass of RuntimeEntity.
+
+public enum Access {
+
+  KNOWN_VALUE,        // a constant whose value is known: load it literally
+  UNKNOWN_VALUE,      // a constant computed at run-time, held in a frame
+  KNOWN_ADDRESS,      // a variable held in a frame
+  UNKNOWN_ADDRESS,    // a variable parameter: its address is held in a frame
+  KNOWN_ROUTINE,      // a routine whose code address is known
+  UNKNOWN_ROUTINE,    // a routine parameter: its closure is held in a frame
+  PRIMITIVE_ROUTINE,  // a routine of the TAM primitive segment
+  EQUALITY_ROUTINE,   // "=" or "\=", which take the size of their operands
+  FIELD,              // a record field, at an offset within its record
+  TYPE                // the representation of a type
+}
@@ -18,12 +18,24 @@ import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 import TAM.Instruction;
 import TAM.Machine;
+import Triangle.CompilationContext;
 import Triangle.ErrorReporter;
 import Triangle.StdEnvironment;
+import Triangle.Optimizer.CallGraph;
+import Triangle.Optimizer.LoopInvariantFinder;
+import Triangle.Optimizer.PeepholeOptimizer;
 import Triangle.AbstractSyntaxTrees.AST;
+import Triangle.AbstractSyntaxTrees.ActualParameter;
+import Triangle.AbstractSyntaxTrees.ActualParameterSequence;
 import Triangle.AbstractSyntaxTrees.AnyTypeDenoter;
 import Triangle.AbstractSyntaxTrees.ArrayExpression;
 import Triangle.AbstractSyntaxTrees.ArrayTypeDenoter;
@@ -37,6 +49,7 @@ import Triangle.AbstractSyntaxTrees.CallExpression;
 import Triangle.AbstractSyntaxTrees.CharTypeDenoter;
 import Triangle.AbstractSyntaxTrees.CharacterExpression;
 import Triangle.AbstractSyntaxTrees.CharacterLiteral;
+import Triangle.AbstractSyntaxTrees.Command;
 import Triangle.AbstractSyntaxTrees.ConstActualParameter;
 import Triangle.AbstractSyntaxTrees.ConstDeclaration;
 import Triangle.AbstractSyntaxTrees.ConstFormalParameter;
@@ -49,8 +62,14 @@ import Triangle.AbstractSyntaxTrees.EmptyActualParameterSequence;
 import Triangle.AbstractSyntaxTrees.EmptyCommand;
 import Triangle.AbstractSyntaxTrees.EmptyExpression;
 import Triangle.AbstractSyntaxTrees.EmptyFormalParameterSequence;
+import Triangle.AbstractSyntaxTrees.ErrorCommand;
+import Triangle.AbstractSyntaxTrees.ErrorDeclaration;
+import Triangle.AbstractSyntaxTrees.ErrorExpression;
 import Triangle.AbstractSyntaxTrees.ErrorTypeDenoter;
+import Triangle.AbstractSyntaxTrees.Expression;
 import Triangle.AbstractSyntaxTrees.ForCommand;
+import Triangle.AbstractSyntaxTrees.FormalParameter;
+import Triangle.AbstractSyntaxTrees.FormalParameterSequence;
 import Triangle.AbstractSyntaxTrees.FuncActualParameter;
 import Triangle.AbstractSyntaxTrees.FuncDeclaration;
 import Triangle.AbstractSyntaxTrees.FuncFormalParameter;
@@ -58,6 +77,7 @@ import Triangle.AbstractSyntaxTrees.Identifier;
 import Triangle.AbstractSyntaxTrees.IfCommand;
 import Triangle.AbstractSyntaxTrees.IfExpression;
 import Triangle.AbstractSyntaxTrees.IntTypeDenoter;
+import Triangle.AbstractSyntaxTrees.IntVisitor;
 import Triangle.AbstractSyntaxTrees.IntegerExpression;
 import Triangle.AbstractSyntaxTrees.IntegerLiteral;
 import Triangle.AbstractSyntaxTrees.LetCommand;
@@ -92,182 +112,415 @@ import Triangle.AbstractSyntaxTrees.VarActualParameter;
 import Triangle.AbstractSyntaxTrees.VarDeclaration;
 import Triangle.AbstractSyntaxTrees.VarFormalParameter;
 import Triangle.AbstractSyntaxTrees.VarInitialized;
-import Triangle.AbstractSyntaxTrees.Visitor;
 import Triangle.AbstractSyntaxTrees.Vname;
 import Triangle.AbstractSyntaxTrees.VnameExpression;
 import Triangle.AbstractSyntaxTrees.WhileCommand;
 
-public final class Encoder implements Visitor {
+public final class Encoder implements IntVisitor<Frame> {
 
 
   // Commands
-  public Object visitAssignCommand(AssignCommand ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.E.visit(this, frame);
-    encodeStore(ast.V, new Frame (frame, valSize.intValue()),
-		valSize.intValue());
-    return null;
+  public int visitAssignCommand(AssignCommand ast, Frame frame) {
+    int valSize = ast.E.visit(this, frame);
+    encodeStore(ast.V, new Frame (frame, valSize),
+		valSize);
+    return 0;
   }
 
-  public Object visitCallCommand(CallCommand ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer argsSize = (Integer) ast.APS.visit(this, frame);
-    ast.I.visit(this, new Frame(frame.level, argsSize));
-    return null;
+  public int visitCallCommand(CallCommand ast, Frame frame) {
+    int argsSize = ast.APS.visit(this, frame);
+    if (inlined.containsKey(ast.I.decl))
+      encodeInline(ast, (Declaration) ast.I.decl, frame, argsSize);
+    else if (tailCalls.contains(ast) && !refersToFrame(ast.APS, frame))
+      encodeTailCall((Declaration) ast.I.decl, frame, argsSize);
+    else
+      ast.I.visit(this, new Frame(frame.level, argsSize));
+    return 0;
   }
 
-  public Object visitEmptyCommand(EmptyCommand ast, Object o) {
-    return null;
+  public int visitEmptyCommand(EmptyCommand ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitIfCommand(IfCommand ast, Object o) {
-    Frame frame = (Frame) o;
-    int jumpifAddr, jumpAddr;
+  // Programs with syntactic errors are never encoded.
 
-    Integer valSize = (Integer) ast.E.visit(this, frame);
+  public int visitErrorCommand(ErrorCommand ast, Frame frame) {
+    return 0;
+  }
+
+  // A loop whose bounds are both known is unrolled where that pays (see
+  // unrollFully and unrollPartly). Otherwise the bound is evaluated once,
+  // into a hidden slot of the frame, and the control variable is held in
+  // the slot above it. The body is entered only if the control variable
+  // starts within the bound, and is followed by a single LOOP, which steps
+  // the control variable and jumps back to the body until the bound has
+  // been reached.
+
+  public int visitForCommand(ForCommand ast, Frame frame) {
+    int jumpifAddr, loopAddr;
+    int register = displayRegister(frame.level, frame.level);
+    Integer first = knownInteger(ast.E1), last = knownInteger(ast.E2);
+
+    if (unrollFactor > 1 && first != null && last != null) {
+      if (first.intValue() > last.intValue())
+        return 0;
+      else if (unrollFully(ast, frame, first.intValue(), last.intValue())
+               || unrollPartly(ast, frame, first.intValue(), last.intValue()))
+        return 0;
+    }
+    ast.E2.visit(this, frame);
+    ast.E1.visit(this, new Frame(frame, Machine.integerSize));
+    ast.I.decl.entity = new UnknownValue(Machine.integerSize, frame.level,
+                                         frame.size + Machine.integerSize);
+    writeTableDetails(ast.I.decl);
+    emit(Machine.LOADop, Machine.integerSize, register,
+         frame.size + Machine.integerSize);
+    emit(Machine.LOADop, Machine.integerSize, register, frame.size);
+    emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.leDisplacement);
     jumpifAddr = nextInstrAddr;
     emit(Machine.JUMPIFop, Machine.falseRep, Machine.CBr, 0);
+    loopAddr = nextInstrAddr;
+    ast.C.visit(this, new Frame(frame, 2 * Machine.integerSize));
+    emit(Machine.LOOPop, 0, Machine.CBr, loopAddr);
+    patch(jumpifAddr, nextInstrAddr);
+    emit(Machine.POPop, 0, 0, 2 * Machine.integerSize);
+    return 0;
+  }
+
+  // Replaces the loop by one copy of its body for each value of the control
+  // variable, in which the control variable is a known value, provided that
+  // the copies together take no more than unrollLimit instructions. The
+  // first copy is generated to find out; if the loop is not to be unrolled
+  // after all, it is discarded, with the inlining it recorded, and false is
+  // returned.
+
+  private boolean unrollFully (ForCommand ast, Frame frame, int first, int last) {
+    int startAddr = nextInstrAddr;
+    InliningRecord saved = saveInlining();
+
+    encodeIteration(ast, frame, first);
+    if ((long) (nextInstrAddr - startAddr) * ((long) last - first + 1)
+        > unrollLimit) {
+      nextInstrAddr = startAddr;
+      restoreInlining(saved);
+      return false;
+    }
+    for (int value = first + 1; value <= last; value++)
+      encodeIteration(ast, frame, value);
+    return true;
+  }
+
+  // If the code of the body does not depend on the value of the control
+  // variable, and unrollFactor copies of it take no more than unrollLimit
+  // instructions, generates a loop each step of which runs those copies,
+  // followed by straight-line copies for the iterations that remain. The
+  // body is generated twice, with the control variable bound to different
+  // values, to find out; that code is discarded, with the inlining it
+  // recorded, and if the loop is not to be unrolled after all, false is
+  // returned. Stepping the control variable between copies would cost more
+  // than the single LOOP that unrolling saves.
+
+  private boolean unrollPartly (ForCommand ast, Frame frame, int first, int last) {
+    int startAddr = nextInstrAddr, loopAddr;
+    int count = last - first + 1;
+    Instruction[] firstCode;
+    InliningRecord saved;
+    boolean same;
+
+    if (count < 2 * unrollFactor)
+      return false;
+    saved = saveInlining();
+    encodeIteration(ast, frame, first);
+    firstCode = Arrays.copyOfRange(code, startAddr, nextInstrAddr);
+    nextInstrAddr = startAddr;
+    restoreInlining(saved);
+    if (firstCode.length * unrollFactor > unrollLimit)
+      return false;
+    encodeIteration(ast, frame, first + 1);
+    same = sameCode(firstCode, startAddr);
+    nextInstrAddr = startAddr;
+    restoreInlining(saved);
+    if (!same)
+      return false;
+    emit(Machine.LOADLop, 0, 0, count / unrollFactor);
+    emit(Machine.LOADLop, 0, 0, 1);
+    loopAddr = nextInstrAddr;
+    for (int i = 0; i < unrollFactor; i++)
+      ast.C.visit(this, new Frame(frame, 2 * Machine.integerSize));
+    emit(Machine.LOOPop, 0, Machine.CBr, loopAddr);
+    emit(Machine.POPop, 0, 0, 2 * Machine.integerSize);
+    for (int i = 0; i < count % unrollFactor; i++)
+      ast.C.visit(this, frame);
+    return true;
+  }
+
+  // Generates the body of the loop with the control variable bound to the
+  // given value.
+
+  private void encodeIteration (ForCommand ast, Frame frame, int value) {
+    ast.I.decl.entity = new KnownValue(Machine.integerSize, value);
+    ast.C.visit(this, frame);
+  }
+
+  // Returns true iff the code from startAddr to nextInstrAddr is the same,
+  // instruction by instruction, as the given code.
+
+  private boolean sameCode (Instruction[] other, int startAddr) {
+    if (nextInstrAddr - startAddr != other.length)
+      return false;
+    for (int i = 0; i < other.length; i++) {
+      Instruction instr = code[startAddr + i];
+      if (instr.op != other[i].op || instr.n != other[i].n
+          || instr.r != other[i].r || instr.d != other[i].d)
+        return false;
+    }
+    return true;
+  }
+
+  public int visitIfCommand(IfCommand ast, Frame frame) {
+    ArrayList<Integer> jumpifAddrs;
+    int jumpAddr;
+
+    jumpifAddrs = encodeJumps(ast.E, frame, Machine.falseRep);
     ast.C1.visit(this, frame);
     jumpAddr = nextInstrAddr;
     emit(Machine.JUMPop, 0, Machine.CBr, 0);
-    patch(jumpifAddr, nextInstrAddr);
+    patch(jumpifAddrs, nextInstrAddr);
     ast.C2.visit(this, frame);
     patch(jumpAddr, nextInstrAddr);
-    return null;
+    return 0;
   }
 
-  public Object visitLetCommand(LetCommand ast, Object o) {
-    Frame frame = (Frame) o;
-    int extraSize = ((Integer) ast.D.visit(this, frame)).intValue();
+  public int visitLetCommand(LetCommand ast, Frame frame) {
+    int extraSize = ast.D.visit(this, frame);
     ast.C.visit(this, new Frame(frame, extraSize));
     if (extraSize > 0)
       emit(Machine.POPop, 0, 0, extraSize);
-    return null;
+    return 0;
   }
 
-  public Object visitSequentialCommand(SequentialCommand ast, Object o) {
-    ast.C1.visit(this, o);
-    ast.C2.visit(this, o);
-    return null;
+  public int visitSequentialCommand(SequentialCommand ast, Frame frame) {
+    for (int i = 0; i < ast.CS.length; i++)
+      ast.CS[i].visit(this, frame);
+    return 0;
   }
 
-  public Object visitWhileCommand(WhileCommand ast, Object o) {
-    Frame frame = (Frame) o;
-    int jumpAddr, loopAddr;
+  public int visitWhileCommand(WhileCommand ast, Frame frame) {
+    encodeLoop(ast.E, ast.C, frame, Machine.trueRep, true);
+    return 0;
+  }
 
-    jumpAddr = nextInstrAddr;
-    emit(Machine.JUMPop, 0, Machine.CBr, 0);
+  public int visitUntilCommand(UntilCommand ast, Frame frame) {
+    encodeLoop(ast.E, ast.C, frame, Machine.falseRep, true);
+    return 0;
+  }
+
+  public int visitDoWhileCommand(DoWhileCommand ast, Frame frame) {
+    encodeLoop(ast.E, ast.C, frame, Machine.trueRep, false);
+    return 0;
+  }
+
+  public int visitDoUntilCommand(DoUntilCommand ast, Frame frame) {
+    encodeLoop(ast.E, ast.C, frame, Machine.falseRep, false);
+    return 0;
+  }
+
+  // Generates code to execute C for as long as E has the given value,
+  // testing E before C is first executed iff testedFirst.
+  // The phrases of the loop that are invariant are evaluated before it,
+  // into slots at the top of the frame, and loaded from there within it.
+  // A loop tested first is then entered through a copy of its test, so
+  // that the invariants are evaluated only if the loop is entered.
+
+  private void encodeLoop (Expression E, Command C, Frame frame, int value,
+                           boolean testedFirst) {
+    int startAddr = nextInstrAddr, jumpAddr = 0, loopAddr;
+    ArrayList<Integer> exitAddrs = null;
+    ArrayList<AST> invariants;
+    Frame loopFrame;
+    InliningRecord saved = saveInlining();
+
+    if (testedFirst)
+      exitAddrs = encodeJumps(E, frame, (value == Machine.trueRep)
+                                        ? Machine.falseRep : Machine.trueRep);
+    invariants = encodeInvariants(E, C, frame, testedFirst);
+    loopFrame = new Frame(frame, invariants.size() * Machine.integerSize);
+    if (invariants.isEmpty()) {
+      nextInstrAddr = startAddr;
+      restoreInlining(saved);
+      if (testedFirst) {
+        jumpAddr = nextInstrAddr;
+        emit(Machine.JUMPop, 0, Machine.CBr, 0);
+      }
+    }
     loopAddr = nextInstrAddr;
-    ast.C.visit(this, frame);
-    patch(jumpAddr, nextInstrAddr);
-    ast.E.visit(this, frame);
-    emit(Machine.JUMPIFop, Machine.trueRep, Machine.CBr, loopAddr);
-    return null;
+    C.visit(this, loopFrame);
+    if (testedFirst && invariants.isEmpty())
+      patch(jumpAddr, nextInstrAddr);
+    patch(encodeJumps(E, loopFrame, value), loopAddr);
+    if (!invariants.isEmpty()) {
+      emit(Machine.POPop, 0, 0, invariants.size() * Machine.integerSize);
+      if (testedFirst)
+        patch(exitAddrs, nextInstrAddr);
+      for (int i = 0; i < invariants.size(); i++)
+        hoisted.remove(invariants.get(i));
+    }
+  }
+
+  // Generates code to evaluate each invariant phrase of the loop that is
+  // worth hoisting, into a slot of its own, and returns those phrases.
+  // A phrase is worth hoisting if it has a one-word value, that takes more
+  // than one instruction to compute; the value of a v-name is the index
+  // of its component, if it is indexed by a proper expression. The code of
+  // any other phrase is discarded.
+
+  private ArrayList<AST> encodeInvariants (Expression E, Command C,
+                                           Frame frame, boolean testedFirst) {
+    ArrayList<AST> phrases = invariantFinder.find(E, C, testedFirst);
+    ArrayList<AST> invariants = new ArrayList<AST>();
+
+    for (int i = 0; i < phrases.size(); i++) {
+      AST phrase = phrases.get(i);
+      int startAddr = nextInstrAddr, valSize;
+      int slot = frame.size + invariants.size() * Machine.integerSize;
+      if (hoisted.containsKey(phrase))
+        continue; // already hoisted out of an enclosing loop
+      valSize = phrase.visit(this, new Frame(frame.level, slot));
+      if (phrase instanceof Vname)
+        valSize = ((Vname) phrase).indexed ? Machine.integerSize : 0;
+      if (valSize != Machine.integerSize || nextInstrAddr - startAddr <= 1) {
+        nextInstrAddr = startAddr;
+        continue;
+      }
+      hoisted.put(phrase, new UnknownValue(valSize, frame.level, slot));
+      invariants.add(phrase);
+    }
+    return invariants;
+  }
+
+  // Generates code to fetch the value of a phrase hoisted out of an
+  // enclosing loop, and returns its size.
+
+  private int encodeHoisted (AST phrase, Frame frame) {
+    RuntimeEntity entity = hoisted.get(phrase);
+    emit(Machine.LOADop, entity.size,
+         displayRegister(frame.level, entity.level), entity.displacement);
+    return entity.size;
   }
 
 
   // Expressions
-  public Object visitArrayExpression(ArrayExpression ast, Object o) {
+  public int visitArrayExpression(ArrayExpression ast, Frame frame) {
     ast.type.visit(this, null);
-    return ast.AA.visit(this, o);
+    return ast.AA.visit(this, frame);
   }
 
-  public Object visitBinaryExpression(BinaryExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
-    int valSize1 = ((Integer) ast.E1.visit(this, frame)).intValue();
+  public int visitBinaryExpression(BinaryExpression ast, Frame frame) {
+    if (hoisted.containsKey(ast))
+      return encodeHoisted(ast, frame);
+    int valSize = ast.type.visit(this, null);
+    if (shortCircuiting && isConnective(ast.O)) {
+      encodeConnective(ast, frame);
+      return valSize;
+    }
+    int valSize1 = ast.E1.visit(this, frame);
     Frame frame1 = new Frame(frame, valSize1);
-    int valSize2 = ((Integer) ast.E2.visit(this, frame1)).intValue();
+    int valSize2 = ast.E2.visit(this, frame1);
     Frame frame2 = new Frame(frame.level, valSize1 + valSize2);
     ast.O.visit(this, frame2);
     return valSize;
   }
 
-  public Object visitCallExpression(CallExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
-    Integer argsSize = (Integer) ast.APS.visit(this, frame);
-    ast.I.visit(this, new Frame(frame.level, argsSize));
+  public int visitCallExpression(CallExpression ast, Frame frame) {
+    int valSize = ast.type.visit(this, null);
+    int argsSize = ast.APS.visit(this, frame);
+    if (inlined.containsKey(ast.I.decl))
+      encodeInline(ast, (Declaration) ast.I.decl, frame, argsSize);
+    else if (tailCalls.contains(ast) && !refersToFrame(ast.APS, frame))
+      encodeTailCall((Declaration) ast.I.decl, frame, argsSize);
+    else
+      ast.I.visit(this, new Frame(frame.level, argsSize));
     return valSize;
   }
 
-  public Object visitCharacterExpression(CharacterExpression ast,
-						Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
+  public int visitCharacterExpression(CharacterExpression ast,
+						Frame frame) {
+    int valSize = ast.type.visit(this, null);
     emit(Machine.LOADLop, 0, 0, ast.CL.spelling.charAt(1));
     return valSize;
   }
 
-  public Object visitEmptyExpression(EmptyExpression ast, Object o) {
-    return new Integer(0);
+  public int visitEmptyExpression(EmptyExpression ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitIfExpression(IfExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize;
-    int jumpifAddr, jumpAddr;
+  public int visitErrorExpression(ErrorExpression ast, Frame frame) {
+    return 0;
+  }
+
+
+  public int visitIfExpression(IfExpression ast, Frame frame) {
+    int valSize;
+    ArrayList<Integer> jumpifAddrs;
+    int jumpAddr;
 
     ast.type.visit(this, null);
-    ast.E1.visit(this, frame);
-    jumpifAddr = nextInstrAddr;
-    emit(Machine.JUMPIFop, Machine.falseRep, Machine.CBr, 0);
-    valSize = (Integer) ast.E2.visit(this, frame);
+    jumpifAddrs = encodeJumps(ast.E1, frame, Machine.falseRep);
+    valSize = ast.E2.visit(this, frame);
     jumpAddr = nextInstrAddr;
     emit(Machine.JUMPop, 0, Machine.CBr, 0);
-    patch(jumpifAddr, nextInstrAddr);
-    valSize = (Integer) ast.E3.visit(this, frame);
+    patch(jumpifAddrs, nextInstrAddr);
+    valSize = ast.E3.visit(this, frame);
     patch(jumpAddr, nextInstrAddr);
     return valSize;
   }
 
-  public Object visitIntegerExpression(IntegerExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
+  public int visitIntegerExpression(IntegerExpression ast, Frame frame) {
+    int valSize = ast.type.visit(this, null);
     emit(Machine.LOADLop, 0, 0, Integer.parseInt(ast.IL.spelling));
     return valSize;
   }
 
-  public Object visitLetExpression(LetExpression ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitLetExpression(LetExpression ast, Frame frame) {
     ast.type.visit(this, null);
-    int extraSize = ((Integer) ast.D.visit(this, frame)).intValue();
+    int extraSize = ast.D.visit(this, frame);
     Frame frame1 = new Frame(frame, extraSize);
-    Integer valSize = (Integer) ast.E.visit(this, frame1);
+    int valSize = ast.E.visit(this, frame1);
     if (extraSize > 0)
-      emit(Machine.POPop, valSize.intValue(), 0, extraSize);
+      emit(Machine.POPop, valSize, 0, extraSize);
     return valSize;
   }
 
-  public Object visitRecordExpression(RecordExpression ast, Object o){
+  public int visitRecordExpression(RecordExpression ast, Frame frame){
     ast.type.visit(this, null);
-    return ast.RA.visit(this, o);
+    return ast.RA.visit(this, frame);
   }
 
-  public Object visitUnaryExpression(UnaryExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
+  public int visitUnaryExpression(UnaryExpression ast, Frame frame) {
+    if (hoisted.containsKey(ast))
+      return encodeHoisted(ast, frame);
+    int valSize = ast.type.visit(this, null);
     ast.E.visit(this, frame);
-    ast.O.visit(this, new Frame(frame.level, valSize.intValue()));
+    ast.O.visit(this, new Frame(frame.level, valSize));
     return valSize;
   }
 
-  public Object visitVnameExpression(VnameExpression ast, Object o) {
-    Frame frame = (Frame) o;
-    Integer valSize = (Integer) ast.type.visit(this, null);
-    encodeFetch(ast.V, frame, valSize.intValue());
+  public int visitVnameExpression(VnameExpression ast, Frame frame) {
+    if (hoisted.containsKey(ast))
+      return encodeHoisted(ast, frame);
+    int valSize = ast.type.visit(this, null);
+    encodeFetch(ast.V, frame, valSize);
     return valSize;
   }
 
 
   // Declarations
-  public Object visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast,
-					       Object o){
-    return new Integer(0);
+  public int visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast,
+					       Frame frame){
+    return 0;
   }
 
-  public Object visitConstDeclaration(ConstDeclaration ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitConstDeclaration(ConstDeclaration ast, Frame frame) {
     int extraSize = 0;
 
     if (ast.E instanceof CharacterExpression) {
@@ -278,20 +531,30 @@ public final class Encoder implements Visitor {
         IntegerLiteral IL = ((IntegerExpression) ast.E).IL;
         ast.entity = new KnownValue(Machine.integerSize,
 				 Integer.parseInt(IL.spelling));
+    } else if (knownValue(ast.E) != null) {
+        // e.g. true or false, or another constant, once folded
+        RuntimeEntity value = knownValue(ast.E);
+        ast.entity = new KnownValue(value.size, value.displacement);
     } else {
-      int valSize = ((Integer) ast.E.visit(this, frame)).intValue();
+      int valSize = ast.E.visit(this, frame);
       ast.entity = new UnknownValue(valSize, frame.level, frame.size);
       extraSize = valSize;
     }
     writeTableDetails(ast);
-    return new Integer(extraSize);
+    return extraSize;
   }
 
-  public Object visitFuncDeclaration(FuncDeclaration ast, Object o) {
-    Frame frame = (Frame) o;
+  // A routine is first encoded out of line, which measures its body. If it
+  // turns out to be one that can be inlined, that code is then discarded,
+  // and each call encodes the body afresh (see encodeInline).
+  // A call of the routine by itself in tail position reuses its frame (see
+  // encodeTailCall).
+
+  public int visitFuncDeclaration(FuncDeclaration ast, Frame frame) {
     int jumpAddr = nextInstrAddr;
     int argsSize = 0, valSize = 0;
 
+    InliningRecord saved = saveInlining();
     emit(Machine.JUMPop, 0, Machine.CBr, 0);
     ast.entity = new KnownRoutine(Machine.closureSize, frame.level, nextInstrAddr);
     writeTableDetails(ast);
@@ -299,20 +562,25 @@ public final class Encoder implements Visitor {
       reporter.reportRestriction("can't nest routines more than 7 deep");
     else {
       Frame frame1 = new Frame(frame.level + 1, 0);
-      argsSize = ((Integer) ast.FPS.visit(this, frame1)).intValue();
+      argsSize = ast.FPS.visit(this, frame1);
       Frame frame2 = new Frame(frame.level + 1, Machine.linkDataSize);
-      valSize = ((Integer) ast.E.visit(this, frame2)).intValue();
+      findTailCalls(ast.E, ast);
+      valSize = ast.E.visit(this, frame2);
+      if (decideInlining(ast, nextInstrAddr - jumpAddr - 1, saved)) {
+        nextInstrAddr = jumpAddr;
+        return 0;
+      }
     }
     emit(Machine.RETURNop, valSize, 0, argsSize);
     patch(jumpAddr, nextInstrAddr);
-    return new Integer(0);
+    return 0;
   }
 
-  public Object visitProcDeclaration(ProcDeclaration ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitProcDeclaration(ProcDeclaration ast, Frame frame) {
     int jumpAddr = nextInstrAddr;
     int argsSize = 0;
 
+    InliningRecord saved = saveInlining();
     emit(Machine.JUMPop, 0, Machine.CBr, 0);
     ast.entity = new KnownRoutine (Machine.closureSize, frame.level,
                                 nextInstrAddr);
@@ -321,391 +589,347 @@ public final class Encoder implements Visitor {
       reporter.reportRestriction("can't nest routines so deeply");
     else {
       Frame frame1 = new Frame(frame.level + 1, 0);
-      argsSize = ((Integer) ast.FPS.visit(this, frame1)).intValue();
+      argsSize = ast.FPS.visit(this, frame1);
       Frame frame2 = new Frame(frame.level + 1, Machine.linkDataSize);
+      findTailCalls(ast.C, ast);
       ast.C.visit(this, frame2);
+      if (decideInlining(ast, nextInstrAddr - jumpAddr - 1, saved)) {
+        nextInstrAddr = jumpAddr;
+        return 0;
+      }
     }
     emit(Machine.RETURNop, 0, 0, argsSize);
     patch(jumpAddr, nextInstrAddr);
-    return new Integer(0);
+    return 0;
   }
 
-  public Object visitSequentialDeclaration(SequentialDeclaration ast, Object o) {
-    Frame frame = (Frame) o;
-    int extraSize1, extraSize2;
+  public int visitErrorDeclaration(ErrorDeclaration ast, Frame frame) {
+    return 0;
+  }
+
+  public int visitSequentialDeclaration(SequentialDeclaration ast, Frame frame) {
+    int extraSize = 0;
 
-    extraSize1 = ((Integer) ast.D1.visit(this, frame)).intValue();
-    Frame frame1 = new Frame (frame, extraSize1);
-    extraSize2 = ((Integer) ast.D2.visit(this, frame1)).intValue();
-    return new Integer(extraSize1 + extraSize2);
+    // Each declaration is elaborated in the frame extended by the ones
+    // before it.
+    for (int i = 0; i < ast.DS.length; i++) {
+      Frame frame1 = new Frame (frame, extraSize);
+      extraSize += ast.DS[i].visit(this, frame1);
+    }
+    return extraSize;
   }
 
-  public Object visitTypeDeclaration(TypeDeclaration ast, Object o) {
+  public int visitTypeDeclaration(TypeDeclaration ast, Frame frame) {
     // just to ensure the type's representation is decided
     ast.T.visit(this, null);
-    return new Integer(0);
+    return 0;
   }
 
-  public Object visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast,
-					      Object o) {
-    return new Integer(0);
+  public int visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast,
+					      Frame frame) {
+    return 0;
   }
 
-  public Object visitVarDeclaration(VarDeclaration ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitVarDeclaration(VarDeclaration ast, Frame frame) {
     int extraSize;
 
-    extraSize = ((Integer) ast.T.visit(this, null)).intValue();
+    extraSize = ast.T.visit(this, null);
     emit(Machine.PUSHop, 0, 0, extraSize);
     ast.entity = new KnownAddress(Machine.addressSize, frame.level, frame.size);
     writeTableDetails(ast);
-    return new Integer(extraSize);
+    return extraSize;
   }
 
 
   // Array Aggregates
-  public Object visitMultipleArrayAggregate(MultipleArrayAggregate ast,
-					    Object o) {
-    Frame frame = (Frame) o;
-    int elemSize = ((Integer) ast.E.visit(this, frame)).intValue();
+  public int visitMultipleArrayAggregate(MultipleArrayAggregate ast,
+					    Frame frame) {
+    int elemSize = ast.E.visit(this, frame);
     Frame frame1 = new Frame(frame, elemSize);
-    int arraySize = ((Integer) ast.AA.visit(this, frame1)).intValue();
-    return new Integer(elemSize + arraySize);
+    int arraySize = ast.AA.visit(this, frame1);
+    return elemSize + arraySize;
   }
 
-  public Object visitSingleArrayAggregate(SingleArrayAggregate ast, Object o) {
-    return ast.E.visit(this, o);
+  public int visitSingleArrayAggregate(SingleArrayAggregate ast, Frame frame) {
+    return ast.E.visit(this, frame);
   }
 
 
   // Record Aggregates
-  public Object visitMultipleRecordAggregate(MultipleRecordAggregate ast,
-					     Object o) {
-    Frame frame = (Frame) o;
-    int fieldSize = ((Integer) ast.E.visit(this, frame)).intValue();
+  public int visitMultipleRecordAggregate(MultipleRecordAggregate ast,
+					     Frame frame) {
+    int fieldSize = ast.E.visit(this, frame);
     Frame frame1 = new Frame (frame, fieldSize);
-    int recordSize = ((Integer) ast.RA.visit(this, frame1)).intValue();
-    return new Integer(fieldSize + recordSize);
+    int recordSize = ast.RA.visit(this, frame1);
+    return fieldSize + recordSize;
   }
 
-  public Object visitSingleRecordAggregate(SingleRecordAggregate ast,
-					   Object o) {
-    return ast.E.visit(this, o);
+  public int visitSingleRecordAggregate(SingleRecordAggregate ast,
+					   Frame frame) {
+    return ast.E.visit(this, frame);
   }
 
 
   // Formal Parameters
-  public Object visitConstFormalParameter(ConstFormalParameter ast, Object o) {
-    Frame frame = (Frame) o;
-    int valSize = ((Integer) ast.T.visit(this, null)).intValue();
+  public int visitConstFormalParameter(ConstFormalParameter ast, Frame frame) {
+    int valSize = ast.T.visit(this, null);
     ast.entity = new UnknownValue (valSize, frame.level, -frame.size - valSize);
     writeTableDetails(ast);
-    return new Integer(valSize);
+    return valSize;
   }
 
-  public Object visitFuncFormalParameter(FuncFormalParameter ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitFuncFormalParameter(FuncFormalParameter ast, Frame frame) {
     int argsSize = Machine.closureSize;
     ast.entity = new UnknownRoutine (Machine.closureSize, frame.level,
 				  -frame.size - argsSize);
     writeTableDetails(ast);
-    return new Integer(argsSize);
+    return argsSize;
   }
 
-  public Object visitProcFormalParameter(ProcFormalParameter ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitProcFormalParameter(ProcFormalParameter ast, Frame frame) {
     int argsSize = Machine.closureSize;
     ast.entity = new UnknownRoutine (Machine.closureSize, frame.level,
 				  -frame.size - argsSize);
     writeTableDetails(ast);
-    return new Integer(argsSize);
+    return argsSize;
   }
 
-  public Object visitVarFormalParameter(VarFormalParameter ast, Object o) {
-    Frame frame = (Frame) o;
+  public int visitVarFormalParameter(VarFormalParameter ast, Frame frame) {
     ast.T.visit(this, null);
     ast.entity = new UnknownAddress (Machine.addressSize, frame.level,
 				  -frame.size - Machine.addressSize);
     writeTableDetails(ast);
-    return new Integer(Machine.addressSize);
+    return Machine.addressSize;
   }
 
 
-  public Object visitEmptyFormalParameterSequence(
-	 EmptyFormalParameterSequence ast, Object o) {
-    return new Integer(0);
+  public int visitEmptyFormalParameterSequence(
+	 EmptyFormalParameterSequence ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitMultipleFormalParameterSequence(
- 	 MultipleFormalParameterSequence ast, Object o) {
-    Frame frame = (Frame) o;
-    int argsSize1 = ((Integer) ast.FPS.visit(this, frame)).intValue();
+  public int visitMultipleFormalParameterSequence(
+ 	 MultipleFormalParameterSequence ast, Frame frame) {
+    int argsSize1 = ast.FPS.visit(this, frame);
     Frame frame1 = new Frame(frame, argsSize1);
-    int argsSize2 = ((Integer) ast.FP.visit(this, frame1)).intValue();
-    return new Integer(argsSize1 + argsSize2);
+    int argsSize2 = ast.FP.visit(this, frame1);
+    return argsSize1 + argsSize2;
   }
 
-  public Object visitSingleFormalParameterSequence(
-	 SingleFormalParameterSequence ast, Object o) {
-    return ast.FP.visit (this, o);
+  public int visitSingleFormalParameterSequence(
+	 SingleFormalParameterSequence ast, Frame frame) {
+    return ast.FP.visit (this, frame);
   }
 
 
   // Actual Parameters
-  public Object visitConstActualParameter(ConstActualParameter ast, Object o) {
-    return ast.E.visit (this, o);
+  public int visitConstActualParameter(ConstActualParameter ast, Frame frame) {
+    return ast.E.visit (this, frame);
   }
 
-  public Object visitFuncActualParameter(FuncActualParameter ast, Object o) {
-    Frame frame = (Frame) o;
-    if (ast.I.decl.entity instanceof KnownRoutine) {
-      ObjectAddress address = ((KnownRoutine) ast.I.decl.entity).address;
-      // static link, code address
-      emit(Machine.LOADAop, 0, displayRegister(frame.level, address.level), 0);
-      emit(Machine.LOADAop, 0, Machine.CBr, address.displacement);
-    } else if (ast.I.decl.entity instanceof UnknownRoutine) {
-      ObjectAddress address = ((UnknownRoutine) ast.I.decl.entity).address;
-      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
-           address.level), address.displacement);
-    } else if (ast.I.decl.entity instanceof PrimitiveRoutine) {
-      int displacement = ((PrimitiveRoutine) ast.I.decl.entity).displacement;
-      // static link, code address
-      emit(Machine.LOADAop, 0, Machine.SBr, 0);
-      emit(Machine.LOADAop, 0, Machine.PBr, displacement);
-    }
-    return new Integer(Machine.closureSize);
+  public int visitFuncActualParameter(FuncActualParameter ast, Frame frame) {
+    encodeClosure(ast.I.decl.entity, frame);
+    return Machine.closureSize;
   }
 
-  public Object visitProcActualParameter(ProcActualParameter ast, Object o) {
-    Frame frame = (Frame) o;
-    if (ast.I.decl.entity instanceof KnownRoutine) {
-      ObjectAddress address = ((KnownRoutine) ast.I.decl.entity).address;
-      // static link, code address
-      emit(Machine.LOADAop, 0, displayRegister(frame.level, address.level), 0);
-      emit(Machine.LOADAop, 0, Machine.CBr, address.displacement);
-    } else if (ast.I.decl.entity instanceof UnknownRoutine) {
-      ObjectAddress address = ((UnknownRoutine) ast.I.decl.entity).address;
-      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
-           address.level), address.displacement);
-    } else if (ast.I.decl.entity instanceof PrimitiveRoutine) {
-      int displacement = ((PrimitiveRoutine) ast.I.decl.entity).displacement;
-      // static link, code address
-      emit(Machine.LOADAop, 0, Machine.SBr, 0);
-      emit(Machine.LOADAop, 0, Machine.PBr, displacement);
-    }
-    return new Integer(Machine.closureSize);
+  public int visitProcActualParameter(ProcActualParameter ast, Frame frame) {
+    encodeClosure(ast.I.decl.entity, frame);
+    return Machine.closureSize;
   }
 
-  public Object visitVarActualParameter(VarActualParameter ast, Object o) {
-    encodeFetchAddress(ast.V, (Frame) o);
-    return new Integer(Machine.addressSize);
+  public int visitVarActualParameter(VarActualParameter ast, Frame frame) {
+    encodeFetchAddress(ast.V, frame);
+    return Machine.addressSize;
   }
 
 
-  public Object visitEmptyActualParameterSequence(
-	 EmptyActualParameterSequence ast, Object o) {
-    return new Integer(0);
+  public int visitEmptyActualParameterSequence(
+	 EmptyActualParameterSequence ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitMultipleActualParameterSequence(
-	 MultipleActualParameterSequence ast, Object o) {
-    Frame frame = (Frame) o;
-    int argsSize1 = ((Integer) ast.AP.visit(this, frame)).intValue();
+  public int visitMultipleActualParameterSequence(
+	 MultipleActualParameterSequence ast, Frame frame) {
+    int argsSize1 = ast.AP.visit(this, frame);
     Frame frame1 = new Frame (frame, argsSize1);
-    int argsSize2 = ((Integer) ast.APS.visit(this, frame1)).intValue();
-    return new Integer(argsSize1 + argsSize2);
+    int argsSize2 = ast.APS.visit(this, frame1);
+    return argsSize1 + argsSize2;
   }
 
-  public Object visitSingleActualParameterSequence(
-	 SingleActualParameterSequence ast, Object o) {
-    return ast.AP.visit (this, o);
+  public int visitSingleActualParameterSequence(
+	 SingleActualParameterSequence ast, Frame frame) {
+    return ast.AP.visit (this, frame);
   }
 
 
   // Type Denoters
-  public Object visitAnyTypeDenoter(AnyTypeDenoter ast, Object o) {
-    return new Integer(0);
+  public int visitAnyTypeDenoter(AnyTypeDenoter ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitArrayTypeDenoter(ArrayTypeDenoter ast, Object o) {
+  public int visitArrayTypeDenoter(ArrayTypeDenoter ast, Frame frame) {
     int typeSize;
     if (ast.entity == null) {
-      int elemSize = ((Integer) ast.T.visit(this, null)).intValue();
+      int elemSize = ast.T.visit(this, null);
       typeSize = Integer.parseInt(ast.IL.spelling) * elemSize;
       ast.entity = new TypeRepresentation(typeSize);
       writeTableDetails(ast);
     } else
       typeSize = ast.entity.size;
-    return new Integer(typeSize);
+    return typeSize;
   }
 
-  public Object visitBoolTypeDenoter(BoolTypeDenoter ast, Object o) {
+  public int visitBoolTypeDenoter(BoolTypeDenoter ast, Frame frame) {
     if (ast.entity == null) {
       ast.entity = new TypeRepresentation(Machine.booleanSize);
       writeTableDetails(ast);
     }
-    return new Integer(Machine.booleanSize);
+    return Machine.booleanSize;
   }
 
-  public Object visitCharTypeDenoter(CharTypeDenoter ast, Object o) {
+  public int visitCharTypeDenoter(CharTypeDenoter ast, Frame frame) {
     if (ast.entity == null) {
       ast.entity = new TypeRepresentation(Machine.characterSize);
       writeTableDetails(ast);
     }
-    return new Integer(Machine.characterSize);
+    return Machine.characterSize;
   }
 
-  public Object visitErrorTypeDenoter(ErrorTypeDenoter ast, Object o) {
-    return new Integer(0);
+  public int visitErrorTypeDenoter(ErrorTypeDenoter ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitSimpleTypeDenoter(SimpleTypeDenoter ast,
-					   Object o) {
-    return new Integer(0);
+  public int visitSimpleTypeDenoter(SimpleTypeDenoter ast,
+					   Frame frame) {
+    return 0;
   }
 
-  public Object visitIntTypeDenoter(IntTypeDenoter ast, Object o) {
+  public int visitIntTypeDenoter(IntTypeDenoter ast, Frame frame) {
     if (ast.entity == null) {
       ast.entity = new TypeRepresentation(Machine.integerSize);
       writeTableDetails(ast);
     }
-    return new Integer(Machine.integerSize);
+    return Machine.integerSize;
   }
 
-  public Object visitRecordTypeDenoter(RecordTypeDenoter ast, Object o) {
+  public int visitRecordTypeDenoter(RecordTypeDenoter ast, Frame frame) {
     int typeSize;
     if (ast.entity == null) {
-      typeSize = ((Integer) ast.FT.visit(this, new Integer(0))).intValue();
+      typeSize = ast.FT.visit(this, new Frame(0, 0));
       ast.entity = new TypeRepresentation(typeSize);
       writeTableDetails(ast);
     } else
       typeSize = ast.entity.size;
-    return new Integer(typeSize);
+    return typeSize;
   }
 
 
-  public Object visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast,
-					      Object o) {
-    int offset = ((Integer) o).intValue();
+  // Fields are laid out like a frame: the size of the frame is the offset
+  // of the next field.
+
+  public int visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast,
+					      Frame frame) {
+    int offset = frame.size;
     int fieldSize;
 
     if (ast.entity == null) {
-      fieldSize = ((Integer) ast.T.visit(this, null)).intValue();
+      fieldSize = ast.T.visit(this, null);
       ast.entity = new Field (fieldSize, offset);
       writeTableDetails(ast);
     } else
       fieldSize = ast.entity.size;
 
-    Integer offset1 = new Integer(offset + fieldSize);
-    int recSize = ((Integer) ast.FT.visit(this, offset1)).intValue();
-    return new Integer(fieldSize + recSize);
+    int recSize = ast.FT.visit(this, new Frame(frame, fieldSize));
+    return fieldSize + recSize;
   }
 
-  public Object visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast,
-					    Object o) {
-    int offset = ((Integer) o).intValue();
+  public int visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast,
+					    Frame frame) {
+    int offset = frame.size;
     int fieldSize;
 
     if (ast.entity == null) {
-      fieldSize = ((Integer) ast.T.visit(this, null)).intValue();
+      fieldSize = ast.T.visit(this, null);
       ast.entity = new Field (fieldSize, offset);
       writeTableDetails(ast);
     } else
       fieldSize = ast.entity.size;
 
-    return new Integer(fieldSize);
+    return fieldSize;
   }
 
 
   // Literals, Identifiers and Operators
-  public Object visitCharacterLiteral(CharacterLiteral ast, Object o) {
-    return null;
-  }
-
-  public Object visitIdentifier(Identifier ast, Object o) {
-    Frame frame = (Frame) o;
-    if (ast.decl.entity instanceof KnownRoutine) {
-      ObjectAddress address = ((KnownRoutine) ast.decl.entity).address;
-      emit(Machine.CALLop, displayRegister(frame.level, address.level),
-	   Machine.CBr, address.displacement);
-    } else if (ast.decl.entity instanceof UnknownRoutine) {
-      ObjectAddress address = ((UnknownRoutine) ast.decl.entity).address;
-      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
-           address.level), address.displacement);
-      emit(Machine.CALLIop, 0, 0, 0);
-    } else if (ast.decl.entity instanceof PrimitiveRoutine) {
-      int displacement = ((PrimitiveRoutine) ast.decl.entity).displacement;
-      if (displacement != Machine.idDisplacement)
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, displacement);
-    } else if (ast.decl.entity instanceof EqualityRoutine) { // "=" or "\="
-      int displacement = ((EqualityRoutine) ast.decl.entity).displacement;
-      emit(Machine.LOADLop, 0, 0, frame.size / 2);
-      emit(Machine.CALLop, Machine.SBr, Machine.PBr, displacement);
-    }
-    return null;
+  public int visitCharacterLiteral(CharacterLiteral ast, Frame frame) {
+    return 0;
   }
 
-  public Object visitIntegerLiteral(IntegerLiteral ast, Object o) {
-    return null;
+  public int visitIdentifier(Identifier ast, Frame frame) {
+    encodeCall(ast.decl.entity, frame);
+    return 0;
   }
 
-  public Object visitOperator(Operator ast, Object o) {
-    Frame frame = (Frame) o;
-    if (ast.decl.entity instanceof KnownRoutine) {
-      ObjectAddress address = ((KnownRoutine) ast.decl.entity).address;
-      emit(Machine.CALLop, displayRegister (frame.level, address.level),
-	   Machine.CBr, address.displacement);
-    } else if (ast.decl.entity instanceof UnknownRoutine) {
-      ObjectAddress address = ((UnknownRoutine) ast.decl.entity).address;
-      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
-           address.level), address.displacement);
-      emit(Machine.CALLIop, 0, 0, 0);
-    } else if (ast.decl.entity instanceof PrimitiveRoutine) {
-      int displacement = ((PrimitiveRoutine) ast.decl.entity).displacement;
-      if (displacement != Machine.idDisplacement)
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, displacement);
-    } else if (ast.decl.entity instanceof EqualityRoutine) { // "=" or "\="
-      int displacement = ((EqualityRoutine) ast.decl.entity).displacement;
-      emit(Machine.LOADLop, 0, 0, frame.size / 2);
-      emit(Machine.CALLop, Machine.SBr, Machine.PBr, displacement);
-    }
-    return null;
+  public int visitIntegerLiteral(IntegerLiteral ast, Frame frame) {
+    return 0;
+  }
+
+  public int visitOperator(Operator ast, Frame frame) {
+    encodeCall(ast.decl.entity, frame);
+    return 0;
   }
 
 
   // Value-or-variable names
-  public Object visitDotVname(DotVname ast, Object o) {
-    Frame frame = (Frame) o;
-    RuntimeEntity baseObject = (RuntimeEntity) ast.V.visit(this, frame);
-    ast.offset = ast.V.offset + ((Field) ast.I.decl.entity).fieldOffset;
+  // Visiting a v-name decides its offset from its base object, generating
+  // code to compute any index, and decorates it with the entity of its
+  // base object.
+
+  // A hoisted v-name keeps the entity and offset found when it was hoisted,
+  // and only its index is loaded.
+
+  public int visitDotVname(DotVname ast, Frame frame) {
+    if (hoisted.containsKey(ast)) {
+      encodeHoisted(ast, frame);
+      return 0;
+    }
+    ast.V.visit(this, frame);
+    ast.entity = ast.V.entity;
+    ast.offset = ast.V.offset + ast.I.decl.entity.displacement;
                    // I.decl points to the appropriate record field
     ast.indexed = ast.V.indexed;
-    return baseObject;
+    return 0;
   }
 
-  public Object visitSimpleVname(SimpleVname ast, Object o) {
+  public int visitSimpleVname(SimpleVname ast, Frame frame) {
+    ast.entity = ast.I.decl.entity;
     ast.offset = 0;
     ast.indexed = false;
-    return ast.I.decl.entity;
+    return 0;
   }
 
-  public Object visitSubscriptVname(SubscriptVname ast, Object o) {
-    Frame frame = (Frame) o;
-    RuntimeEntity baseObject;
+  public int visitSubscriptVname(SubscriptVname ast, Frame frame) {
     int elemSize, indexSize;
 
-    baseObject = (RuntimeEntity) ast.V.visit(this, frame);
+    if (hoisted.containsKey(ast)) {
+      encodeHoisted(ast, frame);
+      return 0;
+    }
+    ast.V.visit(this, frame);
+    ast.entity = ast.V.entity;
     ast.offset = ast.V.offset;
     ast.indexed = ast.V.indexed;
-    elemSize = ((Integer) ast.type.visit(this, null)).intValue();
+    elemSize = ast.type.visit(this, null);
     if (ast.E instanceof IntegerExpression) {
       IntegerLiteral IL = ((IntegerExpression) ast.E).IL;
       ast.offset = ast.offset + Integer.parseInt(IL.spelling) * elemSize;
+    } else if (knownValue(ast.E) != null) {
+      // e.g. the control variable of an unrolled loop
+      ast.offset = ast.offset + knownValue(ast.E).displacement * elemSize;
     } else {
       // v-name is indexed by a proper expression, not a literal
       if (ast.indexed)
         frame.size = frame.size + Machine.integerSize;
-      indexSize = ((Integer) ast.E.visit(this, frame)).intValue();
+      indexSize = ast.E.visit(this, frame);
       if (elemSize != 1) {
         emit(Machine.LOADLop, 0, 0, elemSize);
         emit(Machine.CALLop, Machine.SBr, Machine.PBr,
@@ -716,28 +940,84 @@ public final class Encoder implements Visitor {
       else
         ast.indexed = true;
     }
-    return baseObject;
+    return 0;
   }
 
 
   // Programs
-  public Object visitProgram(Program ast, Object o) {
-    return ast.C.visit(this, o);
+  public int visitProgram(Program ast, Frame frame) {
+    return ast.C.visit(this, frame);
   }
 
-  public Encoder (ErrorReporter reporter) {
-    this.reporter = reporter;
+  public Encoder (CompilationContext context) {
+    this(context, false, DEFAULT_UNROLL_FACTOR, DEFAULT_INLINE_BUDGET);
+  }
+
+  // If shortCircuiting is true, the right operand of /\ or \/ is evaluated
+  // only when the left operand does not already decide the result.
+  // A for loop with known bounds is unrolled unrollFactor times, if at
+  // all; a factor of 1 leaves every loop as it is.
+  // A routine whose body takes at most inlineBudget instructions is
+  // inlined, if it can be; a budget of 0 inlines nothing.
+
+  public Encoder (CompilationContext context, boolean shortCircuiting,
+                  int unrollFactor, int inlineBudget) {
+    this.reporter = context.reporter;
+    this.code = context.code;
+    this.shortCircuiting = shortCircuiting;
+    this.unrollFactor = unrollFactor;
+    this.inlineBudget = inlineBudget;
+    invariantFinder = new LoopInvariantFinder(context, shortCircuiting);
     nextInstrAddr = Machine.CB;
-    elaborateStdEnvironment();
+  }
+
+  // Used only to elaborate the shared standard environment.
+
+  private Encoder () {
   }
 
   private ErrorReporter reporter;
+  private boolean shortCircuiting;
+  private int unrollFactor;
+  private int inlineBudget;
+  private LoopInvariantFinder invariantFinder;
+
+  // The calls among the routines of the program, or null if no routine is
+  // to be inlined.
+  private CallGraph callGraph;
+
+  // The routines declared so far, in order, each with the reason it was
+  // not inlined, or null if it was.
+  private LinkedHashMap<Declaration, String> inliningDecisions =
+      new LinkedHashMap<Declaration, String>();
+
+  // The inlined routines, each with the calls at which it was inlined.
+  private IdentityHashMap<Declaration, Set<AST>> inlined =
+      new IdentityHashMap<Declaration, Set<AST>>();
+
+  // The calls of routines by themselves, in tail position.
+  private Set<AST> tailCalls =
+      Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+
+  // The phrases hoisted out of the loops being encoded, with the entities
+  // of the slots that hold their values.
+  private IdentityHashMap<AST, RuntimeEntity> hoisted =
+      new IdentityHashMap<AST, RuntimeEntity>();
+
+  public final static int DEFAULT_UNROLL_FACTOR = 4;
+
+  public final static int DEFAULT_INLINE_BUDGET = 16;
+
+  // The most instructions that a loop may take once fully unrolled.
+  private final static int unrollLimit = 64;
 
   // Generates code to run a program.
   // showingTable is true iff entity description details
   // are to be displayed.
   public final void encodeRun (Program theAST, boolean showingTable) {
     tableDetailsReqd = showingTable;
+    if (inlineBudget > 0)
+      callGraph = new CallGraph(theAST);
     //startCodeGeneration();
     theAST.visit(this, new Frame (0, 0));
     emit(Machine.HALTop, 0, 0, 0);
@@ -749,7 +1029,7 @@ public final class Encoder implements Visitor {
 
     if (constDeclaration instanceof ConstDeclaration) {
       ConstDeclaration decl = (ConstDeclaration) constDeclaration;
-      int typeSize = ((Integer) decl.E.type.visit(this, null)).intValue();
+      int typeSize = decl.E.type.visit(this, null);
       decl.entity = new KnownValue(typeSize, value);
       writeTableDetails(constDeclaration);
     }
@@ -774,35 +1054,108 @@ public final class Encoder implements Visitor {
     writeTableDetails(routineDeclaration);
   }
 
-  private final void elaborateStdEnvironment() {
-    tableDetailsReqd = false;
-    elaborateStdConst(StdEnvironment.falseDecl, Machine.falseRep);
-    elaborateStdConst(StdEnvironment.trueDecl, Machine.trueRep);
-    elaborateStdPrimRoutine(StdEnvironment.notDecl, Machine.notDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.andDecl, Machine.andDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.orDecl, Machine.orDisplacement);
-    elaborateStdConst(StdEnvironment.maxintDecl, Machine.maxintRep);
-    elaborateStdPrimRoutine(StdEnvironment.addDecl, Machine.addDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.subtractDecl, Machine.subDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.multiplyDecl, Machine.multDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.divideDecl, Machine.divDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.moduloDecl, Machine.modDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.lessDecl, Machine.ltDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.notgreaterDecl, Machine.leDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.greaterDecl, Machine.gtDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.notlessDecl, Machine.geDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.chrDecl, Machine.idDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.ordDecl, Machine.idDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.eolDecl, Machine.eolDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.eofDecl, Machine.eofDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.getDecl, Machine.getDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.putDecl, Machine.putDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.getintDecl, Machine.getintDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.putintDecl, Machine.putintDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.geteolDecl, Machine.geteolDisplacement);
-    elaborateStdPrimRoutine(StdEnvironment.puteolDecl, Machine.puteolDisplacement);
-    elaborateStdEqRoutine(StdEnvironment.equalDecl, Machine.eqDisplacement);
-    elaborateStdEqRoutine(StdEnvironment.unequalDecl, Machine.neDisplacement);
+  // Decides the run-time entities of the given standard environment, and
+  // the representations of its types, so that no compilation need decide
+  // them again.
+
+  public static void elaborateStdEnvironment (StdEnvironment std) {
+    Encoder encoder = new Encoder();
+    encoder.elaborateStdConst(std.falseDecl, Machine.falseRep);
+    encoder.elaborateStdConst(std.trueDecl, Machine.trueRep);
+    encoder.elaborateStdPrimRoutine(std.notDecl, Machine.notDisplacement);
+    encoder.elaborateStdPrimRoutine(std.andDecl, Machine.andDisplacement);
+    encoder.elaborateStdPrimRoutine(std.orDecl, Machine.orDisplacement);
+    encoder.elaborateStdConst(std.maxintDecl, Machine.maxintRep);
+    encoder.elaborateStdPrimRoutine(std.addDecl, Machine.addDisplacement);
+    encoder.elaborateStdPrimRoutine(std.subtractDecl, Machine.subDisplacement);
+    encoder.elaborateStdPrimRoutine(std.multiplyDecl, Machine.multDisplacement);
+    encoder.elaborateStdPrimRoutine(std.divideDecl, Machine.divDisplacement);
+    encoder.elaborateStdPrimRoutine(std.moduloDecl, Machine.modDisplacement);
+    encoder.elaborateStdPrimRoutine(std.lessDecl, Machine.ltDisplacement);
+    encoder.elaborateStdPrimRoutine(std.notgreaterDecl, Machine.leDisplacement);
+    encoder.elaborateStdPrimRoutine(std.greaterDecl, Machine.gtDisplacement);
+    encoder.elaborateStdPrimRoutine(std.notlessDecl, Machine.geDisplacement);
+    encoder.elaborateStdPrimRoutine(std.chrDecl, Machine.idDisplacement);
+    encoder.elaborateStdPrimRoutine(std.ordDecl, Machine.idDisplacement);
+    encoder.elaborateStdPrimRoutine(std.eolDecl, Machine.eolDisplacement);
+    encoder.elaborateStdPrimRoutine(std.eofDecl, Machine.eofDisplacement);
+    encoder.elaborateStdPrimRoutine(std.getDecl, Machine.getDisplacement);
+    encoder.elaborateStdPrimRoutine(std.putDecl, Machine.putDisplacement);
+    encoder.elaborateStdPrimRoutine(std.getintDecl, Machine.getintDisplacement);
+    encoder.elaborateStdPrimRoutine(std.putintDecl, Machine.putintDisplacement);
+    encoder.elaborateStdPrimRoutine(std.geteolDecl, Machine.geteolDisplacement);
+    encoder.elaborateStdPrimRoutine(std.puteolDecl, Machine.puteolDisplacement);
+    encoder.elaborateStdEqRoutine(std.equalDecl, Machine.eqDisplacement);
+    encoder.elaborateStdEqRoutine(std.unequalDecl, Machine.neDisplacement);
+    std.booleanType.visit(encoder, null);
+    std.charType.visit(encoder, null);
+    std.integerType.visit(encoder, null);
+  }
+
+  // Describes, one line each, whether and where each routine of the program
+  // was inlined.
+
+  public ArrayList<String> describeInlining() {
+    ArrayList<String> lines = new ArrayList<String>();
+    for (Declaration decl : inliningDecisions.keySet()) {
+      String line;
+      if (decl instanceof FuncDeclaration)
+        line = "Function " + ((FuncDeclaration) decl).I.spelling;
+      else
+        line = "Procedure " + ((ProcDeclaration) decl).I.spelling;
+      if (inlined.containsKey(decl)) {
+        int calls = inlined.get(decl).size();
+        line = line + " inlined at " + calls + (calls == 1 ? " call." : " calls.");
+      } else
+        line = line + " not inlined: " + inliningDecisions.get(decl) + ".";
+      lines.add(line);
+    }
+    return lines;
+  }
+
+  // The inlining recorded at some point of the encoding. Code that is
+  // generated only to be discarded may record inlining that the object
+  // program does not contain, so the record is saved before any such code
+  // and restored after it.
+
+  private final static class InliningRecord {
+
+    final LinkedHashMap<Declaration, String> decisions;
+    final IdentityHashMap<Declaration, Set<AST>> inlined;
+
+    InliningRecord (LinkedHashMap<Declaration, String> decisions,
+                    IdentityHashMap<Declaration, Set<AST>> inlined) {
+      this.decisions = new LinkedHashMap<Declaration, String>(decisions);
+      this.inlined = new IdentityHashMap<Declaration, Set<AST>>();
+      for (Declaration decl : inlined.keySet()) {
+        Set<AST> calls =
+            Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+        calls.addAll(inlined.get(decl));
+        this.inlined.put(decl, calls);
+      }
+    }
+  }
+
+  private InliningRecord saveInlining () {
+    return new InliningRecord(inliningDecisions, inlined);
+  }
+
+  // The record may be restored more than once, so it is copied back.
+
+  private void restoreInlining (InliningRecord saved) {
+    InliningRecord copy = new InliningRecord(saved.decisions, saved.inlined);
+    inliningDecisions = copy.decisions;
+    inlined = copy.inlined;
+  }
+
+  // Improves the object program with the peephole optimizer, returning the
+  // number of instructions removed.
+
+  public int optimizeObjectProgram() {
+    int size = new PeepholeOptimizer().optimize(code, nextInstrAddr);
+    int removed = nextInstrAddr - size;
+    nextInstrAddr = size;
+    return removed;
   }
 
   // Saves the object program in the named file.
@@ -819,7 +1172,7 @@ public final class Encoder implements Visitor {
 
       addr = Machine.CB;
       for (addr = Machine.CB; addr < nextInstrAddr; addr++)
-        Machine.code[addr].write(objectStream);
+        code[addr].write(objectStream);
       objectFile.close();
     } catch (FileNotFoundException s) {
       System.err.println ("Error opening object file: " + s);
@@ -836,9 +1189,11 @@ public final class Encoder implements Visitor {
   // OBJECT CODE
 
   // Implementation notes:
-  // Object code is generated directly into the TAM Code Store, starting at CB.
+  // Object code is generated into the code buffer of the compilation,
+  // starting at CB, as it would be laid out in the TAM Code Store.
   // The address of the next instruction is held in nextInstrAddr.
 
+  private Instruction[] code;
   private int nextInstrAddr;
 
   // Appends an instruction, with the given fields, to the object code.
@@ -855,14 +1210,94 @@ public final class Encoder implements Visitor {
     if (nextInstrAddr == Machine.PB)
       reporter.reportRestriction("too many instructions for code segment");
     else {
-        Machine.code[nextInstrAddr] = nextInstr;
+        code[nextInstrAddr] = nextInstr;
         nextInstrAddr = nextInstrAddr + 1;
     }
   }
 
   // Patches the d-field of the instruction at address addr.
   private void patch (int addr, int d) {
-    Machine.code[addr].d = d;
+    code[addr].d = d;
+  }
+
+  // Patches the d-fields of the instructions at all the given addresses.
+  private void patch (ArrayList<Integer> addrs, int d) {
+    for (int i = 0; i < addrs.size(); i++)
+      patch(addrs.get(i).intValue(), d);
+  }
+
+  // CONDITIONS
+
+  // Generates code to evaluate a boolean expression and jump if its value
+  // is the given one, falling through otherwise. Returns the addresses of
+  // the jumps, whose targets are left for the caller to patch.
+  // When short-circuiting, /\, \/ and \ are compiled into the jumps
+  // themselves, rather than evaluated.
+
+  private ArrayList<Integer> encodeJumps (Expression E, Frame frame, int value) {
+    ArrayList<Integer> jumpAddrs;
+
+    if (shortCircuiting && !hoisted.containsKey(E)
+        && E instanceof BinaryExpression
+        && isConnective(((BinaryExpression) E).O)) {
+      BinaryExpression bE = (BinaryExpression) E;
+      int decider = decidingValue(bE.O);
+      if (value == decider) {
+        // either operand having this value decides the result
+        jumpAddrs = encodeJumps(bE.E1, frame, value);
+        jumpAddrs.addAll(encodeJumps(bE.E2, frame, value));
+      } else {
+        // the result has this value only if the right operand does, and
+        // the right operand is reached only if the left doesn't decide
+        ArrayList<Integer> decidedAddrs = encodeJumps(bE.E1, frame, decider);
+        jumpAddrs = encodeJumps(bE.E2, frame, value);
+        patch(decidedAddrs, nextInstrAddr);
+      }
+    } else if (shortCircuiting && !hoisted.containsKey(E)
+               && E instanceof UnaryExpression
+               && isPrimitive(((UnaryExpression) E).O, Machine.notDisplacement)) {
+      jumpAddrs = encodeJumps(((UnaryExpression) E).E, frame,
+          (value == Machine.trueRep) ? Machine.falseRep : Machine.trueRep);
+    } else {
+      E.visit(this, frame);
+      jumpAddrs = new ArrayList<Integer>();
+      jumpAddrs.add(Integer.valueOf(nextInstrAddr));
+      emit(Machine.JUMPIFop, value, Machine.CBr, 0);
+    }
+    return jumpAddrs;
+  }
+
+  // Generates code to push the value of a /\ or \/ expression, evaluating
+  // its right operand only if its left operand does not decide the result.
+
+  private void encodeConnective (BinaryExpression ast, Frame frame) {
+    int decider = decidingValue(ast.O);
+    ArrayList<Integer> decidedAddrs = encodeJumps(ast.E1, frame, decider);
+    ast.E2.visit(this, frame);
+    int jumpAddr = nextInstrAddr;
+    emit(Machine.JUMPop, 0, Machine.CBr, 0);
+    patch(decidedAddrs, nextInstrAddr);
+    emit(Machine.LOADLop, 0, 0, decider);
+    patch(jumpAddr, nextInstrAddr);
+  }
+
+  private static boolean isPrimitive (Operator O, int displacement) {
+    RuntimeEntity entity = O.decl.entity;
+    return entity.access == Access.PRIMITIVE_ROUTINE
+        && entity.displacement == displacement;
+  }
+
+  // Returns true iff the operator is the standard /\ or \/.
+  private static boolean isConnective (Operator O) {
+    return isPrimitive(O, Machine.andDisplacement)
+        || isPrimitive(O, Machine.orDisplacement);
+  }
+
+  // Returns the value of either operand of /\ or \/ that alone decides
+  // the result: false for /\, true for \/.
+  private static int decidingValue (Operator O) {
+    return isPrimitive(O, Machine.andDisplacement) ? Machine.falseRep
+                                                   : Machine.trueRep;
   }
 
   // DATA REPRESENTATION
@@ -873,6 +1308,31 @@ public final class Encoder implements Visitor {
       // since the character literal is of the form 'x'}
   }
 
+  // Returns the run-time entity of the constant named by an expression, if
+  // the expression is nothing but a constant whose value is known, otherwise
+  // null.
+  private static RuntimeEntity knownValue (Expression E) {
+    if (!(E instanceof VnameExpression)
+        || !(((VnameExpression) E).V instanceof SimpleVname))
+      return null;
+    RuntimeEntity entity = ((SimpleVname) ((VnameExpression) E).V).I.decl.entity;
+    return (entity != null && entity.access == Access.KNOWN_VALUE) ? entity : null;
+  }
+
+  // Returns the value of an integer expression that is a literal or a
+  // constant whose value is known, otherwise null.
+  private static Integer knownInteger (Expression E) {
+    if (E instanceof IntegerExpression) {
+      try {
+        return Integer.valueOf(((IntegerExpression) E).IL.spelling);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    RuntimeEntity entity = knownValue(E);
+    return (entity == null) ? null : Integer.valueOf(entity.displacement);
+  }
+
   // REGISTERS
 
   // Returns the register number appropriate for object code at currentLevel
@@ -897,34 +1357,31 @@ public final class Encoder implements Visitor {
 
   private void encodeStore(Vname V, Frame frame, int valSize) {
 
-    RuntimeEntity baseObject = (RuntimeEntity) V.visit(this, frame);
+    V.visit(this, frame);
+    RuntimeEntity baseObject = V.entity;
     // If indexed = true, code will have been generated to load an index value.
     if (valSize > 255) {
       reporter.reportRestriction("can't store values larger than 255 words");
       valSize = 255; // to allow code generation to continue
     }
-    if (baseObject instanceof KnownAddress) {
-      ObjectAddress address = ((KnownAddress) baseObject).address;
+    switch (baseObject.access) {
+    case KNOWN_ADDRESS:
       if (V.indexed) {
-        emit(Machine.LOADAop, 0, displayRegister(frame.level, address.level),
-             address.displacement + V.offset);
+        emit(Machine.LOADAop, 0, displayRegister(frame.level, baseObject.level),
+             baseObject.displacement + V.offset);
         emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
         emit(Machine.STOREIop, valSize, 0, 0);
       } else {
         emit(Machine.STOREop, valSize, displayRegister(frame.level,
-	     address.level), address.displacement + V.offset);
-      }
-    } else if (baseObject instanceof UnknownAddress) {
-      ObjectAddress address = ((UnknownAddress) baseObject).address;
-      emit(Machine.LOADop, Machine.addressSize, displayRegister(frame.level,
-           address.level), address.displacement);
-      if (V.indexed)
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-      if (V.offset != 0) {
-        emit(Machine.LOADLop, 0, 0, V.offset);
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
+	     baseObject.level), baseObject.displacement + V.offset);
       }
+      break;
+    case UNKNOWN_ADDRESS:
+      encodeIndirection(V, frame, baseObject);
       emit(Machine.STOREIop, valSize, 0, 0);
+      break;
+    default:
+      break;
     }
   }
 
@@ -937,40 +1394,35 @@ public final class Encoder implements Visitor {
 
   private void encodeFetch(Vname V, Frame frame, int valSize) {
 
-    RuntimeEntity baseObject = (RuntimeEntity) V.visit(this, frame);
+    V.visit(this, frame);
+    RuntimeEntity baseObject = V.entity;
     // If indexed = true, code will have been generated to load an index value.
     if (valSize > 255) {
       reporter.reportRestriction("can't load values larger than 255 words");
       valSize = 255; // to allow code generation to continue
     }
-    if (baseObject instanceof KnownValue) {
+    switch (baseObject.access) {
+    case KNOWN_VALUE:
       // presumably offset = 0 and indexed = false
-      int value = ((KnownValue) baseObject).value;
-      emit(Machine.LOADLop, 0, 0, value);
-    } else if ((baseObject instanceof UnknownValue) ||
-               (baseObject instanceof KnownAddress)) {
-      ObjectAddress address = (baseObject instanceof UnknownValue) ?
-                              ((UnknownValue) baseObject).address :
-                              ((KnownAddress) baseObject).address;
+      emit(Machine.LOADLop, 0, 0, baseObject.displacement);
+      break;
+    case UNKNOWN_VALUE:
+    case KNOWN_ADDRESS:
       if (V.indexed) {
-        emit(Machine.LOADAop, 0, displayRegister(frame.level, address.level),
-             address.displacement + V.offset);
+        emit(Machine.LOADAop, 0, displayRegister(frame.level, baseObject.level),
+             baseObject.displacement + V.offset);
         emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
         emit(Machine.LOADIop, valSize, 0, 0);
       } else
         emit(Machine.LOADop, valSize, displayRegister(frame.level,
-	     address.level), address.displacement + V.offset);
-    } else if (baseObject instanceof UnknownAddress) {
-      ObjectAddress address = ((UnknownAddress) baseObject).address;
-      emit(Machine.LOADop, Machine.addressSize, displayRegister(frame.level,
-           address.level), address.displacement);
-      if (V.indexed)
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-      if (V.offset != 0) {
-        emit(Machine.LOADLop, 0, 0, V.offset);
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-      }
+	     baseObject.level), baseObject.displacement + V.offset);
+      break;
+    case UNKNOWN_ADDRESS:
+      encodeIndirection(V, frame, baseObject);
       emit(Machine.LOADIop, valSize, 0, 0);
+      break;
+    default:
+      break;
     }
   }
 
@@ -982,59 +1434,254 @@ public final class Encoder implements Visitor {
 
   private void encodeFetchAddress (Vname V, Frame frame) {
 
-    RuntimeEntity baseObject = (RuntimeEntity) V.visit(this, frame);
+    V.visit(this, frame);
+    RuntimeEntity baseObject = V.entity;
     // If indexed = true, code will have been generated to load an index value.
-    if (baseObject instanceof KnownAddress) {
-      ObjectAddress address = ((KnownAddress) baseObject).address;
-      emit(Machine.LOADAop, 0, displayRegister(frame.level, address.level),
-           address.displacement + V.offset);
-      if (V.indexed)
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-    } else if (baseObject instanceof UnknownAddress) {
-      ObjectAddress address = ((UnknownAddress) baseObject).address;
-      emit(Machine.LOADop, Machine.addressSize,displayRegister(frame.level,
-           address.level), address.displacement);
+    switch (baseObject.access) {
+    case KNOWN_ADDRESS:
+      emit(Machine.LOADAop, 0, displayRegister(frame.level, baseObject.level),
+           baseObject.displacement + V.offset);
       if (V.indexed)
         emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-      if (V.offset != 0) {
-        emit(Machine.LOADLop, 0, 0, V.offset);
-        emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
-      }
+      break;
+    case UNKNOWN_ADDRESS:
+      encodeIndirection(V, frame, baseObject);
+      break;
+    default:
+      break;
     }
   }
 
-    @Override
-    public Object visitUntilCommand(UntilCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
+  // Generates code to push the address of a variable whose base object is
+  // a variable parameter, by loading the parameter's address and adding
+  // any index and offset to it.
 
-    @Override
-    public Object visitDoUntilCommand(DoUntilCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+  private void encodeIndirection (Vname V, Frame frame,
+                                  RuntimeEntity baseObject) {
+    emit(Machine.LOADop, Machine.addressSize, displayRegister(frame.level,
+         baseObject.level), baseObject.displacement);
+    if (V.indexed)
+      emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
+    if (V.offset != 0) {
+      emit(Machine.LOADLop, 0, 0, V.offset);
+      emit(Machine.CALLop, Machine.SBr, Machine.PBr, Machine.addDisplacement);
     }
+  }
 
-    @Override
-    public Object visitDoWhileCommand(DoWhileCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+  // Generates code to call the routine or operator bound to an identifier
+  // or operator.
+
+  private void encodeCall (RuntimeEntity routine, Frame frame) {
+    switch (routine.access) {
+    case KNOWN_ROUTINE:
+      emit(Machine.CALLop, displayRegister(frame.level, routine.level),
+	   Machine.CBr, routine.displacement);
+      break;
+    case UNKNOWN_ROUTINE:
+      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
+           routine.level), routine.displacement);
+      emit(Machine.CALLIop, 0, 0, 0);
+      break;
+    case PRIMITIVE_ROUTINE:
+      if (routine.displacement != Machine.idDisplacement)
+        emit(Machine.CALLop, Machine.SBr, Machine.PBr, routine.displacement);
+      break;
+    case EQUALITY_ROUTINE: // "=" or "\="
+      emit(Machine.LOADLop, 0, 0, frame.size / 2);
+      emit(Machine.CALLop, Machine.SBr, Machine.PBr, routine.displacement);
+      break;
+    default:
+      break;
     }
+  }
 
-    @Override
-    public Object visitForCommand(ForCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+  // Decides whether the routine just encoded out of line, whose body took
+  // bodySize instructions, is to be inlined instead, recording the
+  // decision. A routine is inlined only if none of its calls can be
+  // reached through a closure, so that its out-of-line code is not needed,
+  // and if inlining it cannot go on forever. The out-of-line code of an
+  // inlined routine is discarded, so the inlining recorded since saved is
+  // discarded with it.
+
+  private boolean decideInlining (Declaration decl, int bodySize,
+                                  InliningRecord saved) {
+    String reason;
+    if (callGraph == null)
+      return false;
+    else if (callGraph.isRecursive(decl))
+      reason = "it is recursive";
+    else if (callGraph.escapes(decl))
+      reason = "it is passed as a parameter";
+    else if (callGraph.declaresRoutines(decl))
+      reason = "it declares routines of its own";
+    else if (bodySize > inlineBudget)
+      reason = "its body takes " + bodySize + " instructions";
+    else
+      reason = null;
+    if (reason == null)
+      restoreInlining(saved);
+    inliningDecisions.put(decl, reason);
+    if (reason == null && !inlined.containsKey(decl))
+      inlined.put(decl, Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>()));
+    return reason == null;
+  }
+
+  // Generates code for the body of an inlined routine in place of a call,
+  // whose arguments are on the stack top. Each formal parameter is bound
+  // for the while to the slot that holds its argument, as the caller's own
+  // constant, variable address or closure, so the body reads it just as it
+  // would in the routine's own frame. The arguments are then popped from
+  // under the function result, if any.
+
+  private void encodeInline (AST call, Declaration decl, Frame frame,
+                             int argsSize) {
+    FormalParameterSequence FPS;
+    ArrayList<FormalParameter> formals = new ArrayList<FormalParameter>();
+    ArrayList<RuntimeEntity> entities = new ArrayList<RuntimeEntity>();
+    int valSize;
+
+    inlined.get(decl).add(call);
+    if (decl instanceof FuncDeclaration)
+      FPS = ((FuncDeclaration) decl).FPS;
+    else
+      FPS = ((ProcDeclaration) decl).FPS;
+    while (FPS instanceof MultipleFormalParameterSequence) {
+      formals.add(((MultipleFormalParameterSequence) FPS).FP);
+      FPS = ((MultipleFormalParameterSequence) FPS).FPS;
+    }
+    if (FPS instanceof SingleFormalParameterSequence)
+      formals.add(((SingleFormalParameterSequence) FPS).FP);
+    for (FormalParameter FP : formals) {
+      RuntimeEntity entity = FP.entity;
+      int displacement = frame.size + argsSize + entity.displacement;
+      entities.add(entity);
+      switch (entity.access) {
+      case UNKNOWN_VALUE:
+        FP.entity = new UnknownValue(entity.size, frame.level, displacement);
+        break;
+      case UNKNOWN_ADDRESS:
+        FP.entity = new UnknownAddress(entity.size, frame.level, displacement);
+        break;
+      default:
+        FP.entity = new UnknownRoutine(entity.size, frame.level, displacement);
+        break;
+      }
     }
+    Frame frame1 = new Frame(frame, argsSize);
+    if (decl instanceof FuncDeclaration)
+      valSize = ((FuncDeclaration) decl).E.visit(this, frame1);
+    else {
+      ((ProcDeclaration) decl).C.visit(this, frame1);
+      valSize = 0;
+    }
+    for (int i = 0; i < formals.size(); i++)
+      formals.get(i).entity = entities.get(i);
+    emit(Machine.POPop, valSize, 0, argsSize);
+  }
+
+  // Notes the calls of the given routine in tail position within the
+  // phrase, its body: those after which the routine can only return.
+
+  private void findTailCalls (AST phrase, Declaration routine) {
+    if (phrase instanceof CallCommand) {
+      if (((CallCommand) phrase).I.decl == routine)
+        tailCalls.add(phrase);
+    } else if (phrase instanceof CallExpression) {
+      if (((CallExpression) phrase).I.decl == routine)
+        tailCalls.add(phrase);
+    } else if (phrase instanceof IfCommand) {
+      findTailCalls(((IfCommand) phrase).C1, routine);
+      findTailCalls(((IfCommand) phrase).C2, routine);
+    } else if (phrase instanceof LetCommand)
+      findTailCalls(((LetCommand) phrase).C, routine);
+    else if (phrase instanceof SequentialCommand) {
+      Command[] CS = ((SequentialCommand) phrase).CS;
+      if (CS.length > 0)
+        findTailCalls(CS[CS.length - 1], routine);
+    } else if (phrase instanceof IfExpression) {
+      findTailCalls(((IfExpression) phrase).E2, routine);
+      findTailCalls(((IfExpression) phrase).E3, routine);
+    } else if (phrase instanceof LetExpression)
+      findTailCalls(((LetExpression) phrase).E, routine);
+  }
+
+  // Returns true iff an argument of the sequence, once encoded, is the
+  // address of a variable or the closure of a routine declared in the
+  // current frame, which a tail call would discard.
+
+  private boolean refersToFrame (ActualParameterSequence APS, Frame frame) {
+    ActualParameter AP;
+    if (APS instanceof MultipleActualParameterSequence) {
+      AP = ((MultipleActualParameterSequence) APS).AP;
+      if (refersToFrame(((MultipleActualParameterSequence) APS).APS, frame))
+        return true;
+    } else if (APS instanceof SingleActualParameterSequence)
+      AP = ((SingleActualParameterSequence) APS).AP;
+    else
+      return false;
+    RuntimeEntity entity;
+    if (AP instanceof VarActualParameter)
+      entity = ((VarActualParameter) AP).V.entity;
+    else if (AP instanceof ProcActualParameter)
+      entity = ((ProcActualParameter) AP).I.decl.entity;
+    else if (AP instanceof FuncActualParameter)
+      entity = ((FuncActualParameter) AP).I.decl.entity;
+    else
+      return false;
+    return (entity.access == Access.KNOWN_ADDRESS
+            || entity.access == Access.KNOWN_ROUTINE)
+        && entity.level == frame.level;
+  }
+
+  // Generates code for a call of a routine by itself in tail position,
+  // whose arguments are on the stack top. They overwrite the routine's own
+  // arguments, the rest of its frame above the link data is popped, and
+  // control jumps back to the start of its body, so the stack does not
+  // grow however deep the recursion.
+
+  private void encodeTailCall (Declaration routine, Frame frame, int argsSize) {
+    if (argsSize > 0)
+      emit(Machine.STOREop, argsSize, Machine.LBr, -argsSize);
+    emit(Machine.POPop, 0, 0, frame.size - Machine.linkDataSize);
+    emit(Machine.JUMPop, 0, Machine.CBr, routine.entity.displacement);
+  }
+
+  // Generates code to push the closure of a routine passed as an actual
+  // procedure or function parameter.
+
+  private void encodeClosure (RuntimeEntity routine, Frame frame) {
+    switch (routine.access) {
+    case KNOWN_ROUTINE:
+      // static link, code address
+      emit(Machine.LOADAop, 0, displayRegister(frame.level, routine.level), 0);
+      emit(Machine.LOADAop, 0, Machine.CBr, routine.displacement);
+      break;
+    case UNKNOWN_ROUTINE:
+      emit(Machine.LOADop, Machine.closureSize, displayRegister(frame.level,
+           routine.level), routine.displacement);
+      break;
+    case PRIMITIVE_ROUTINE:
+      // static link, code address
+      emit(Machine.LOADAop, 0, Machine.SBr, 0);
+      emit(Machine.LOADAop, 0, Machine.PBr, routine.displacement);
+      break;
+    default:
+      break;
+    }
+  }
 
     @Override
-    public Object visitElsIfCommand(ElsIfCommand ast, Object o) {
+    public int visitElsIfCommand(ElsIfCommand ast, Frame frame) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    public Object visitVarInitialized(VarInitialized ast, Object o) {
+    public int visitVarInitialized(VarInitialized ast, Frame frame) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    public Object visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Object o) {
+    public int visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Frame frame) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 }
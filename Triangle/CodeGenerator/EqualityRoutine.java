@@ -17,11 +17,11 @@ package Triangle.CodeGenerator;
 public class EqualityRoutine extends RuntimeEntity {
 
   public EqualityRoutine () {
-    super();
+    super(Access.EQUALITY_ROUTINE);
   }
 
   public EqualityRoutine (int size, int displacement) {
-    super (size);
+    super (Access.EQUALITY_ROUTINE, size, 0, displacement);
     this.displacement = displacement;
   }
 
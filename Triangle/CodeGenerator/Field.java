@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class Field extends RuntimeEntity {
 
   public Field () {
-    super ();
+    super (Access.FIELD);
     fieldOffset = 0;
   }
 
   public Field (int size, int fieldOffset) {
-    super (size);
+    super (Access.FIELD, size, 0, fieldOffset);
     this.fieldOffset = fieldOffset;
   }
 
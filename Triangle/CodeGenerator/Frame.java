@@ -21,11 +21,6 @@ public class Frame {
     this.size = 0;
   }
 
-  public Frame(int level, Integer size) {
-    this.level = level;
-    this.size = size.intValue();
-  }
-
   public Frame(int level, int size) {
     this.level = level;
     this.size = size;
@@ -36,11 +31,6 @@ public class Frame {
     this.size = frame.size + sizeIncrement;
   }
 
-  public Frame(Frame frame, Integer sizeIncrement) {
-    this.level = frame.level;
-    this.size = frame.size + sizeIncrement.intValue();
-  }
-
   protected int level;
   protected int size;
 }
@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class KnownAddress extends RuntimeEntity {
 
   public KnownAddress () {
-    super();
+    super(Access.KNOWN_ADDRESS);
     address = null;
   }
 
   public KnownAddress (int size, int level, int displacement) {
-    super(size);
+    super(Access.KNOWN_ADDRESS, size, level, displacement);
     address = new ObjectAddress(level, displacement);
   }
 
@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class KnownRoutine extends RuntimeEntity {
 
   public KnownRoutine () {
-    super();
+    super(Access.KNOWN_ROUTINE);
     address = null;
   }
 
   public KnownRoutine (int size, int level, int displacement) {
-    super(size);
+    super(Access.KNOWN_ROUTINE, size, level, displacement);
     address = new ObjectAddress(level, displacement);
   }
 
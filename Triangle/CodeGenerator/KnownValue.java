@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class KnownValue extends RuntimeEntity {
 
   public KnownValue () {
-    super();
+    super(Access.KNOWN_VALUE);
     value = 0;
   }
 
   public KnownValue (int size, int value) {
-    super(size);
+    super(Access.KNOWN_VALUE, size, 0, value);
     this.value = value;
   }
 
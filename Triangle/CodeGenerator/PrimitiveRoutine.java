@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class PrimitiveRoutine extends RuntimeEntity {
 
   public PrimitiveRoutine () {
-    super();
+    super(Access.PRIMITIVE_ROUTINE);
     displacement = 0;
   }
 
   public PrimitiveRoutine (int size, int displacement) {
-    super (size);
+    super (Access.PRIMITIVE_ROUTINE, size, 0, displacement);
     this.displacement = displacement;
   }
 
@@ -15,19 +15,36 @@
 package Triangle.CodeGenerator;
 
 // Run-time object
+//
+// Besides its size, every entity records how it is reached, resolved once
+// when the entity is made: its access kind, the static level of the frame
+// or routine holding it, and its displacement there. The displacement of
+// a known value is the value itself, that of a primitive or equality
+// routine its displacement in the primitive segment, and that of a field
+// its offset within the record. Code generation, and any other tool that
+// must resolve names quickly, need only switch on the access kind.
 
 public abstract class RuntimeEntity {
 
   public final static int maxRoutineLevel = 7;
 
-  public RuntimeEntity () {
-    size = 0;
+  public RuntimeEntity (Access access) {
+    this(access, 0, 0, 0);
   }
 
-  public RuntimeEntity (int size) {
+  public RuntimeEntity (Access access, int size) {
+    this(access, size, 0, 0);
+  }
+
+  public RuntimeEntity (Access access, int size, int level, int displacement) {
+    this.access = access;
     this.size = size;
+    this.level = level;
+    this.displacement = displacement;
   }
 
   public int size;
+  public final Access access;
+  public final int level, displacement;
 
 }
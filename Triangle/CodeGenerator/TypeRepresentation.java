@@ -17,7 +17,7 @@ package Triangle.CodeGenerator;
 public class TypeRepresentation extends RuntimeEntity {
 
   public TypeRepresentation (int size) {
-    super(size);
+    super(Access.TYPE, size);
   }
 
 }
@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class UnknownAddress extends RuntimeEntity {
 
   public UnknownAddress () {
-    super();
+    super(Access.UNKNOWN_ADDRESS);
     address = null;
   }
 
   public UnknownAddress (int size, int level, int displacement) {
-    super (size);
+    super (Access.UNKNOWN_ADDRESS, size, level, displacement);
     address = new ObjectAddress (level, displacement);
   }
 
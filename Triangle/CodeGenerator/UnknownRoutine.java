@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class UnknownRoutine extends RuntimeEntity {
 
   public UnknownRoutine () {
-    super();
+    super(Access.UNKNOWN_ROUTINE);
     address = null;
   }
 
   public UnknownRoutine (int size, int level, int displacement) {
-    super(size);
+    super(Access.UNKNOWN_ROUTINE, size, level, displacement);
     address = new ObjectAddress (level, displacement);
   }
 
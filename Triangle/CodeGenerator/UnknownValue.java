@@ -17,12 +17,12 @@ package Triangle.CodeGenerator;
 public class UnknownValue extends RuntimeEntity {
 
   public UnknownValue () {
-    super();
+    super(Access.UNKNOWN_VALUE);
     address = null;
   }
 
   public UnknownValue (int size, int level, int displacement) {
-    super(size);
+    super(Access.UNKNOWN_VALUE, size, level, displacement);
     address = new ObjectAddress(level, displacement);
   }
 
@@ -0,0 +1,76 @@
+/*
+ * @(#)CompilationContext.java
+ *
+ * The state belonging to a single compilation, so that several programs
+ * can be compiled at once in the same JVM.
+ */
+
+package Triangle;
+
+import TAM.Instruction;
+import TAM.Machine;
+import Triangle.CodeGenerator.Encoder;
+
+// The standard environment is shared, unchanging, by all compilations.
+// The encoder generates the object program into the code buffer rather
+// than into the TAM code store. Nothing else here is shared with any
+// other compilation.
+//
+// The options are those of this compilation alone. They may be set before
+// it starts, and are not to be changed while it runs.
+
+public final class CompilationContext {
+
+  public final ErrorReporter reporter;
+  public final StdEnvironment stdEnvironment;
+  public final Instruction[] code;
+
+  /** The filename for a trace of the parse, or null for no trace. */
+  public String traceName = null;
+
+  /**
+   * True iff a large source program is to be scanned in chunks in
+   * parallel. Scanning is sequential otherwise, which is quicker unless
+   * there are several cores to share the chunks.
+   */
+  public boolean scanningInParallel = false;
+
+  /** True iff large routine bodies are to be checked in parallel. */
+  public boolean checkingInParallel = false;
+
+  /**
+   * True iff /\ and \/ are to be compiled to short-circuit code, which
+   * evaluates the right operand only when the left operand does not
+   * decide the result, and which compiles the condition of an if or
+   * while straight into conditional jumps. A right operand that would
+   * fail at run-time may then not be evaluated at all.
+   */
+  public boolean shortCircuiting = false;
+
+  /**
+   * The number of copies of its body that each step of an unrolled for
+   * loop runs. A loop whose bounds are known is unrolled completely if
+   * that takes few enough instructions, otherwise by this factor if its
+   * body does not use the control variable. A factor of 1 disables
+   * unrolling.
+   */
+  public int unrollFactor = Encoder.DEFAULT_UNROLL_FACTOR;
+
+  /**
+   * The most instructions that the body of a routine may take for its
+   * calls to be replaced by copies of its body. A routine is never
+   * inlined if it is recursive, is passed as a parameter, or declares
+   * routines of its own. A budget of 0 disables inlining.
+   */
+  public int inlineBudget = Encoder.DEFAULT_INLINE_BUDGET;
+
+  public CompilationContext () {
+    this(new ErrorReporter());
+  }
+
+  public CompilationContext (ErrorReporter reporter) {
+    this.reporter = reporter;
+    stdEnvironment = StdEnvironment.shared();
+    code = new Instruction[Machine.PB];
+  }
+}
@@ -14,12 +14,21 @@
 
 package Triangle;
 
+import Triangle.AbstractSyntaxTrees.ASTFileReader;
+import Triangle.AbstractSyntaxTrees.ASTFileWriter;
 import Triangle.AbstractSyntaxTrees.Program;
 import Triangle.CodeGenerator.Encoder;
 import Triangle.ContextualAnalyzer.Checker;
+import Triangle.Optimizer.ConstantFolder;
+import Triangle.SyntacticAnalyzer.BufferedSourceFile;
+import Triangle.SyntacticAnalyzer.ParallelScanner;
+import Triangle.SyntacticAnalyzer.ParseTraceWriter;
 import Triangle.SyntacticAnalyzer.Parser;
 import Triangle.SyntacticAnalyzer.Scanner;
 import Triangle.SyntacticAnalyzer.SourceFile;
+import Triangle.SyntacticAnalyzer.SourcePosition;
+import Triangle.SyntacticAnalyzer.SymbolTable;
+import Triangle.SyntacticAnalyzer.TokenStream;
 import Triangle.TreeDrawer.Drawer;
 
 /**
@@ -33,19 +42,42 @@ public class Compiler {
     /** The filename for the object program, normally obj.tam. */
     static String objectName = "obj.tam";
 
-    private static Scanner scanner;
-    private static Parser parser;
-    private static Checker checker;
-    private static Encoder encoder;
-    private static ErrorReporter reporter;
-    private static Drawer drawer;
+    /** The filename suffix for the cached checked AST of a source program. */
+    static String cacheSuffix = ".tast";
 
-    /** The AST representing the source program. */
-    private static Program theAST;
+    /**
+     * The length of the longest source program that is read into memory.
+     * A longer one is read as a stream, and is neither hashed nor cached.
+     */
+    static long maxBufferedLength = BufferedSourceFile.MAX_LENGTH;
+
+    /**
+     * Compile the source program to TAM machine code, with the default
+     * options.
+     *
+     * @param	sourceName	the name of the file containing the
+     *				source program.
+     * @param	objectName	the name of the file containing the
+     *				object program.
+     * @param	showingAST	true iff the AST is to be displayed after
+     *				contextual analysis (not currently implemented).
+     * @param	showingTable	true iff the object description details are to
+     *				be displayed during code generation (not
+     *				currently implemented).
+     * @return	true iff the source program is free of compile-time errors,
+     *          otherwise false.
+     */
+    public static boolean compileProgram (String sourceName, String objectName,
+                                          boolean showingAST, boolean showingTable) {
+        return compileProgram(new CompilationContext(), sourceName, objectName,
+                              showingAST, showingTable);
+    }
 
     /**
      * Compile the source program to TAM machine code.
      *
+     * @param	context		a fresh context for this compilation, whose
+     *				options are set as required.
      * @param	sourceName	the name of the file containing the
      *				source program.
      * @param	objectName	the name of the file containing the
@@ -58,42 +90,84 @@ public class Compiler {
      * @return	true iff the source program is free of compile-time errors,
      *          otherwise false.
      */
-    static boolean compileProgram (String sourceName, String objectName,
-                                   boolean showingAST, boolean showingTable) {
+    public static boolean compileProgram (CompilationContext context,
+                                          String sourceName, String objectName,
+                                          boolean showingAST, boolean showingTable) {
 
         System.out.println("********** " +
                            "Triangle Compiler (Java Version 2.1)" +
                            " **********");
 
-        System.out.println("Syntactic Analysis ...");
-        SourceFile source = new SourceFile(sourceName);
+        // All the state of this compilation hangs off its context, so that
+        // several compilations may run at once on different threads.
+        ErrorReporter reporter = context.reporter;
+        Checker checker = context.checkingInParallel
+            ? new Checker(context, java.util.concurrent.ForkJoinPool.commonPool(),
+                          Checker.DEFAULT_PARALLEL_THRESHOLD)
+            : new Checker(context);
+        Encoder encoder = new Encoder(context, context.shortCircuiting,
+                                      context.unrollFactor, context.inlineBudget);
+        Program theAST = null;
 
-        if (source == null) {
-            System.out.println("Can't access source file " + sourceName);
-            System.exit(1);
+        // The source program is read once, and the bytes that are hashed
+        // are those that are scanned. One that can't be held in memory is
+        // read as a stream instead.
+        SourceFile source = null;
+        try {
+            if (new java.io.File(sourceName).length() <= maxBufferedLength)
+                source = new BufferedSourceFile(sourceName);
+        } catch (java.io.IOException e) {
+            // reported below, once the stream has failed too
+        } catch (OutOfMemoryError e) {
+            // too large for the heap: fall back to the stream
+        }
+        if (source == null)
+            source = new SourceFile(sourceName);
+        if (!source.isReadable()) {
+            // the compilation fails, but any others running go on
+            reporter.reportError("can't access source file \"%\"",
+                                 sourceName, new SourcePosition());
+            source = null;
         }
 
-        scanner  = new Scanner(source);
-        reporter = new ErrorReporter();
-        parser   = new Parser(scanner, reporter);
-        checker  = new Checker(reporter);
-        encoder  = new Encoder(reporter);
-        drawer   = new Drawer();
+        // The checker has established the standard environment, to which a
+        // cached AST of the same source program can now be linked. A parse
+        // trace needs the source program to be parsed, so bypasses the cache.
+        String cacheName = cacheName(sourceName);
+        byte[] sourceHash = (source instanceof BufferedSourceFile)
+            ? hashSource((BufferedSourceFile) source) : null;
+        if (sourceHash != null && context.traceName == null) {
+            try {
+                theAST = ASTFileReader.read(cacheName,
+                                            context.stdEnvironment.trees(),
+                                            sourceHash);
+            } catch (java.io.IOException e) {
+                // missing or unreadable: analyse the source program afresh
+            }
+        }
+        if (theAST != null)
+            System.out.println("Using checked AST from " + cacheName + " ...");
+        else if (source != null)
+            theAST = analyseSource(source, cacheName, sourceHash,
+                                   context, checker);
 
-        // scanner.enableDebugging();
-        theAST = parser.parseProgram();				// 1st pass
-        if (reporter.numErrors == 0) {
-            //if (showingAST) {
-            //    drawer.draw(theAST);
-            //}
-            System.out.println ("Contextual Analysis ...");
-            checker.check(theAST);				// 2nd pass
+        if (theAST != null) {
             if (showingAST) {
-                drawer.draw(theAST);
+                new Drawer().draw(theAST);
             }
             if (reporter.numErrors == 0) {
+                // Folding follows caching, so the cached AST is the checked
+                // AST as written, and is folded afresh on each use.
+                new ConstantFolder(context).fold(theAST);
                 System.out.println("Code Generation ...");
                 encoder.encodeRun(theAST, showingTable);	// 3rd pass
+                for (String line : encoder.describeInlining())
+                    System.out.println(line);
+                if (reporter.numErrors == 0) {
+                    System.out.println("Peephole Optimization ...");
+                    int removed = encoder.optimizeObjectProgram();
+                    System.out.println(removed + " instructions removed.");
+                }
             }
         }
 
@@ -107,21 +181,147 @@ public class Compiler {
         return successful;
     }
 
+    /**
+     * Parse and check the source program, and cache its AST if it is free
+     * of errors.
+     *
+     * @param	source		the source program, read into memory
+     *				unless it is too large.
+     * @param	cacheName	the name of the file for the cached AST.
+     * @param	sourceHash	the hash of the source program, or null if it
+     *				could not be computed.
+     * @param	context		the context of this compilation.
+     * @param	checker		the checker of this compilation.
+     * @return	the AST representing the source program, or null if
+     *          there is none.
+     */
+    private static Program analyseSource (SourceFile source,
+                                          String cacheName, byte[] sourceHash,
+                                          CompilationContext context,
+                                          Checker checker) {
+
+        System.out.println("Syntactic Analysis ...");
+        ErrorReporter reporter = context.reporter;
+
+        // scan the whole program into a token stream, in chunks if it is
+        // in memory and that has been asked for
+        TokenStream tokens =
+            (context.scanningInParallel && source instanceof BufferedSourceFile)
+            ? new ParallelScanner().scan((BufferedSourceFile) source,
+                                         new SymbolTable())
+            : new Scanner(source).scanAll(new SymbolTable());
+        Parser parser = new Parser(tokens, reporter);
+
+        // scanner.enableDebugging();
+        ParseTraceWriter trace = null;
+        if (context.traceName != null) {
+            try {
+                trace = new ParseTraceWriter(context.traceName);
+                parser.setParseListener(trace);
+            } catch (java.io.IOException e) {
+                System.out.println("Can't write parse trace to " + context.traceName);
+            }
+        }
+        Program theAST = parser.parseProgram();			// 1st pass
+        if (trace != null && !trace.close())
+            System.out.println("Can't write parse trace to " + context.traceName);
+        // Syntactic errors leave damaged phrases marked in the AST, so it can
+        // still be checked for contextual errors.
+        if (theAST != null) {
+            //if (showingAST) {
+            //    drawer.draw(theAST);
+            //}
+            System.out.println ("Contextual Analysis ...");
+            checker.check(theAST);				// 2nd pass
+            // The AST must be cached before code generation decorates it
+            // with run-time entities.
+            if (reporter.numErrors == 0 && sourceHash != null) {
+                try {
+                    ASTFileWriter.write(theAST, context.stdEnvironment.trees(),
+                                        sourceHash, cacheName);
+                } catch (java.io.IOException e) {
+                    System.out.println("Can't write checked AST to " + cacheName);
+                }
+            }
+        }
+        return theAST;
+    }
+
+    /**
+     * Name the file for the cached AST of a source program.
+     *
+     * @param	sourceName	the name of the file containing the
+     *				source program.
+     * @return	the source filename with its .tri extension, if any,
+     *          replaced by cacheSuffix.
+     */
+    static String cacheName (String sourceName) {
+        if (sourceName.endsWith(".tri"))
+            sourceName = sourceName.substring(0, sourceName.length() - 4);
+        return sourceName + cacheSuffix;
+    }
+
+    /**
+     * Compute the SHA-256 hash of the source program as it was read.
+     *
+     * @param	source		the source program, read into memory.
+     * @return	the hash, or null if it can't be computed.
+     */
+    static byte[] hashSource (BufferedSourceFile source) {
+        try {
+            return java.security.MessageDigest.getInstance("SHA-256").digest(
+                source.getBytes());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
     /**
      * Triangle compiler main program.
      *
-     * @param	args	the only command-line argument to the program specifies
-     *                  the source filename.
+     * @param	args	the first command-line argument to the program specifies
+     *                  the source filename; any others are options.
      */
     public static void main(String[] args) {
         boolean compiledOK;
+        CompilationContext context = new CompilationContext();
 
-        if (args.length != 1) {
-            System.out.println("Usage: tc filename");
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("-trace="))
+                context.traceName = args[i].substring("-trace=".length());
+            else if (args[i].equals("-parallelscan"))
+                context.scanningInParallel = true;
+            else if (args[i].equals("-parallel"))
+                context.checkingInParallel = true;
+            else if (args[i].equals("-shortcircuit"))
+                context.shortCircuiting = true;
+            else if (args[i].startsWith("-unroll=")) {
+                try {
+                    context.unrollFactor = Integer.parseInt(args[i].substring("-unroll=".length()));
+                } catch (NumberFormatException e) {
+                    context.unrollFactor = 0;
+                }
+                if (context.unrollFactor < 1)
+                    args = new String[0];
+            }
+            else if (args[i].startsWith("-inline=")) {
+                try {
+                    context.inlineBudget = Integer.parseInt(args[i].substring("-inline=".length()));
+                } catch (NumberFormatException e) {
+                    context.inlineBudget = -1;
+                }
+                if (context.inlineBudget < 0)
+                    args = new String[0];
+            }
+            else
+                args = new String[0];
+        }
+        if (args.length < 1) {
+            System.out.println("Usage: tc filename [-trace=tracefile] [-parallelscan] [-parallel] [-shortcircuit] [-unroll=factor] [-inline=budget]");
             System.exit(1);
         }
 
         String sourceName = args[0];
-        compiledOK = compileProgram(sourceName, objectName, false, false);
+        compiledOK = compileProgram(context, sourceName, objectName, false, false);
     }
 }
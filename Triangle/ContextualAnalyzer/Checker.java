@@ -14,20 +14,24 @@
 
 package Triangle.ContextualAnalyzer;
 
+import Triangle.CompilationContext;
 import Triangle.ErrorReporter;
 import Triangle.StdEnvironment;
 import Triangle.AbstractSyntaxTrees.*;
-import Triangle.SyntacticAnalyzer.SourcePosition;
 
-public final class Checker implements Visitor {
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class Checker implements Visitor<TypeDenoter, AST> {
 
   // Commands
 
   // Always returns null. Does not use the given object.
 
-  public Object visitAssignCommand(AssignCommand ast, Object o) {
-    TypeDenoter vType = (TypeDenoter) ast.V.visit(this, null);
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+  public TypeDenoter visitAssignCommand(AssignCommand ast, AST o) {
+    TypeDenoter vType = ast.V.visit(this, null);
+    TypeDenoter eType = ast.E.visit(this, null);
     if (!ast.V.variable)
       reporter.reportError ("LHS of assignment is not a variable", "", ast.V.position);
     if (! eType.equals(vType))
@@ -36,11 +40,14 @@ public final class Checker implements Visitor {
   }
 
 
-  public Object visitCallCommand(CallCommand ast, Object o) {
+  public TypeDenoter visitCallCommand(CallCommand ast, AST o) {
 
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null)
       reportUndeclared(ast.I);
+    else if (binding instanceof ErrorDeclaration)
+      ; // already reported as a syntactic error
     else if (binding instanceof ProcDeclaration) {
       ast.APS.visit(this, ((ProcDeclaration) binding).FPS);
     } else if (binding instanceof ProcFormalParameter) {
@@ -51,20 +58,47 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitEmptyCommand(EmptyCommand ast, Object o) {
+  public TypeDenoter visitEmptyCommand(EmptyCommand ast, AST o) {
+    return null;
+  }
+
+  // The parser has already reported whatever was wrong with the command.
+
+  public TypeDenoter visitErrorCommand(ErrorCommand ast, AST o) {
     return null;
   }
 
-  public Object visitIfCommand(IfCommand ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
-    if (! eType.equals(StdEnvironment.booleanType))
+  // The control variable is declared, in a scope of its own around the
+  // body, as if it were a constant parameter of type Integer: the body may
+  // use it but not update it.
+
+  public TypeDenoter visitForCommand(ForCommand ast, AST o) {
+    TypeDenoter e1Type = ast.E1.visit(this, null);
+    if (! e1Type.equals(std.integerType))
+      reporter.reportError("Integer expression expected here", "", ast.E1.position);
+    TypeDenoter e2Type = ast.E2.visit(this, null);
+    if (! e2Type.equals(std.integerType))
+      reporter.reportError("Integer expression expected here", "", ast.E2.position);
+    idTable.openScope();
+    ConstFormalParameter control =
+      new ConstFormalParameter(ast.I, std.integerType, ast.I.position);
+    idTable.enter(ast.I.spelling, control);
+    ast.I.decl = control;
+    ast.C.visit(this, null);
+    idTable.closeScope();
+    return null;
+  }
+
+  public TypeDenoter visitIfCommand(IfCommand ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (! eType.equals(std.booleanType))
       reporter.reportError("Boolean expression expected here", "", ast.E.position);
     ast.C1.visit(this, null);
     ast.C2.visit(this, null);
     return null;
   }
 
-  public Object visitLetCommand(LetCommand ast, Object o) {
+  public TypeDenoter visitLetCommand(LetCommand ast, AST o) {
     idTable.openScope();
     ast.D.visit(this, null);
     ast.C.visit(this, null);
@@ -72,38 +106,63 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitSequentialCommand(SequentialCommand ast, Object o) {
-    ast.C1.visit(this, null);
-    ast.C2.visit(this, null);
+  public TypeDenoter visitSequentialCommand(SequentialCommand ast, AST o) {
+    for (int i = 0; i < ast.CS.length; i++)
+      ast.CS[i].visit(this, null);
     return null;
   }
 
-  public Object visitWhileCommand(WhileCommand ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
-    if (! eType.equals(StdEnvironment.booleanType))
+  public TypeDenoter visitWhileCommand(WhileCommand ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (! eType.equals(std.booleanType))
       reporter.reportError("Boolean expression expected here", "", ast.E.position);
     ast.C.visit(this, null);
     return null;
   }
 
+  public TypeDenoter visitUntilCommand(UntilCommand ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (! eType.equals(std.booleanType))
+      reporter.reportError("Boolean expression expected here", "", ast.E.position);
+    ast.C.visit(this, null);
+    return null;
+  }
+
+  public TypeDenoter visitDoWhileCommand(DoWhileCommand ast, AST o) {
+    ast.C.visit(this, null);
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (! eType.equals(std.booleanType))
+      reporter.reportError("Boolean expression expected here", "", ast.E.position);
+    return null;
+  }
+
+  public TypeDenoter visitDoUntilCommand(DoUntilCommand ast, AST o) {
+    ast.C.visit(this, null);
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (! eType.equals(std.booleanType))
+      reporter.reportError("Boolean expression expected here", "", ast.E.position);
+    return null;
+  }
+
   // Expressions
 
   // Returns the TypeDenoter denoting the type of the expression. Does
   // not use the given object.
 
-  public Object visitArrayExpression(ArrayExpression ast, Object o) {
-    TypeDenoter elemType = (TypeDenoter) ast.AA.visit(this, null);
+  public TypeDenoter visitArrayExpression(ArrayExpression ast, AST o) {
+    TypeDenoter elemType = ast.AA.visit(this, null);
     IntegerLiteral il = new IntegerLiteral(new Integer(ast.AA.elemCount).toString(),
                                            ast.position);
-    ast.type = new ArrayTypeDenoter(il, elemType, ast.position);
+    ast.type = typeTable.enter(new ArrayTypeDenoter(il, elemType, ast.position));
     return ast.type;
   }
 
-  public Object visitBinaryExpression(BinaryExpression ast, Object o) {
+  public TypeDenoter visitBinaryExpression(BinaryExpression ast, AST o) {
 
-    TypeDenoter e1Type = (TypeDenoter) ast.E1.visit(this, null);
-    TypeDenoter e2Type = (TypeDenoter) ast.E2.visit(this, null);
-    Declaration binding = (Declaration) ast.O.visit(this, null);
+    TypeDenoter e1Type = ast.E1.visit(this, null);
+    TypeDenoter e2Type = ast.E2.visit(this, null);
+    ast.O.visit(this, null);
+    Declaration binding = ast.O.decl;
 
     if (binding == null)
       reportUndeclared(ast.O);
@@ -112,7 +171,7 @@ public final class Checker implements Visitor {
         reporter.reportError ("\"%\" is not a binary operator",
                               ast.O.spelling, ast.O.position);
       BinaryOperatorDeclaration bbinding = (BinaryOperatorDeclaration) binding;
-      if (bbinding.ARG1 == StdEnvironment.anyType) {
+      if (bbinding.ARG1 == std.anyType) {
         // this operator must be "=" or "\="
         if (! e1Type.equals(e2Type))
           reporter.reportError ("incompatible argument types for \"%\"",
@@ -128,11 +187,14 @@ public final class Checker implements Visitor {
     return ast.type;
   }
 
-  public Object visitCallExpression(CallExpression ast, Object o) {
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+  public TypeDenoter visitCallExpression(CallExpression ast, AST o) {
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null) {
       reportUndeclared(ast.I);
-      ast.type = StdEnvironment.errorType;
+      ast.type = std.errorType;
+    } else if (binding instanceof ErrorDeclaration) {
+      ast.type = std.errorType;
     } else if (binding instanceof FuncDeclaration) {
       ast.APS.visit(this, ((FuncDeclaration) binding).FPS);
       ast.type = ((FuncDeclaration) binding).T;
@@ -145,55 +207,62 @@ public final class Checker implements Visitor {
     return ast.type;
   }
 
-  public Object visitCharacterExpression(CharacterExpression ast, Object o) {
-    ast.type = StdEnvironment.charType;
+  public TypeDenoter visitCharacterExpression(CharacterExpression ast, AST o) {
+    ast.type = std.charType;
     return ast.type;
   }
 
-  public Object visitEmptyExpression(EmptyExpression ast, Object o) {
+  public TypeDenoter visitEmptyExpression(EmptyExpression ast, AST o) {
     ast.type = null;
     return ast.type;
   }
 
-  public Object visitIfExpression(IfExpression ast, Object o) {
-    TypeDenoter e1Type = (TypeDenoter) ast.E1.visit(this, null);
-    if (! e1Type.equals(StdEnvironment.booleanType))
+  public TypeDenoter visitErrorExpression(ErrorExpression ast, AST o) {
+    ast.type = std.errorType;
+    return ast.type;
+  }
+
+
+  public TypeDenoter visitIfExpression(IfExpression ast, AST o) {
+    TypeDenoter e1Type = ast.E1.visit(this, null);
+    if (! e1Type.equals(std.booleanType))
       reporter.reportError ("Boolean expression expected here", "",
                             ast.E1.position);
-    TypeDenoter e2Type = (TypeDenoter) ast.E2.visit(this, null);
-    TypeDenoter e3Type = (TypeDenoter) ast.E3.visit(this, null);
+    TypeDenoter e2Type = ast.E2.visit(this, null);
+    TypeDenoter e3Type = ast.E3.visit(this, null);
     if (! e2Type.equals(e3Type))
       reporter.reportError ("incompatible limbs in if-expression", "", ast.position);
     ast.type = e2Type;
     return ast.type;
   }
 
-  public Object visitIntegerExpression(IntegerExpression ast, Object o) {
-    ast.type = StdEnvironment.integerType;
+  public TypeDenoter visitIntegerExpression(IntegerExpression ast, AST o) {
+    ast.type = std.integerType;
     return ast.type;
   }
 
-  public Object visitLetExpression(LetExpression ast, Object o) {
+  public TypeDenoter visitLetExpression(LetExpression ast, AST o) {
     idTable.openScope();
     ast.D.visit(this, null);
-    ast.type = (TypeDenoter) ast.E.visit(this, null);
+    ast.type = ast.E.visit(this, null);
     idTable.closeScope();
     return ast.type;
   }
 
-  public Object visitRecordExpression(RecordExpression ast, Object o) {
+  public TypeDenoter visitRecordExpression(RecordExpression ast, AST o) {
     FieldTypeDenoter rType = (FieldTypeDenoter) ast.RA.visit(this, null);
-    ast.type = new RecordTypeDenoter(rType, ast.position);
+    ast.type = typeTable.enter(new RecordTypeDenoter(rType, ast.position));
     return ast.type;
   }
 
-  public Object visitUnaryExpression(UnaryExpression ast, Object o) {
+  public TypeDenoter visitUnaryExpression(UnaryExpression ast, AST o) {
 
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
-    Declaration binding = (Declaration) ast.O.visit(this, null);
+    TypeDenoter eType = ast.E.visit(this, null);
+    ast.O.visit(this, null);
+    Declaration binding = ast.O.decl;
     if (binding == null) {
       reportUndeclared(ast.O);
-      ast.type = StdEnvironment.errorType;
+      ast.type = std.errorType;
     } else if (! (binding instanceof UnaryOperatorDeclaration))
         reporter.reportError ("\"%\" is not a unary operator",
                               ast.O.spelling, ast.O.position);
@@ -207,20 +276,20 @@ public final class Checker implements Visitor {
     return ast.type;
   }
 
-  public Object visitVnameExpression(VnameExpression ast, Object o) {
-    ast.type = (TypeDenoter) ast.V.visit(this, null);
+  public TypeDenoter visitVnameExpression(VnameExpression ast, AST o) {
+    ast.type = ast.V.visit(this, null);
     return ast.type;
   }
 
   // Declarations
 
   // Always returns null. Does not use the given object.
-  public Object visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Object o) {
+  public TypeDenoter visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, AST o) {
     return null;
   }
 
-  public Object visitConstDeclaration(ConstDeclaration ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+  public TypeDenoter visitConstDeclaration(ConstDeclaration ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
     idTable.enter(ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("identifier \"%\" already declared",
@@ -228,42 +297,69 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitFuncDeclaration(FuncDeclaration ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitFuncDeclaration(FuncDeclaration ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     idTable.enter (ast.I.spelling, ast); // permits recursion
     if (ast.duplicated)
       reporter.reportError ("identifier \"%\" already declared",
                             ast.I.spelling, ast.position);
     idTable.openScope();
     ast.FPS.visit(this, null);
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+    if (isLarge(ast.E))
+      fork(ast);
+    else
+      checkFuncBody(ast);
     idTable.closeScope();
+    return null;
+  }
+
+  // Checks the body of a function, in the scope of its formal parameters.
+
+  private void checkFuncBody (FuncDeclaration ast) {
+    TypeDenoter eType = ast.E.visit(this, null);
     if (! ast.T.equals(eType))
       reporter.reportError ("body of function \"%\" has wrong type",
                             ast.I.spelling, ast.E.position);
-    return null;
   }
 
-  public Object visitProcDeclaration(ProcDeclaration ast, Object o) {
+  public TypeDenoter visitProcDeclaration(ProcDeclaration ast, AST o) {
     idTable.enter (ast.I.spelling, ast); // permits recursion
     if (ast.duplicated)
       reporter.reportError ("identifier \"%\" already declared",
                             ast.I.spelling, ast.position);
     idTable.openScope();
     ast.FPS.visit(this, null);
-    ast.C.visit(this, null);
+    if (isLarge(ast.C))
+      fork(ast);
+    else
+      checkProcBody(ast);
     idTable.closeScope();
     return null;
   }
 
-  public Object visitSequentialDeclaration(SequentialDeclaration ast, Object o) {
-    ast.D1.visit(this, null);
-    ast.D2.visit(this, null);
+  // Checks the body of a procedure, in the scope of its formal parameters.
+
+  private void checkProcBody (ProcDeclaration ast) {
+    ast.C.visit(this, null);
+  }
+
+  // A declaration damaged by a syntactic error still declares its
+  // identifier, if it has one, so that its uses are not reported again.
+
+  public TypeDenoter visitErrorDeclaration(ErrorDeclaration ast, AST o) {
+    if (ast.I != null)
+      idTable.enter (ast.I.spelling, ast);
+    return null;
+  }
+
+  public TypeDenoter visitSequentialDeclaration(SequentialDeclaration ast, AST o) {
+    for (int i = 0; i < ast.DS.length; i++)
+      ast.DS[i].visit(this, null);
     return null;
   }
 
-  public Object visitTypeDeclaration(TypeDeclaration ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitTypeDeclaration(TypeDeclaration ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     idTable.enter (ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("identifier \"%\" already declared",
@@ -271,12 +367,12 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Object o) {
+  public TypeDenoter visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, AST o) {
     return null;
   }
 
-  public Object visitVarDeclaration(VarDeclaration ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitVarDeclaration(VarDeclaration ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     idTable.enter (ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("identifier \"%\" already declared",
@@ -290,17 +386,17 @@ public final class Checker implements Visitor {
   // Returns the TypeDenoter for the Array Aggregate. Does not use the
   // given object.
 
-  public Object visitMultipleArrayAggregate(MultipleArrayAggregate ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
-    TypeDenoter elemType = (TypeDenoter) ast.AA.visit(this, null);
+  public TypeDenoter visitMultipleArrayAggregate(MultipleArrayAggregate ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
+    TypeDenoter elemType = ast.AA.visit(this, null);
     ast.elemCount = ast.AA.elemCount + 1;
     if (! eType.equals(elemType))
       reporter.reportError ("incompatible array-aggregate element", "", ast.E.position);
     return elemType;
   }
 
-  public Object visitSingleArrayAggregate(SingleArrayAggregate ast, Object o) {
-    TypeDenoter elemType = (TypeDenoter) ast.E.visit(this, null);
+  public TypeDenoter visitSingleArrayAggregate(SingleArrayAggregate ast, AST o) {
+    TypeDenoter elemType = ast.E.visit(this, null);
     ast.elemCount = 1;
     return elemType;
   }
@@ -310,19 +406,19 @@ public final class Checker implements Visitor {
   // Returns the TypeDenoter for the Record Aggregate. Does not use the
   // given object.
 
-  public Object visitMultipleRecordAggregate(MultipleRecordAggregate ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+  public TypeDenoter visitMultipleRecordAggregate(MultipleRecordAggregate ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
     FieldTypeDenoter rType = (FieldTypeDenoter) ast.RA.visit(this, null);
     TypeDenoter fType = checkFieldIdentifier(rType, ast.I);
-    if (fType != StdEnvironment.errorType)
+    if (fType != std.errorType)
       reporter.reportError ("duplicate field \"%\" in record",
                             ast.I.spelling, ast.I.position);
     ast.type = new MultipleFieldTypeDenoter(ast.I, eType, rType, ast.position);
     return ast.type;
   }
 
-  public Object visitSingleRecordAggregate(SingleRecordAggregate ast, Object o) {
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+  public TypeDenoter visitSingleRecordAggregate(SingleRecordAggregate ast, AST o) {
+    TypeDenoter eType = ast.E.visit(this, null);
     ast.type = new SingleFieldTypeDenoter(ast.I, eType, ast.position);
     return ast.type;
   }
@@ -331,8 +427,8 @@ public final class Checker implements Visitor {
 
   // Always returns null. Does not use the given object.
 
-  public Object visitConstFormalParameter(ConstFormalParameter ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitConstFormalParameter(ConstFormalParameter ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     idTable.enter(ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("duplicated formal parameter \"%\"",
@@ -340,11 +436,11 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitFuncFormalParameter(FuncFormalParameter ast, Object o) {
+  public TypeDenoter visitFuncFormalParameter(FuncFormalParameter ast, AST o) {
     idTable.openScope();
     ast.FPS.visit(this, null);
     idTable.closeScope();
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+    ast.T = ast.T.visit(this, null);
     idTable.enter (ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("duplicated formal parameter \"%\"",
@@ -352,7 +448,7 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitProcFormalParameter(ProcFormalParameter ast, Object o) {
+  public TypeDenoter visitProcFormalParameter(ProcFormalParameter ast, AST o) {
     idTable.openScope();
     ast.FPS.visit(this, null);
     idTable.closeScope();
@@ -363,8 +459,8 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitVarFormalParameter(VarFormalParameter ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitVarFormalParameter(VarFormalParameter ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     idTable.enter (ast.I.spelling, ast);
     if (ast.duplicated)
       reporter.reportError ("duplicated formal parameter \"%\"",
@@ -372,17 +468,17 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Object o) {
+  public TypeDenoter visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, AST o) {
     return null;
   }
 
-  public Object visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Object o) {
+  public TypeDenoter visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, AST o) {
     ast.FP.visit(this, null);
     ast.FPS.visit(this, null);
     return null;
   }
 
-  public Object visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Object o) {
+  public TypeDenoter visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, AST o) {
     ast.FP.visit(this, null);
     return null;
   }
@@ -391,9 +487,9 @@ public final class Checker implements Visitor {
 
   // Always returns null. Uses the given FormalParameter.
 
-  public Object visitConstActualParameter(ConstActualParameter ast, Object o) {
+  public TypeDenoter visitConstActualParameter(ConstActualParameter ast, AST o) {
     FormalParameter fp = (FormalParameter) o;
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
+    TypeDenoter eType = ast.E.visit(this, null);
 
     if (! (fp instanceof ConstFormalParameter))
       reporter.reportError ("const actual parameter not expected here", "",
@@ -404,12 +500,15 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitFuncActualParameter(FuncActualParameter ast, Object o) {
+  public TypeDenoter visitFuncActualParameter(FuncActualParameter ast, AST o) {
     FormalParameter fp = (FormalParameter) o;
 
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null)
       reportUndeclared (ast.I);
+    else if (binding instanceof ErrorDeclaration)
+      ;
     else if (! (binding instanceof FuncDeclaration ||
                 binding instanceof FuncFormalParameter))
       reporter.reportError ("\"%\" is not a function identifier",
@@ -437,12 +536,15 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitProcActualParameter(ProcActualParameter ast, Object o) {
+  public TypeDenoter visitProcActualParameter(ProcActualParameter ast, AST o) {
     FormalParameter fp = (FormalParameter) o;
 
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null)
       reportUndeclared (ast.I);
+    else if (binding instanceof ErrorDeclaration)
+      ;
     else if (! (binding instanceof ProcDeclaration ||
                 binding instanceof ProcFormalParameter))
       reporter.reportError ("\"%\" is not a procedure identifier",
@@ -463,10 +565,10 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitVarActualParameter(VarActualParameter ast, Object o) {
+  public TypeDenoter visitVarActualParameter(VarActualParameter ast, AST o) {
     FormalParameter fp = (FormalParameter) o;
 
-    TypeDenoter vType = (TypeDenoter) ast.V.visit(this, null);
+    TypeDenoter vType = ast.V.visit(this, null);
     if (! ast.V.variable)
       reporter.reportError ("actual parameter is not a variable", "",
                             ast.V.position);
@@ -479,14 +581,14 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Object o) {
+  public TypeDenoter visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, AST o) {
     FormalParameterSequence fps = (FormalParameterSequence) o;
     if (! (fps instanceof EmptyFormalParameterSequence))
       reporter.reportError ("too few actual parameters", "", ast.position);
     return null;
   }
 
-  public Object visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Object o) {
+  public TypeDenoter visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, AST o) {
     FormalParameterSequence fps = (FormalParameterSequence) o;
     if (! (fps instanceof MultipleFormalParameterSequence))
       reporter.reportError ("too many actual parameters", "", ast.position);
@@ -497,7 +599,7 @@ public final class Checker implements Visitor {
     return null;
   }
 
-  public Object visitSingleActualParameterSequence(SingleActualParameterSequence ast, Object o) {
+  public TypeDenoter visitSingleActualParameterSequence(SingleActualParameterSequence ast, AST o) {
     FormalParameterSequence fps = (FormalParameterSequence) o;
     if (! (fps instanceof SingleFormalParameterSequence))
       reporter.reportError ("incorrect number of actual parameters", "", ast.position);
@@ -509,86 +611,93 @@ public final class Checker implements Visitor {
 
   // Type Denoters
 
-  // Returns the expanded version of the TypeDenoter. Does not
-  // use the given object.
+  // Returns the expanded version of the TypeDenoter, which for an array
+  // or record type is its canonical instance. Does not use the given
+  // object.
 
-  public Object visitAnyTypeDenoter(AnyTypeDenoter ast, Object o) {
-    return StdEnvironment.anyType;
+  public TypeDenoter visitAnyTypeDenoter(AnyTypeDenoter ast, AST o) {
+    return std.anyType;
   }
 
-  public Object visitArrayTypeDenoter(ArrayTypeDenoter ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitArrayTypeDenoter(ArrayTypeDenoter ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     if ((Integer.valueOf(ast.IL.spelling).intValue()) == 0)
       reporter.reportError ("arrays must not be empty", "", ast.IL.position);
-    return ast;
+    return typeTable.enter(ast);
   }
 
-  public Object visitBoolTypeDenoter(BoolTypeDenoter ast, Object o) {
-    return StdEnvironment.booleanType;
+  public TypeDenoter visitBoolTypeDenoter(BoolTypeDenoter ast, AST o) {
+    return std.booleanType;
   }
 
-  public Object visitCharTypeDenoter(CharTypeDenoter ast, Object o) {
-    return StdEnvironment.charType;
+  public TypeDenoter visitCharTypeDenoter(CharTypeDenoter ast, AST o) {
+    return std.charType;
   }
 
-  public Object visitErrorTypeDenoter(ErrorTypeDenoter ast, Object o) {
-    return StdEnvironment.errorType;
+  public TypeDenoter visitErrorTypeDenoter(ErrorTypeDenoter ast, AST o) {
+    return std.errorType;
   }
 
-  public Object visitSimpleTypeDenoter(SimpleTypeDenoter ast, Object o) {
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+  public TypeDenoter visitSimpleTypeDenoter(SimpleTypeDenoter ast, AST o) {
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null) {
       reportUndeclared (ast.I);
-      return StdEnvironment.errorType;
+      return std.errorType;
+    } else if (binding instanceof ErrorDeclaration) {
+      return std.errorType;
     } else if (! (binding instanceof TypeDeclaration)) {
       reporter.reportError ("\"%\" is not a type identifier",
                             ast.I.spelling, ast.I.position);
-      return StdEnvironment.errorType;
+      return std.errorType;
     }
     return ((TypeDeclaration) binding).T;
   }
 
-  public Object visitIntTypeDenoter(IntTypeDenoter ast, Object o) {
-    return StdEnvironment.integerType;
+  public TypeDenoter visitIntTypeDenoter(IntTypeDenoter ast, AST o) {
+    return std.integerType;
   }
 
-  public Object visitRecordTypeDenoter(RecordTypeDenoter ast, Object o) {
+  public TypeDenoter visitRecordTypeDenoter(RecordTypeDenoter ast, AST o) {
     ast.FT = (FieldTypeDenoter) ast.FT.visit(this, null);
-    return ast;
+    return typeTable.enter(ast);
   }
 
-  public Object visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     ast.FT.visit(this, null);
     return ast;
   }
 
-  public Object visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Object o) {
-    ast.T = (TypeDenoter) ast.T.visit(this, null);
+  public TypeDenoter visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, AST o) {
+    ast.T = ast.T.visit(this, null);
     return ast;
   }
 
   // Literals, Identifiers and Operators
-  public Object visitCharacterLiteral(CharacterLiteral CL, Object o) {
-    return StdEnvironment.charType;
+  public TypeDenoter visitCharacterLiteral(CharacterLiteral CL, AST o) {
+    return std.charType;
   }
 
-  public Object visitIdentifier(Identifier I, Object o) {
+  // An identifier or operator is decorated with the declaration it
+  // denotes, if any, which callers then find in its decl field.
+
+  public TypeDenoter visitIdentifier(Identifier I, AST o) {
     Declaration binding = idTable.retrieve(I.spelling);
     if (binding != null)
       I.decl = binding;
-    return binding;
+    return null;
   }
 
-  public Object visitIntegerLiteral(IntegerLiteral IL, Object o) {
-    return StdEnvironment.integerType;
+  public TypeDenoter visitIntegerLiteral(IntegerLiteral IL, AST o) {
+    return std.integerType;
   }
 
-  public Object visitOperator(Operator O, Object o) {
+  public TypeDenoter visitOperator(Operator O, AST o) {
     Declaration binding = idTable.retrieve(O.spelling);
     if (binding != null)
       O.decl = binding;
-    return binding;
+    return null;
   }
 
   // Value-or-variable names
@@ -612,29 +721,35 @@ public final class Checker implements Visitor {
   // Returns the TypeDenoter of the Vname. Does not use the
   // given object.
 
-  public Object visitDotVname(DotVname ast, Object o) {
+  public TypeDenoter visitDotVname(DotVname ast, AST o) {
     ast.type = null;
-    TypeDenoter vType = (TypeDenoter) ast.V.visit(this, null);
+    TypeDenoter vType = ast.V.visit(this, null);
     ast.variable = ast.V.variable;
-    if (! (vType instanceof RecordTypeDenoter))
+    if (vType == std.errorType)
+      ast.type = std.errorType;
+    else if (! (vType instanceof RecordTypeDenoter))
       reporter.reportError ("record expected here", "", ast.V.position);
     else {
       ast.type = checkFieldIdentifier(((RecordTypeDenoter) vType).FT, ast.I);
-      if (ast.type == StdEnvironment.errorType)
+      if (ast.type == std.errorType)
         reporter.reportError ("no field \"%\" in this record type",
                               ast.I.spelling, ast.I.position);
     }
     return ast.type;
   }
 
-  public Object visitSimpleVname(SimpleVname ast, Object o) {
+  public TypeDenoter visitSimpleVname(SimpleVname ast, AST o) {
     ast.variable = false;
-    ast.type = StdEnvironment.errorType;
-    Declaration binding = (Declaration) ast.I.visit(this, null);
+    ast.type = std.errorType;
+    ast.I.visit(this, null);
+    Declaration binding = (Declaration) ast.I.decl;
     if (binding == null)
       reportUndeclared(ast.I);
     else
-      if (binding instanceof ConstDeclaration) {
+      if (binding instanceof ErrorDeclaration) {
+        // Whatever it was meant to be, let it be used as anything.
+        ast.variable = true;
+      } else if (binding instanceof ConstDeclaration) {
         ast.type = ((ConstDeclaration) binding).E.type;
         ast.variable = false;
       } else if (binding instanceof VarDeclaration) {
@@ -652,15 +767,15 @@ public final class Checker implements Visitor {
     return ast.type;
   }
 
-  public Object visitSubscriptVname(SubscriptVname ast, Object o) {
-    TypeDenoter vType = (TypeDenoter) ast.V.visit(this, null);
+  public TypeDenoter visitSubscriptVname(SubscriptVname ast, AST o) {
+    TypeDenoter vType = ast.V.visit(this, null);
     ast.variable = ast.V.variable;
-    TypeDenoter eType = (TypeDenoter) ast.E.visit(this, null);
-    if (vType != StdEnvironment.errorType) {
+    TypeDenoter eType = ast.E.visit(this, null);
+    if (vType != std.errorType) {
       if (! (vType instanceof ArrayTypeDenoter))
         reporter.reportError ("array expected here", "", ast.V.position);
       else {
-        if (! eType.equals(StdEnvironment.integerType))
+        if (! eType.equals(std.integerType))
           reporter.reportError ("Integer expression expected here", "",
 				ast.E.position);
         ast.type = ((ArrayTypeDenoter) vType).T;
@@ -671,7 +786,7 @@ public final class Checker implements Visitor {
 
   // Programs
 
-  public Object visitProgram(Program ast, Object o) {
+  public TypeDenoter visitProgram(Program ast, AST o) {
     ast.C.visit(this, null);
     return null;
   }
@@ -686,20 +801,108 @@ public final class Checker implements Visitor {
   // Types are represented by small ASTs.
 
   public void check(Program ast) {
+    if (pool == null) {
+      ast.visit(this, null);
+      return;
+    }
+    ErrorReporter target = reporter;
+    reporter = ErrorReporter.deferred();
     ast.visit(this, null);
+    joinForked();
+    reporter.commit(target);
+    reporter = target;
   }
 
   /////////////////////////////////////////////////////////////////////////////
 
-  public Checker (ErrorReporter reporter) {
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
+  public Checker (CompilationContext context) {
+    this(context, null, 0);
+  }
+
+  // A checker given a pool checks the body of each routine spanning at
+  // least threshold characters of source as a task on the pool.
+
+  public Checker (CompilationContext context, ForkJoinPool pool, int threshold) {
+    this.reporter = context.reporter;
+    this.std = context.stdEnvironment;
+    this.idTable = new IdentificationTable (std.scope);
+    this.typeTable = new TypeTable ();
+    this.pool = pool;
+    this.threshold = threshold;
+  }
+
+  // Used to check a routine body on its own, against the given scope.
+
+  private Checker (Checker parent, IdentificationTable scope,
+                   ErrorReporter reporter) {
     this.reporter = reporter;
-    this.idTable = new IdentificationTable ();
-    establishStdEnvironment();
+    this.std = parent.std;
+    this.idTable = new IdentificationTable (scope);
+    this.typeTable = parent.typeTable;
+    this.pool = parent.pool;
+    this.threshold = parent.threshold;
   }
 
   private IdentificationTable idTable;
-  private static SourcePosition dummyPos = new SourcePosition();
+  private TypeTable typeTable;
   private ErrorReporter reporter;
+  private StdEnvironment std;
+  private ForkJoinPool pool;
+  private int threshold;
+  private ArrayList<RoutineCheck> forked;
+
+  // The body of a routine depends only on the scope of its formal
+  // parameters, so it can be checked by a task of its own, against a
+  // snapshot of that scope, while the checker goes on with the rest of the
+  // program. The formal parameters themselves are checked before the task
+  // is forked, since the routine's calls depend on them too. The task
+  // reports its errors through a branch of the checker's reporter, which
+  // keeps them in their sequential place.
+
+  private boolean isLarge (AST body) {
+    return pool != null
+           && body.position.finishOffset - body.position.startOffset >= threshold;
+  }
+
+  private void fork (Declaration routine) {
+    RoutineCheck task = new RoutineCheck(routine,
+        new Checker(this, idTable.snapshot(), reporter.branch()));
+    if (forked == null)
+      forked = new ArrayList<RoutineCheck>();
+    forked.add(task);
+    pool.execute(task);
+  }
+
+  private void joinForked () {
+    if (forked != null) {
+      for (RoutineCheck task : forked)
+        task.join();
+      forked = null;
+    }
+  }
+
+  private static final class RoutineCheck extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final Declaration routine;
+    final Checker checker;
+
+    RoutineCheck (Declaration routine, Checker checker) {
+      this.routine = routine;
+      this.checker = checker;
+    }
+
+    protected void compute () {
+      if (routine instanceof ProcDeclaration)
+        checker.checkProcBody((ProcDeclaration) routine);
+      else
+        checker.checkFuncBody((FuncDeclaration) routine);
+      checker.joinForked();
+    }
+  }
 
   // Reports that the identifier or operator used at a leaf of the AST
   // has not been declared.
@@ -709,7 +912,7 @@ public final class Checker implements Visitor {
   }
 
 
-  private static TypeDenoter checkFieldIdentifier(FieldTypeDenoter ast, Identifier I) {
+  private TypeDenoter checkFieldIdentifier(FieldTypeDenoter ast, Identifier I) {
     if (ast instanceof MultipleFieldTypeDenoter) {
       MultipleFieldTypeDenoter ft = (MultipleFieldTypeDenoter) ast;
       if (ft.I.spelling.compareTo(I.spelling) == 0) {
@@ -725,184 +928,21 @@ public final class Checker implements Visitor {
         return ft.T;
       }
     }
-    return StdEnvironment.errorType;
+    return std.errorType;
   }
 
-
-  // Creates a small AST to represent the "declaration" of a standard
-  // type, and enters it in the identification table.
-
-  private TypeDeclaration declareStdType (String id, TypeDenoter typedenoter) {
-
-    TypeDeclaration binding;
-
-    binding = new TypeDeclaration(new Identifier(id, dummyPos), typedenoter, dummyPos);
-    idTable.enter(id, binding);
-    return binding;
-  }
-
-  // Creates a small AST to represent the "declaration" of a standard
-  // type, and enters it in the identification table.
-
-  private ConstDeclaration declareStdConst (String id, TypeDenoter constType) {
-
-    IntegerExpression constExpr;
-    ConstDeclaration binding;
-
-    // constExpr used only as a placeholder for constType
-    constExpr = new IntegerExpression(null, dummyPos);
-    constExpr.type = constType;
-    binding = new ConstDeclaration(new Identifier(id, dummyPos), constExpr, dummyPos);
-    idTable.enter(id, binding);
-    return binding;
-  }
-
-  // Creates a small AST to represent the "declaration" of a standard
-  // type, and enters it in the identification table.
-
-  private ProcDeclaration declareStdProc (String id, FormalParameterSequence fps) {
-
-    ProcDeclaration binding;
-
-    binding = new ProcDeclaration(new Identifier(id, dummyPos), fps,
-                                  new EmptyCommand(dummyPos), dummyPos);
-    idTable.enter(id, binding);
-    return binding;
-  }
-
-  // Creates a small AST to represent the "declaration" of a standard
-  // type, and enters it in the identification table.
-
-  private FuncDeclaration declareStdFunc (String id, FormalParameterSequence fps,
-                                          TypeDenoter resultType) {
-
-    FuncDeclaration binding;
-
-    binding = new FuncDeclaration(new Identifier(id, dummyPos), fps, resultType,
-                                  new EmptyExpression(dummyPos), dummyPos);
-    idTable.enter(id, binding);
-    return binding;
-  }
-
-  // Creates a small AST to represent the "declaration" of a
-  // unary operator, and enters it in the identification table.
-  // This "declaration" summarises the operator's type info.
-
-  private UnaryOperatorDeclaration declareStdUnaryOp
-    (String op, TypeDenoter argType, TypeDenoter resultType) {
-
-    UnaryOperatorDeclaration binding;
-
-    binding = new UnaryOperatorDeclaration (new Operator(op, dummyPos),
-                                            argType, resultType, dummyPos);
-    idTable.enter(op, binding);
-    return binding;
-  }
-
-  // Creates a small AST to represent the "declaration" of a
-  // binary operator, and enters it in the identification table.
-  // This "declaration" summarises the operator's type info.
-
-  private BinaryOperatorDeclaration declareStdBinaryOp
-    (String op, TypeDenoter arg1Type, TypeDenoter arg2type, TypeDenoter resultType) {
-
-    BinaryOperatorDeclaration binding;
-
-    binding = new BinaryOperatorDeclaration (new Operator(op, dummyPos),
-                                             arg1Type, arg2type, resultType, dummyPos);
-    idTable.enter(op, binding);
-    return binding;
-  }
-
-  // Creates small ASTs to represent the standard types.
-  // Creates small ASTs to represent "declarations" of standard types,
-  // constants, procedures, functions, and operators.
-  // Enters these "declarations" in the identification table.
-
-  private final static Identifier dummyI = new Identifier("", dummyPos);
-
-  private void establishStdEnvironment () {
-
-    // idTable.startIdentification();
-    StdEnvironment.booleanType = new BoolTypeDenoter(dummyPos);
-    StdEnvironment.integerType = new IntTypeDenoter(dummyPos);
-    StdEnvironment.charType = new CharTypeDenoter(dummyPos);
-    StdEnvironment.anyType = new AnyTypeDenoter(dummyPos);
-    StdEnvironment.errorType = new ErrorTypeDenoter(dummyPos);
-
-    StdEnvironment.booleanDecl = declareStdType("Boolean", StdEnvironment.booleanType);
-    StdEnvironment.falseDecl = declareStdConst("false", StdEnvironment.booleanType);
-    StdEnvironment.trueDecl = declareStdConst("true", StdEnvironment.booleanType);
-    StdEnvironment.notDecl = declareStdUnaryOp("\\", StdEnvironment.booleanType, StdEnvironment.booleanType);
-    StdEnvironment.andDecl = declareStdBinaryOp("/\\", StdEnvironment.booleanType, StdEnvironment.booleanType, StdEnvironment.booleanType);
-    StdEnvironment.orDecl = declareStdBinaryOp("\\/", StdEnvironment.booleanType, StdEnvironment.booleanType, StdEnvironment.booleanType);
-
-    StdEnvironment.integerDecl = declareStdType("Integer", StdEnvironment.integerType);
-    StdEnvironment.maxintDecl = declareStdConst("maxint", StdEnvironment.integerType);
-    StdEnvironment.addDecl = declareStdBinaryOp("+", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.integerType);
-    StdEnvironment.subtractDecl = declareStdBinaryOp("-", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.integerType);
-    StdEnvironment.multiplyDecl = declareStdBinaryOp("*", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.integerType);
-    StdEnvironment.divideDecl = declareStdBinaryOp("/", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.integerType);
-    StdEnvironment.moduloDecl = declareStdBinaryOp("//", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.integerType);
-    StdEnvironment.lessDecl = declareStdBinaryOp("<", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.booleanType);
-    StdEnvironment.notgreaterDecl = declareStdBinaryOp("<=", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.booleanType);
-    StdEnvironment.greaterDecl = declareStdBinaryOp(">", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.booleanType);
-    StdEnvironment.notlessDecl = declareStdBinaryOp(">=", StdEnvironment.integerType, StdEnvironment.integerType, StdEnvironment.booleanType);
-
-    StdEnvironment.charDecl = declareStdType("Char", StdEnvironment.charType);
-    StdEnvironment.chrDecl = declareStdFunc("chr", new SingleFormalParameterSequence(
-                                      new ConstFormalParameter(dummyI, StdEnvironment.integerType, dummyPos), dummyPos), StdEnvironment.charType);
-    StdEnvironment.ordDecl = declareStdFunc("ord", new SingleFormalParameterSequence(
-                                      new ConstFormalParameter(dummyI, StdEnvironment.charType, dummyPos), dummyPos), StdEnvironment.integerType);
-    StdEnvironment.eofDecl = declareStdFunc("eof", new EmptyFormalParameterSequence(dummyPos), StdEnvironment.booleanType);
-    StdEnvironment.eolDecl = declareStdFunc("eol", new EmptyFormalParameterSequence(dummyPos), StdEnvironment.booleanType);
-    StdEnvironment.getDecl = declareStdProc("get", new SingleFormalParameterSequence(
-                                      new VarFormalParameter(dummyI, StdEnvironment.charType, dummyPos), dummyPos));
-    StdEnvironment.putDecl = declareStdProc("put", new SingleFormalParameterSequence(
-                                      new ConstFormalParameter(dummyI, StdEnvironment.charType, dummyPos), dummyPos));
-    StdEnvironment.getintDecl = declareStdProc("getint", new SingleFormalParameterSequence(
-                                            new VarFormalParameter(dummyI, StdEnvironment.integerType, dummyPos), dummyPos));
-    StdEnvironment.putintDecl = declareStdProc("putint", new SingleFormalParameterSequence(
-                                            new ConstFormalParameter(dummyI, StdEnvironment.integerType, dummyPos), dummyPos));
-    StdEnvironment.geteolDecl = declareStdProc("geteol", new EmptyFormalParameterSequence(dummyPos));
-    StdEnvironment.puteolDecl = declareStdProc("puteol", new EmptyFormalParameterSequence(dummyPos));
-    StdEnvironment.equalDecl = declareStdBinaryOp("=", StdEnvironment.anyType, StdEnvironment.anyType, StdEnvironment.booleanType);
-    StdEnvironment.unequalDecl = declareStdBinaryOp("\\=", StdEnvironment.anyType, StdEnvironment.anyType, StdEnvironment.booleanType);
-
-  }
-
-    @Override
-    public Object visitUntilCommand(UntilCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
-    @Override
-    public Object visitDoUntilCommand(DoUntilCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
-    @Override
-    public Object visitDoWhileCommand(DoWhileCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
-    @Override
-    public Object visitForCommand(ForCommand ast, Object o) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
-    }
-
     @Override
-    public Object visitElsIfCommand(ElsIfCommand ast, Object o) {
+    public TypeDenoter visitElsIfCommand(ElsIfCommand ast, AST o) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    public Object visitVarInitialized(VarInitialized ast, Object o) {
+    public TypeDenoter visitVarInitialized(VarInitialized ast, AST o) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    public Object visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Object o) {
+    public TypeDenoter visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, AST o) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 }
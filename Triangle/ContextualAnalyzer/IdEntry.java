@@ -22,12 +22,15 @@ public class IdEntry {
   protected Declaration attr;
   protected int level;
   protected IdEntry previous;
+  protected IdEntry shadowed; // the entry for the same id that this hides
 
-  IdEntry (String id, Declaration attr, int level, IdEntry previous) {
+  IdEntry (String id, Declaration attr, int level, IdEntry previous,
+           IdEntry shadowed) {
     this.id = id;
     this.attr = attr;
     this.level = level;
     this.previous = previous;
+    this.shadowed = shadowed;
   }
 
 }
@@ -16,14 +16,62 @@ package Triangle.ContextualAnalyzer;
 
 import Triangle.AbstractSyntaxTrees.Declaration;
 
+import java.util.HashMap;
+
+// Entries are chained in the order they were made, through previous, so
+// that closing a scope undoes its entries most recent first. Each
+// identifier is also mapped to its innermost entry, which is chained
+// through shadowed to the outer entries it hides. Entering and retrieving
+// an identifier thus take constant time however many are in scope.
+//
+// A table may be layered on a frozen base table, whose scopes then lie
+// beneath its own. The base table is consulted but never changed, so one
+// base may be shared by many tables, on any number of threads.
+
 public final class IdentificationTable {
 
   private int level;
   private IdEntry latest;
+  private HashMap<String, IdEntry> innermost;
+  private final IdentificationTable base;
+  private boolean frozen;
 
   public IdentificationTable () {
-    level = 0;
+    this(null);
+  }
+
+  public IdentificationTable (IdentificationTable base) {
+    if (base != null && !base.frozen)
+      throw new IllegalArgumentException("base table is not frozen");
+    this.base = base;
+    level = (base == null) ? 0 : base.level;
     latest = null;
+    innermost = new HashMap<String, IdEntry>();
+    frozen = false;
+  }
+
+  // Forbids any further change to the table, so that it can serve as the
+  // base of other tables.
+
+  public void freeze () {
+    frozen = true;
+  }
+
+  // Returns a frozen copy of the table as it now stands, on which a table
+  // may be layered to go on from here independently of this one.
+
+  public IdentificationTable snapshot () {
+    IdentificationTable copy = new IdentificationTable(base);
+    copy.innermost = new HashMap<String, IdEntry>(innermost);
+    copy.level = level;
+    copy.latest = latest;
+    copy.frozen = true;
+    return copy;
+  }
+
+  private void checkNotFrozen () {
+    if (frozen)
+      throw new IllegalStateException("identification table is frozen");
   }
 
   // Opens a new level in the identification table, 1 higher than the
@@ -31,6 +79,7 @@ public final class IdentificationTable {
 
   public void openScope () {
 
+    checkNotFrozen();
     level ++;
   }
 
@@ -41,10 +90,15 @@ public final class IdentificationTable {
 
     IdEntry entry, local;
 
+    checkNotFrozen();
     // Presumably, idTable.level > 0.
     entry = this.latest;
-    while (entry.level == this.level) {
+    while (entry != null && entry.level == this.level) {
       local = entry;
+      if (local.shadowed == null)
+        innermost.remove(local.id);
+      else
+        innermost.put(local.id, local.shadowed);
       entry = local.previous;
     }
     this.level--;
@@ -58,24 +112,17 @@ public final class IdentificationTable {
 
   public void enter (String id, Declaration attr) {
 
-    IdEntry entry = this.latest;
-    boolean present = false, searching = true;
+    checkNotFrozen();
+    IdEntry outer = innermost.get(id);
+    IdEntry found = (outer == null && base != null)
+                    ? base.lookup(id) : outer;
 
     // Check for duplicate entry ...
-    while (searching) {
-      if (entry == null || entry.level < this.level)
-        searching = false;
-      else if (entry.id.equals(id)) {
-        present = true;
-        searching = false;
-       } else
-       entry = entry.previous;
-    }
-
-    attr.duplicated = present;
+    attr.duplicated = (found != null && found.level == this.level);
     // Add new entry ...
-    entry = new IdEntry(id, attr, this.level, this.latest);
+    IdEntry entry = new IdEntry(id, attr, this.level, this.latest, outer);
     this.latest = entry;
+    innermost.put(id, entry);
   }
 
   // Finds an entry for the given identifier in the identification table,
@@ -86,23 +133,18 @@ public final class IdentificationTable {
 
   public Declaration retrieve (String id) {
 
-    IdEntry entry;
-    Declaration attr = null;
-    boolean present = false, searching = true;
+    IdEntry entry = lookup(id);
+    return (entry == null) ? null : entry.attr;
+  }
 
-    entry = this.latest;
-    while (searching) {
-      if (entry == null)
-        searching = false;
-      else if (entry.id.equals(id)) {
-        present = true;
-        searching = false;
-        attr = entry.attr;
-      } else
-        entry = entry.previous;
-    }
+  // Finds the innermost entry for the given identifier, in this table or
+  // else in its base tables.
 
-    return attr;
+  private IdEntry lookup (String id) {
+    IdEntry entry = innermost.get(id);
+    if (entry == null && base != null)
+      return base.lookup(id);
+    return entry;
   }
 
 }
@@ -0,0 +1,153 @@
+/*
+ * @(#)IdentificationTableBenchmark.java
+ *
+ * Times identifier lookup in the identification table, hashed by
+ * identifier, and in the chain of entries that it replaced.
+ */
+
+package Triangle.ContextualAnalyzer;
+
+import Triangle.AbstractSyntaxTrees.Declaration;
+import Triangle.AbstractSyntaxTrees.Identifier;
+import Triangle.AbstractSyntaxTrees.TypeDenoter;
+import Triangle.AbstractSyntaxTrees.VarDeclaration;
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+import java.util.Random;
+
+/**
+ * Compares retrieval from IdentificationTable with retrieval by the
+ * former linear search of its entries, with each given number of
+ * identifiers declared in one scope. Each lookup is of a declared
+ * identifier chosen at random, spelt by a string of its own, as it would
+ * be in a program. Both tables must retrieve the same declaration for
+ * every identifier.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.ContextualAnalyzer.IdentificationTableBenchmark 100 1000 10000
+ * </pre>
+ */
+public final class IdentificationTableBenchmark {
+
+  private final static int ROUNDS = 20;
+  private final static int LOOKUPS = 100000;
+
+  public static void main (String[] args) {
+    int[] sizes = {100, 1000, 10000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++)
+        sizes[i] = Integer.parseInt(args[i]);
+    }
+    for (int s = 0; s < sizes.length; s++)
+      run(sizes[s]);
+  }
+
+  private static void run (int size) {
+    Random random = new Random(1);
+    IdentificationTable hashed = new IdentificationTable();
+    LinearTable linear = new LinearTable();
+    hashed.openScope();
+    linear.openScope();
+    for (int i = 0; i < size; i++) {
+      String id = "v" + i;
+      hashed.enter(id, declaration(id));
+      linear.enter(id, declaration(id));
+    }
+
+    String[] lookups = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++)
+      lookups[i] = new String("v" + random.nextInt(size));
+
+    for (int i = 0; i < lookups.length; i++) {
+      Declaration d1 = hashed.retrieve(lookups[i]);
+      Declaration d2 = linear.retrieve(lookups[i]);
+      if (d1 == null || d2 == null || !spelling(d1).equals(spelling(d2))) {
+        System.out.println("Tables disagree on \"" + lookups[i] + "\"");
+        System.exit(1);
+      }
+    }
+
+    // the first rounds only warm up the JIT compiler
+    for (int round = 0; round < ROUNDS; round++) {
+      long hashTime = timeHashed(hashed, lookups);
+      long linearTime = timeLinear(linear, lookups);
+      if (round >= ROUNDS / 2)
+        System.out.println(size + " declared: hashed "
+                           + nsPer(hashTime, LOOKUPS) + " ns, linear "
+                           + nsPer(linearTime, LOOKUPS) + " ns per lookup");
+    }
+  }
+
+  private static Declaration declaration (String id) {
+    SourcePosition pos = new SourcePosition();
+    return new VarDeclaration(new Identifier(id, pos), (TypeDenoter) null, pos);
+  }
+
+  private static String spelling (Declaration d) {
+    return ((VarDeclaration) d).I.spelling;
+  }
+
+  // The identification table as it used to be: a chain of entries, most
+  // recent first, searched from the start by every enter and retrieve.
+
+  static final class LinearTable {
+
+    private int level;
+    private IdEntry latest;
+
+    void openScope () {
+      level ++;
+    }
+
+    void enter (String id, Declaration attr) {
+      IdEntry entry = latest;
+      boolean present = false;
+      while (entry != null && entry.level == level && !present) {
+        present = entry.id.equals(id);
+        entry = entry.previous;
+      }
+      attr.duplicated = present;
+      latest = new IdEntry(id, attr, level, latest, null);
+    }
+
+    Declaration retrieve (String id) {
+      for (IdEntry entry = latest; entry != null; entry = entry.previous)
+        if (entry.id.equals(id))
+          return entry.attr;
+      return null;
+    }
+  }
+
+  // Each timing counts the declarations it finds into sink, so that its
+  // work cannot be optimized away.
+
+  private static long sink;
+
+  private static long timeHashed (IdentificationTable table, String[] lookups) {
+    long start = System.nanoTime();
+    long found = 0;
+    for (int i = 0; i < lookups.length; i++)
+      if (table.retrieve(lookups[i]) != null)
+        found++;
+    long time = System.nanoTime() - start;
+    sink += found;
+    return time;
+  }
+
+  private static long timeLinear (LinearTable table, String[] lookups) {
+    long start = System.nanoTime();
+    long found = 0;
+    for (int i = 0; i < lookups.length; i++)
+      if (table.retrieve(lookups[i]) != null)
+        found++;
+    long time = System.nanoTime() - start;
+    sink += found;
+    return time;
+  }
+
+  private static String nsPer (long time, int count) {
+    return String.format("%.1f", (double) time / count);
+  }
+}
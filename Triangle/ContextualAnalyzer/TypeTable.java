@@ -0,0 +1,168 @@
+/*
+ * @(#)TypeTable.java
+ *
+ * Keeps a single canonical instance of each structurally distinct array
+ * and record type, so that checked types can be compared by reference.
+ */
+
+package Triangle.ContextualAnalyzer;
+
+import Triangle.AbstractSyntaxTrees.ArrayTypeDenoter;
+import Triangle.AbstractSyntaxTrees.BoolTypeDenoter;
+import Triangle.AbstractSyntaxTrees.CharTypeDenoter;
+import Triangle.AbstractSyntaxTrees.FieldTypeDenoter;
+import Triangle.AbstractSyntaxTrees.Identifier;
+import Triangle.AbstractSyntaxTrees.IntTypeDenoter;
+import Triangle.AbstractSyntaxTrees.IntegerLiteral;
+import Triangle.AbstractSyntaxTrees.MultipleFieldTypeDenoter;
+import Triangle.AbstractSyntaxTrees.RecordTypeDenoter;
+import Triangle.AbstractSyntaxTrees.SingleFieldTypeDenoter;
+import Triangle.AbstractSyntaxTrees.TypeDenoter;
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+// A type is entered once its components have been checked, and so are
+// themselves canonical or primitive. Its structural hash is computed from
+// the hashes of its components, which are kept for every canonical type.
+//
+// A record type is kept whole, with its own chain of field type denoters,
+// because the code generator records the offset of each field on its
+// field type denoter, and that offset depends on the fields before it.
+//
+// A type with the error type among its components is not entered, and
+// keeps the structural equality by which it equals any type that differs
+// only where it has the error type.
+//
+// Routine bodies checked in parallel share one table, so that each type
+// still has a single canonical instance. That instance is a copy, without
+// a source position, of whichever instance is entered first, so it is the
+// same whatever order the bodies happen to be checked in.
+
+public final class TypeTable {
+
+  private final static int ARRAY = 1, RECORD = 2;
+
+  private final HashMap<Key, TypeDenoter> types;
+  private final IdentityHashMap<TypeDenoter, Integer> hashes;
+
+  public TypeTable () {
+    types = new HashMap<Key, TypeDenoter>();
+    hashes = new IdentityHashMap<TypeDenoter, Integer>();
+  }
+
+  // Returns the canonical instance of the given array or record type,
+  // making one from the given type if there is none yet.
+
+  public synchronized TypeDenoter enter (TypeDenoter type) {
+    Key key;
+    if (type instanceof ArrayTypeDenoter) {
+      ArrayTypeDenoter aType = (ArrayTypeDenoter) type;
+      key = new Key(ARRAY, new String[] {aType.IL.spelling},
+                    new TypeDenoter[] {aType.T});
+    } else if (type instanceof RecordTypeDenoter) {
+      ArrayList<String> names = new ArrayList<String>();
+      ArrayList<TypeDenoter> parts = new ArrayList<TypeDenoter>();
+      FieldTypeDenoter ft = ((RecordTypeDenoter) type).FT;
+      while (ft instanceof MultipleFieldTypeDenoter) {
+        MultipleFieldTypeDenoter mft = (MultipleFieldTypeDenoter) ft;
+        names.add(mft.I.spelling);
+        parts.add(mft.T);
+        ft = mft.FT;
+      }
+      SingleFieldTypeDenoter sft = (SingleFieldTypeDenoter) ft;
+      names.add(sft.I.spelling);
+      parts.add(sft.T);
+      key = new Key(RECORD, names.toArray(new String[names.size()]),
+                    parts.toArray(new TypeDenoter[parts.size()]));
+    } else
+      return type;
+
+    int hash = key.kind;
+    for (int i = 0; i < key.parts.length; i++) {
+      int partHash = hashOf(key.parts[i]);
+      if (partHash < 0)
+        return type;
+      hash = 31 * (31 * hash + key.names[i].hashCode()) + partHash;
+    }
+    key.hash = hash & 0x7FFFFFFF;
+
+    TypeDenoter canonical = types.get(key);
+    if (canonical == null) {
+      canonical = copy(key);
+      canonical.canonical = true;
+      types.put(key, canonical);
+      hashes.put(canonical, Integer.valueOf(key.hash));
+    }
+    return canonical;
+  }
+
+  private static TypeDenoter copy (Key key) {
+    SourcePosition position = new SourcePosition();
+    int last = key.parts.length - 1;
+    if (key.kind == ARRAY)
+      return new ArrayTypeDenoter(new IntegerLiteral(key.names[0], position),
+                                  key.parts[0], position);
+    FieldTypeDenoter ft = new SingleFieldTypeDenoter(
+        new Identifier(key.names[last], position), key.parts[last], position);
+    for (int i = last - 1; i >= 0; i--)
+      ft = new MultipleFieldTypeDenoter(new Identifier(key.names[i], position),
+                                        key.parts[i], ft, position);
+    return new RecordTypeDenoter(ft, position);
+  }
+
+  public synchronized int size () {
+    return types.size();
+  }
+
+  // Returns the structural hash of a canonical or primitive type, or -1 if
+  // the type is neither.
+
+  private int hashOf (TypeDenoter type) {
+    if (type.canonical)
+      return hashes.get(type).intValue();
+    else if (type instanceof BoolTypeDenoter)
+      return 3;
+    else if (type instanceof CharTypeDenoter)
+      return 4;
+    else if (type instanceof IntTypeDenoter)
+      return 5;
+    else
+      return -1;
+  }
+
+  // The parts of a key are compared by reference, being canonical or
+  // primitive.
+
+  private static final class Key {
+
+    final int kind;
+    final String[] names;
+    final TypeDenoter[] parts;
+    int hash;
+
+    Key (int kind, String[] names, TypeDenoter[] parts) {
+      this.kind = kind;
+      this.names = names;
+      this.parts = parts;
+    }
+
+    public int hashCode () {
+      return hash;
+    }
+
+    public boolean equals (Object obj) {
+      if (!(obj instanceof Key))
+        return false;
+      Key key = (Key) obj;
+      if (key.kind != kind || key.parts.length != parts.length)
+        return false;
+      for (int i = 0; i < parts.length; i++)
+        if (key.parts[i] != parts[i] || !key.names[i].equals(names[i]))
+          return false;
+      return true;
+    }
+  }
+}
@@ -16,27 +16,81 @@ package Triangle;
 
 import Triangle.SyntacticAnalyzer.SourcePosition;
 
+import java.util.ArrayList;
+
 public class ErrorReporter {
 
   int numErrors;
 
-  ErrorReporter() {
+  // A deferred reporter keeps its reports instead of printing them, along
+  // with the reporters branched from it, each in the place where it was
+  // branched. Committing it prints the reports in the order they would
+  // have been printed had none of them been deferred.
+  private final ArrayList<Object> kept;
+
+  public ErrorReporter() {
+    this(false);
+  }
+
+  private ErrorReporter(boolean deferred) {
+    numErrors = 0;
+    kept = deferred ? new ArrayList<Object>() : null;
+  }
+
+  public static ErrorReporter deferred() {
+    return new ErrorReporter(true);
+  }
+
+  // Returns a deferred reporter whose reports belong at this point among
+  // those of this one, which must itself be deferred.
+
+  public ErrorReporter branch() {
+    ErrorReporter branch = new ErrorReporter(true);
+    kept.add(branch);
+    return branch;
+  }
+
+  // Prints the reports of this deferred reporter and of its branches on
+  // the given reporter, and counts its errors there.
+
+  public void commit(ErrorReporter target) {
+    for (Object item : kept)
+      if (item instanceof ErrorReporter)
+        ((ErrorReporter) item).commit(target);
+      else
+        target.print((String) item);
+    target.numErrors += numErrors;
+    kept.clear();
     numErrors = 0;
   }
 
+  public int errorCount() {
+    return numErrors;
+  }
+
+  private void print(String report) {
+    if (kept != null)
+      kept.add(report);
+    else
+      System.out.println(report);
+  }
+
   public void reportError(String message, String tokenName, SourcePosition pos) {
-    System.out.print ("ERROR: ");
+    // The report is printed as a single line, so that it is not broken up
+    // by those of other compilations running at the same time.
+    StringBuilder report = new StringBuilder("ERROR: ");
 
     for (int p = 0; p < message.length(); p++)
     if (message.charAt(p) == '%')
-      System.out.print(tokenName);
+      report.append(tokenName);
     else
-      System.out.print(message.charAt(p));
-    System.out.println(" " + pos.start + ".." + pos.finish);
+      report.append(message.charAt(p));
+    report.append(" " + pos.start + ".." + pos.finish);
+    print(report.toString());
     numErrors++;
   }
 
   public void reportRestriction(String message) {
-    System.out.println("RESTRICTION: " + message);
+    print("RESTRICTION: " + message);
   }
 }
@@ -0,0 +1,456 @@
+/*
+ * @(#)CallGraph.java
+ *
+ * Records which routines of a program call which, and which are passed as
+ * parameters, so that the encoder can decide which routines to inline.
+ */
+
+package Triangle.Optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import Triangle.AbstractSyntaxTrees.*;
+
+// Each visitor method is given the declaration of the routine whose body
+// contains the node, or null within the program's own command. A call is
+// recorded against that routine; the body of a routine declared within it
+// is a routine of its own, whose calls are recorded against itself.
+//
+// A call of a routine parameter is recorded against the parameter, whose
+// actual routine is unknown. Only a routine that escapes, by being passed
+// as a parameter, can be called that way, so a routine that neither
+// escapes nor is recursive in this graph can be inlined without end.
+
+public final class CallGraph implements Visitor<Void, AST> {
+
+  private IdentityHashMap<AST, Set<AST>> callees =
+      new IdentityHashMap<AST, Set<AST>>();
+  private Set<AST> escaping =
+      Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+  private Set<AST> nesting =
+      Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+
+  public CallGraph (Program ast) {
+    ast.visit(this, null);
+  }
+
+  // Returns true iff the routine may call itself, directly or through
+  // other routines.
+
+  public boolean isRecursive (AST routine) {
+    Set<AST> reached = Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+    ArrayList<AST> pending = new ArrayList<AST>();
+    pending.add(routine);
+    while (!pending.isEmpty()) {
+      Set<AST> called = callees.get(pending.remove(pending.size() - 1));
+      if (called == null)
+        continue;
+      for (AST callee : called) {
+        if (callee == routine)
+          return true;
+        else if (reached.add(callee))
+          pending.add(callee);
+      }
+    }
+    return false;
+  }
+
+  // Returns true iff the routine is passed as a parameter anywhere.
+
+  public boolean escapes (AST routine) {
+    return escaping.contains(routine);
+  }
+
+  // Returns true iff the routine declares routines of its own.
+
+  public boolean declaresRoutines (AST routine) {
+    return nesting.contains(routine);
+  }
+
+  private void noteCall (AST caller, AST callee) {
+    Set<AST> called = callees.get(caller);
+    if (called == null) {
+      called = Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+      callees.put(caller, called);
+    }
+    called.add(callee);
+  }
+
+  // Commands
+
+  public Void visitAssignCommand(AssignCommand ast, AST routine) {
+    ast.V.visit(this, routine);
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitCallCommand(CallCommand ast, AST routine) {
+    noteCall(routine, ast.I.decl);
+    ast.APS.visit(this, routine);
+    return null;
+  }
+
+  public Void visitDoUntilCommand(DoUntilCommand ast, AST routine) {
+    ast.C.visit(this, routine);
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitDoWhileCommand(DoWhileCommand ast, AST routine) {
+    ast.C.visit(this, routine);
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitEmptyCommand(EmptyCommand ast, AST routine) {
+    return null;
+  }
+
+  public Void visitElsIfCommand(ElsIfCommand ast, AST routine) {
+    ast.E1.visit(this, routine);
+    ast.C.visit(this, routine);
+    ast.C2.visit(this, routine);
+    return null;
+  }
+
+  public Void visitErrorCommand(ErrorCommand ast, AST routine) {
+    return null;
+  }
+
+  public Void visitForCommand(ForCommand ast, AST routine) {
+    ast.E1.visit(this, routine);
+    ast.E2.visit(this, routine);
+    ast.C.visit(this, routine);
+    return null;
+  }
+
+  public Void visitIfCommand(IfCommand ast, AST routine) {
+    ast.E.visit(this, routine);
+    ast.C1.visit(this, routine);
+    ast.C2.visit(this, routine);
+    return null;
+  }
+
+  public Void visitLetCommand(LetCommand ast, AST routine) {
+    ast.D.visit(this, routine);
+    ast.C.visit(this, routine);
+    return null;
+  }
+
+  public Void visitSequentialCommand(SequentialCommand ast, AST routine) {
+    for (int i = 0; i < ast.CS.length; i++)
+      ast.CS[i].visit(this, routine);
+    return null;
+  }
+
+  public Void visitUntilCommand(UntilCommand ast, AST routine) {
+    ast.E.visit(this, routine);
+    ast.C.visit(this, routine);
+    return null;
+  }
+
+  public Void visitWhileCommand(WhileCommand ast, AST routine) {
+    ast.E.visit(this, routine);
+    ast.C.visit(this, routine);
+    return null;
+  }
+
+  // Expressions
+
+  public Void visitArrayExpression(ArrayExpression ast, AST routine) {
+    ast.AA.visit(this, routine);
+    return null;
+  }
+
+  public Void visitBinaryExpression(BinaryExpression ast, AST routine) {
+    ast.E1.visit(this, routine);
+    ast.E2.visit(this, routine);
+    return null;
+  }
+
+  public Void visitCallExpression(CallExpression ast, AST routine) {
+    noteCall(routine, ast.I.decl);
+    ast.APS.visit(this, routine);
+    return null;
+  }
+
+  public Void visitCharacterExpression(CharacterExpression ast, AST routine) {
+    return null;
+  }
+
+  public Void visitEmptyExpression(EmptyExpression ast, AST routine) {
+    return null;
+  }
+
+  public Void visitErrorExpression(ErrorExpression ast, AST routine) {
+    return null;
+  }
+
+  public Void visitIfExpression(IfExpression ast, AST routine) {
+    ast.E1.visit(this, routine);
+    ast.E2.visit(this, routine);
+    ast.E3.visit(this, routine);
+    return null;
+  }
+
+  public Void visitIntegerExpression(IntegerExpression ast, AST routine) {
+    return null;
+  }
+
+  public Void visitLetExpression(LetExpression ast, AST routine) {
+    ast.D.visit(this, routine);
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitRecordExpression(RecordExpression ast, AST routine) {
+    ast.RA.visit(this, routine);
+    return null;
+  }
+
+  public Void visitUnaryExpression(UnaryExpression ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitVnameExpression(VnameExpression ast, AST routine) {
+    ast.V.visit(this, routine);
+    return null;
+  }
+
+  // Declarations
+
+  public Void visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, AST routine) {
+    return null;
+  }
+
+  public Void visitConstDeclaration(ConstDeclaration ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitErrorDeclaration(ErrorDeclaration ast, AST routine) {
+    return null;
+  }
+
+  public Void visitFuncDeclaration(FuncDeclaration ast, AST routine) {
+    if (routine != null)
+      nesting.add(routine);
+    ast.E.visit(this, ast);
+    return null;
+  }
+
+  public Void visitProcDeclaration(ProcDeclaration ast, AST routine) {
+    if (routine != null)
+      nesting.add(routine);
+    ast.C.visit(this, ast);
+    return null;
+  }
+
+  public Void visitSequentialDeclaration(SequentialDeclaration ast, AST routine) {
+    for (int i = 0; i < ast.DS.length; i++)
+      ast.DS[i].visit(this, routine);
+    return null;
+  }
+
+  public Void visitTypeDeclaration(TypeDeclaration ast, AST routine) {
+    return null;
+  }
+
+  public Void visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, AST routine) {
+    return null;
+  }
+
+  public Void visitVarDeclaration(VarDeclaration ast, AST routine) {
+    return null;
+  }
+
+  public Void visitVarInitialized(VarInitialized ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  // Array Aggregates
+
+  public Void visitMultipleArrayAggregate(MultipleArrayAggregate ast, AST routine) {
+    ast.E.visit(this, routine);
+    ast.AA.visit(this, routine);
+    return null;
+  }
+
+  public Void visitSingleArrayAggregate(SingleArrayAggregate ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  // Record Aggregates
+
+  public Void visitMultipleRecordAggregate(MultipleRecordAggregate ast, AST routine) {
+    ast.E.visit(this, routine);
+    ast.RA.visit(this, routine);
+    return null;
+  }
+
+  public Void visitSingleRecordAggregate(SingleRecordAggregate ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  // Formal Parameters
+
+  public Void visitConstFormalParameter(ConstFormalParameter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitFuncFormalParameter(FuncFormalParameter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitProcFormalParameter(ProcFormalParameter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitVarFormalParameter(VarFormalParameter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, AST routine) {
+    return null;
+  }
+
+  public Void visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, AST routine) {
+    return null;
+  }
+
+  public Void visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, AST routine) {
+    return null;
+  }
+
+  // Actual Parameters
+
+  public Void visitConstActualParameter(ConstActualParameter ast, AST routine) {
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  public Void visitFuncActualParameter(FuncActualParameter ast, AST routine) {
+    escaping.add(ast.I.decl);
+    return null;
+  }
+
+  public Void visitProcActualParameter(ProcActualParameter ast, AST routine) {
+    escaping.add(ast.I.decl);
+    return null;
+  }
+
+  public Void visitVarActualParameter(VarActualParameter ast, AST routine) {
+    ast.V.visit(this, routine);
+    return null;
+  }
+
+  public Void visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, AST routine) {
+    return null;
+  }
+
+  public Void visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, AST routine) {
+    ast.AP.visit(this, routine);
+    ast.APS.visit(this, routine);
+    return null;
+  }
+
+  public Void visitSingleActualParameterSequence(SingleActualParameterSequence ast, AST routine) {
+    ast.AP.visit(this, routine);
+    return null;
+  }
+
+  // Type Denoters
+
+  public Void visitAnyTypeDenoter(AnyTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitArrayTypeDenoter(ArrayTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, AST routine) {
+    return null;
+  }
+
+  public Void visitBoolTypeDenoter(BoolTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitCharTypeDenoter(CharTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitErrorTypeDenoter(ErrorTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitSimpleTypeDenoter(SimpleTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitIntTypeDenoter(IntTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitRecordTypeDenoter(RecordTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  public Void visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, AST routine) {
+    return null;
+  }
+
+  // Literals, Identifiers and Operators
+
+  public Void visitCharacterLiteral(CharacterLiteral ast, AST routine) {
+    return null;
+  }
+
+  public Void visitIdentifier(Identifier ast, AST routine) {
+    return null;
+  }
+
+  public Void visitIntegerLiteral(IntegerLiteral ast, AST routine) {
+    return null;
+  }
+
+  public Void visitOperator(Operator ast, AST routine) {
+    return null;
+  }
+
+  // Value-or-variable names
+
+  public Void visitDotVname(DotVname ast, AST routine) {
+    ast.V.visit(this, routine);
+    return null;
+  }
+
+  public Void visitSimpleVname(SimpleVname ast, AST routine) {
+    return null;
+  }
+
+  public Void visitSubscriptVname(SubscriptVname ast, AST routine) {
+    ast.V.visit(this, routine);
+    ast.E.visit(this, routine);
+    return null;
+  }
+
+  // Programs
+
+  public Void visitProgram(Program ast, AST routine) {
+    ast.C.visit(this, routine);
+    return null;
+  }
+}
@@ -0,0 +1,544 @@
+/*
+ * @(#)ConstantFolder.java
+ *
+ * Evaluates at compile time those expressions whose operands are all known,
+ * between contextual analysis and code generation.
+ */
+
+package Triangle.Optimizer;
+
+import TAM.Machine;
+import Triangle.CompilationContext;
+import Triangle.StdEnvironment;
+import Triangle.AbstractSyntaxTrees.*;
+import Triangle.SyntacticAnalyzer.SourcePosition;
+
+// Each visitor method folds the phrases within its node, and returns the
+// phrase that is to replace the node: the node itself, a literal, or one
+// branch of a conditional whose condition is known.
+//
+// A known value is left as an integer or character literal, or as a use of
+// the standard constant true or false, so the folded AST is still one the
+// checker could have produced. The encoder elaborates a constant declared
+// with a known value as a KnownValue, and loads it literally wherever it
+// is used.
+//
+// Standard operators are evaluated exactly as TAM evaluates them. An
+// arithmetic operation whose result would overflow, or that divides by
+// zero, is left to fail at run-time.
+
+public final class ConstantFolder implements Visitor<AST, Void> {
+
+  private final StdEnvironment std;
+
+  public ConstantFolder (CompilationContext context) {
+    std = context.stdEnvironment;
+  }
+
+  public void fold (Program ast) {
+    ast.visit(this, null);
+  }
+
+  private Expression fold (Expression E) {
+    return (Expression) E.visit(this, null);
+  }
+
+  private Command fold (Command C) {
+    return (Command) C.visit(this, null);
+  }
+
+  // Commands
+
+  public AST visitAssignCommand(AssignCommand ast, Void o) {
+    ast.V.visit(this, null);
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitCallCommand(CallCommand ast, Void o) {
+    ast.APS.visit(this, null);
+    return ast;
+  }
+
+  public AST visitDoUntilCommand(DoUntilCommand ast, Void o) {
+    ast.C = fold(ast.C);
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitDoWhileCommand(DoWhileCommand ast, Void o) {
+    ast.C = fold(ast.C);
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitEmptyCommand(EmptyCommand ast, Void o) {
+    return ast;
+  }
+
+  public AST visitElsIfCommand(ElsIfCommand ast, Void o) {
+    ast.E1 = fold(ast.E1);
+    ast.C = fold(ast.C);
+    ast.C2 = fold(ast.C2);
+    return ast;
+  }
+
+  public AST visitErrorCommand(ErrorCommand ast, Void o) {
+    return ast;
+  }
+
+  public AST visitForCommand(ForCommand ast, Void o) {
+    ast.E1 = fold(ast.E1);
+    ast.E2 = fold(ast.E2);
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  public AST visitIfCommand(IfCommand ast, Void o) {
+    ast.E = fold(ast.E);
+    ast.C1 = fold(ast.C1);
+    ast.C2 = fold(ast.C2);
+    if (isKnown(ast.E))
+      return (valueOf(ast.E) == Machine.trueRep) ? ast.C1 : ast.C2;
+    return ast;
+  }
+
+  public AST visitLetCommand(LetCommand ast, Void o) {
+    ast.D.visit(this, null);
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  public AST visitSequentialCommand(SequentialCommand ast, Void o) {
+    for (int i = 0; i < ast.CS.length; i++)
+      ast.CS[i] = fold(ast.CS[i]);
+    return ast;
+  }
+
+  public AST visitUntilCommand(UntilCommand ast, Void o) {
+    ast.E = fold(ast.E);
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  public AST visitWhileCommand(WhileCommand ast, Void o) {
+    ast.E = fold(ast.E);
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  // Expressions
+
+  public AST visitArrayExpression(ArrayExpression ast, Void o) {
+    ast.AA.visit(this, null);
+    return ast;
+  }
+
+  public AST visitBinaryExpression(BinaryExpression ast, Void o) {
+    ast.E1 = fold(ast.E1);
+    ast.E2 = fold(ast.E2);
+    if (!isKnown(ast.E1) || !isKnown(ast.E2))
+      return ast;
+    long v1 = valueOf(ast.E1), v2 = valueOf(ast.E2);
+    Declaration op = ast.O.decl;
+    if (op == std.addDecl)
+      return integer(v1 + v2, ast);
+    else if (op == std.subtractDecl)
+      return integer(v1 - v2, ast);
+    else if (op == std.multiplyDecl)
+      return integer(v1 * v2, ast);
+    else if (op == std.divideDecl)
+      return (v2 == 0) ? ast : integer(v1 / v2, ast);
+    else if (op == std.moduloDecl)
+      return (v2 == 0) ? ast : integer(v1 % v2, ast);
+    else if (op == std.lessDecl)
+      return truthValue(v1 < v2, ast);
+    else if (op == std.notgreaterDecl)
+      return truthValue(v1 <= v2, ast);
+    else if (op == std.greaterDecl)
+      return truthValue(v1 > v2, ast);
+    else if (op == std.notlessDecl)
+      return truthValue(v1 >= v2, ast);
+    else if (op == std.equalDecl)
+      return truthValue(v1 == v2, ast);
+    else if (op == std.unequalDecl)
+      return truthValue(v1 != v2, ast);
+    else if (op == std.andDecl)
+      return truthValue(v1 == Machine.trueRep && v2 == Machine.trueRep, ast);
+    else if (op == std.orDecl)
+      return truthValue(v1 == Machine.trueRep || v2 == Machine.trueRep, ast);
+    else
+      return ast;
+  }
+
+  public AST visitCallExpression(CallExpression ast, Void o) {
+    ast.APS.visit(this, null);
+    return ast;
+  }
+
+  public AST visitCharacterExpression(CharacterExpression ast, Void o) {
+    return ast;
+  }
+
+  public AST visitEmptyExpression(EmptyExpression ast, Void o) {
+    return ast;
+  }
+
+  public AST visitErrorExpression(ErrorExpression ast, Void o) {
+    return ast;
+  }
+
+  public AST visitIfExpression(IfExpression ast, Void o) {
+    ast.E1 = fold(ast.E1);
+    ast.E2 = fold(ast.E2);
+    ast.E3 = fold(ast.E3);
+    if (isKnown(ast.E1))
+      return (valueOf(ast.E1) == Machine.trueRep) ? ast.E2 : ast.E3;
+    return ast;
+  }
+
+  public AST visitIntegerExpression(IntegerExpression ast, Void o) {
+    return ast;
+  }
+
+  public AST visitLetExpression(LetExpression ast, Void o) {
+    ast.D.visit(this, null);
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitRecordExpression(RecordExpression ast, Void o) {
+    ast.RA.visit(this, null);
+    return ast;
+  }
+
+  public AST visitUnaryExpression(UnaryExpression ast, Void o) {
+    ast.E = fold(ast.E);
+    if (isKnown(ast.E) && ast.O.decl == std.notDecl)
+      return truthValue(valueOf(ast.E) != Machine.trueRep, ast);
+    return ast;
+  }
+
+  // A use of a constant declared with a known value is replaced by that
+  // value. The constant's declaration has always been folded by now, since
+  // it precedes the use.
+
+  public AST visitVnameExpression(VnameExpression ast, Void o) {
+    ast.V.visit(this, null);
+    if (!(ast.V instanceof SimpleVname))
+      return ast;
+    AST binding = ((SimpleVname) ast.V).I.decl;
+    if (binding == std.maxintDecl)
+      return integer(Machine.maxintRep, ast);
+    else if (binding == std.trueDecl || binding == std.falseDecl
+             || !(binding instanceof ConstDeclaration))
+      return ast;
+    Expression value = ((ConstDeclaration) binding).E;
+    if (!isKnown(value))
+      return ast;
+    else if (value instanceof IntegerExpression)
+      return integer(valueOf(value), ast);
+    else if (value instanceof CharacterExpression)
+      return character(((CharacterExpression) value).CL.spelling, ast);
+    else
+      return truthValue(valueOf(value) == Machine.trueRep, ast);
+  }
+
+  // Declarations
+
+  public AST visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Void o) {
+    return ast;
+  }
+
+  public AST visitConstDeclaration(ConstDeclaration ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitErrorDeclaration(ErrorDeclaration ast, Void o) {
+    return ast;
+  }
+
+  public AST visitFuncDeclaration(FuncDeclaration ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitProcDeclaration(ProcDeclaration ast, Void o) {
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  public AST visitSequentialDeclaration(SequentialDeclaration ast, Void o) {
+    for (int i = 0; i < ast.DS.length; i++)
+      ast.DS[i].visit(this, null);
+    return ast;
+  }
+
+  public AST visitTypeDeclaration(TypeDeclaration ast, Void o) {
+    return ast;
+  }
+
+  public AST visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Void o) {
+    return ast;
+  }
+
+  public AST visitVarDeclaration(VarDeclaration ast, Void o) {
+    return ast;
+  }
+
+  public AST visitVarInitialized(VarInitialized ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  // Array Aggregates
+
+  public AST visitMultipleArrayAggregate(MultipleArrayAggregate ast, Void o) {
+    ast.E = fold(ast.E);
+    ast.AA.visit(this, null);
+    return ast;
+  }
+
+  public AST visitSingleArrayAggregate(SingleArrayAggregate ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  // Record Aggregates
+
+  public AST visitMultipleRecordAggregate(MultipleRecordAggregate ast, Void o) {
+    ast.E = fold(ast.E);
+    ast.RA.visit(this, null);
+    return ast;
+  }
+
+  public AST visitSingleRecordAggregate(SingleRecordAggregate ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  // Formal Parameters
+
+  public AST visitConstFormalParameter(ConstFormalParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitFuncFormalParameter(FuncFormalParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitProcFormalParameter(ProcFormalParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitVarFormalParameter(VarFormalParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Void o) {
+    return ast;
+  }
+
+  public AST visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Void o) {
+    return ast;
+  }
+
+  public AST visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Void o) {
+    return ast;
+  }
+
+  // Actual Parameters
+
+  public AST visitConstActualParameter(ConstActualParameter ast, Void o) {
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  public AST visitFuncActualParameter(FuncActualParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitProcActualParameter(ProcActualParameter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitVarActualParameter(VarActualParameter ast, Void o) {
+    ast.V.visit(this, null);
+    return ast;
+  }
+
+  public AST visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Void o) {
+    return ast;
+  }
+
+  public AST visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Void o) {
+    ast.AP.visit(this, null);
+    ast.APS.visit(this, null);
+    return ast;
+  }
+
+  public AST visitSingleActualParameterSequence(SingleActualParameterSequence ast, Void o) {
+    ast.AP.visit(this, null);
+    return ast;
+  }
+
+  // Type Denoters
+
+  public AST visitAnyTypeDenoter(AnyTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitArrayTypeDenoter(ArrayTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Void o) {
+    return ast;
+  }
+
+  public AST visitBoolTypeDenoter(BoolTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitCharTypeDenoter(CharTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitErrorTypeDenoter(ErrorTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitSimpleTypeDenoter(SimpleTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitIntTypeDenoter(IntTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitRecordTypeDenoter(RecordTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  public AST visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Void o) {
+    return ast;
+  }
+
+  // Literals, Identifiers and Operators
+
+  public AST visitCharacterLiteral(CharacterLiteral ast, Void o) {
+    return ast;
+  }
+
+  public AST visitIdentifier(Identifier ast, Void o) {
+    return ast;
+  }
+
+  public AST visitIntegerLiteral(IntegerLiteral ast, Void o) {
+    return ast;
+  }
+
+  public AST visitOperator(Operator ast, Void o) {
+    return ast;
+  }
+
+  // Value-or-variable names
+  // A v-name is never replaced, but the index of an array component is
+  // folded, so that the encoder can compute its offset statically.
+
+  public AST visitDotVname(DotVname ast, Void o) {
+    ast.V.visit(this, null);
+    return ast;
+  }
+
+  public AST visitSimpleVname(SimpleVname ast, Void o) {
+    return ast;
+  }
+
+  public AST visitSubscriptVname(SubscriptVname ast, Void o) {
+    ast.V.visit(this, null);
+    ast.E = fold(ast.E);
+    return ast;
+  }
+
+  // Programs
+
+  public AST visitProgram(Program ast, Void o) {
+    ast.C = fold(ast.C);
+    return ast;
+  }
+
+  // Known values
+
+  // Returns true iff the expression has been folded to a known value.
+
+  private boolean isKnown (Expression E) {
+    if (E instanceof IntegerExpression) {
+      try {
+        Integer.parseInt(((IntegerExpression) E).IL.spelling);
+        return true;
+      } catch (NumberFormatException e) {
+        return false; // too large even to load: leave it to the encoder
+      }
+    } else if (E instanceof CharacterExpression)
+      return true;
+    else if (E instanceof VnameExpression
+             && ((VnameExpression) E).V instanceof SimpleVname) {
+      AST binding = ((SimpleVname) ((VnameExpression) E).V).I.decl;
+      return binding == std.trueDecl || binding == std.falseDecl;
+    } else
+      return false;
+  }
+
+  // Returns the machine representation of a known value.
+
+  private int valueOf (Expression E) {
+    if (E instanceof IntegerExpression)
+      return Integer.parseInt(((IntegerExpression) E).IL.spelling);
+    else if (E instanceof CharacterExpression)
+      return ((CharacterExpression) E).CL.spelling.charAt(1);
+    else if (((SimpleVname) ((VnameExpression) E).V).I.decl == std.trueDecl)
+      return Machine.trueRep;
+    else
+      return Machine.falseRep;
+  }
+
+  // Each of these makes a known value to replace the given expression, at
+  // the same position.
+
+  private Expression integer (long value, Expression E) {
+    if (value < -Machine.maxintRep || value > Machine.maxintRep)
+      return E; // TAM would fail with overflow
+    SourcePosition position = E.position;
+    Expression result = new IntegerExpression(
+        new IntegerLiteral(Long.toString(value), position), position);
+    result.type = std.integerType;
+    return result;
+  }
+
+  private Expression character (String spelling, Expression E) {
+    SourcePosition position = E.position;
+    Expression result = new CharacterExpression(
+        new CharacterLiteral(spelling, position), position);
+    result.type = std.charType;
+    return result;
+  }
+
+  private Expression truthValue (boolean value, Expression E) {
+    SourcePosition position = E.position;
+    ConstDeclaration binding = value ? std.trueDecl : std.falseDecl;
+    Identifier I = new Identifier(binding.I.spelling, position);
+    I.decl = binding;
+    SimpleVname V = new SimpleVname(I, position);
+    V.type = std.booleanType;
+    V.variable = false;
+    Expression result = new VnameExpression(V, position);
+    result.type = std.booleanType;
+    return result;
+  }
+}
@@ -0,0 +1,587 @@
+/*
+ * @(#)LoopInvariantFinder.java
+ *
+ * Finds the phrases of a loop whose values cannot change while the loop
+ * runs, so that the encoder can evaluate them once, before the loop.
+ */
+
+package Triangle.Optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import Triangle.CompilationContext;
+import Triangle.StdEnvironment;
+import Triangle.AbstractSyntaxTrees.*;
+
+// The loop is walked twice. The first walk notes every variable that the
+// loop may update, by assignment or as a var actual parameter, and every
+// constant, variable and control variable that the loop itself declares.
+// A call of any procedure but a standard one may update any variable, as
+// may an assignment to a var formal parameter, which may be an alias of
+// any variable. Triangle expressions have no side effects, so nothing else
+// updates anything.
+//
+// The second walk finds the phrases that are invariant, and returns the
+// largest of them. Each visit of an expression returns true iff its value
+// is invariant: it is a literal, or a standard operator applied to
+// invariant operands, or a constant or variable that the loop neither
+// declares nor updates. Each visit of a v-name returns true iff its
+// address is invariant: it is not declared by the loop, and every index
+// in it is invariant. Such a v-name is hoisted for the sake of its index
+// arithmetic alone, even when the variable is updated.
+//
+// A hoisted phrase is evaluated before the loop, but only once the loop is
+// certain to be entered. An expression that could fail at run-time, by
+// overflow or division by zero, is hoisted only if the loop's condition is
+// tested first, and is certain to evaluate it in that first test; any
+// other phrase could fail earlier than it would have. The scaling of an
+// index by the size of an array's components is not counted as failing:
+// an index large enough to overflow is outside the array in any case.
+// The bodies of routines declared in the loop are not searched.
+
+public final class LoopInvariantFinder implements Visitor<Boolean, Void> {
+
+  private final StdEnvironment std;
+  private final boolean shortCircuiting;
+
+  // If shortCircuiting is true, the right operand of /\ or \/ is not
+  // certain to be evaluated.
+
+  public LoopInvariantFinder (CompilationContext context,
+                              boolean shortCircuiting) {
+    std = context.stdEnvironment;
+    this.shortCircuiting = shortCircuiting;
+  }
+
+  private Set<AST> declared, updated;
+  private boolean updatesAnything;
+  private boolean finding;
+  private boolean certain;
+  private ArrayList<AST> invariants;
+
+  // Returns the phrases to be hoisted out of the loop with condition E and
+  // body C, each an expression or a v-name. testedFirst is true iff E is
+  // tested before C is first executed.
+
+  public ArrayList<AST> find (Expression E, Command C, boolean testedFirst) {
+    declared = Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+    updated = Collections.newSetFromMap(new IdentityHashMap<AST, Boolean>());
+    updatesAnything = false;
+    invariants = new ArrayList<AST>();
+    finding = false;
+    certain = false;
+    E.visit(this, null);
+    C.visit(this, null);
+    finding = true;
+    certain = testedFirst;
+    offer(E, E.visit(this, null));
+    certain = false;
+    C.visit(this, null);
+    return invariants;
+  }
+
+  // Commands
+
+  public Boolean visitAssignCommand(AssignCommand ast, Void o) {
+    noteUpdate(ast.V);
+    offer(ast.V, ast.V.visit(this, null));
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitCallCommand(CallCommand ast, Void o) {
+    if (!isStandard(ast.I.decl))
+      updatesAnything = true;
+    ast.APS.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitDoUntilCommand(DoUntilCommand ast, Void o) {
+    ast.C.visit(this, null);
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitDoWhileCommand(DoWhileCommand ast, Void o) {
+    ast.C.visit(this, null);
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitEmptyCommand(EmptyCommand ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitElsIfCommand(ElsIfCommand ast, Void o) {
+    offer(ast.E1, ast.E1.visit(this, null));
+    ast.C.visit(this, null);
+    ast.C2.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitErrorCommand(ErrorCommand ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitForCommand(ForCommand ast, Void o) {
+    declared.add(ast.I.decl);
+    offer(ast.E1, ast.E1.visit(this, null));
+    offer(ast.E2, ast.E2.visit(this, null));
+    ast.C.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitIfCommand(IfCommand ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    ast.C1.visit(this, null);
+    ast.C2.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitLetCommand(LetCommand ast, Void o) {
+    ast.D.visit(this, null);
+    ast.C.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitSequentialCommand(SequentialCommand ast, Void o) {
+    for (int i = 0; i < ast.CS.length; i++)
+      ast.CS[i].visit(this, null);
+    return null;
+  }
+
+  public Boolean visitUntilCommand(UntilCommand ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    ast.C.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitWhileCommand(WhileCommand ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    ast.C.visit(this, null);
+    return null;
+  }
+
+  // Expressions
+
+  public Boolean visitArrayExpression(ArrayExpression ast, Void o) {
+    ast.AA.visit(this, null);
+    return false;
+  }
+
+  public Boolean visitBinaryExpression(BinaryExpression ast, Void o) {
+    boolean wasCertain = certain, invariant;
+    boolean invariant1 = ast.E1.visit(this, null);
+    if (shortCircuiting && (ast.O.decl == std.andDecl || ast.O.decl == std.orDecl))
+      certain = false; // the right operand may be skipped
+    boolean invariant2 = ast.E2.visit(this, null);
+    invariant = isStandard(ast.O.decl) && invariant1 && invariant2;
+    if (!invariant)
+      offer(ast.E2, invariant2);
+    certain = wasCertain;
+    if (!invariant)
+      offer(ast.E1, invariant1);
+    return invariant;
+  }
+
+  public Boolean visitCallExpression(CallExpression ast, Void o) {
+    ast.APS.visit(this, null);
+    return false;
+  }
+
+  public Boolean visitCharacterExpression(CharacterExpression ast, Void o) {
+    return true;
+  }
+
+  public Boolean visitEmptyExpression(EmptyExpression ast, Void o) {
+    return false;
+  }
+
+  public Boolean visitErrorExpression(ErrorExpression ast, Void o) {
+    return false;
+  }
+
+  public Boolean visitIfExpression(IfExpression ast, Void o) {
+    boolean wasCertain = certain;
+    offer(ast.E1, ast.E1.visit(this, null));
+    certain = false;
+    offer(ast.E2, ast.E2.visit(this, null));
+    offer(ast.E3, ast.E3.visit(this, null));
+    certain = wasCertain;
+    return false;
+  }
+
+  public Boolean visitIntegerExpression(IntegerExpression ast, Void o) {
+    return true;
+  }
+
+  public Boolean visitLetExpression(LetExpression ast, Void o) {
+    ast.D.visit(this, null);
+    offer(ast.E, ast.E.visit(this, null));
+    return false;
+  }
+
+  public Boolean visitRecordExpression(RecordExpression ast, Void o) {
+    ast.RA.visit(this, null);
+    return false;
+  }
+
+  public Boolean visitUnaryExpression(UnaryExpression ast, Void o) {
+    boolean invariant = ast.E.visit(this, null);
+    if (isStandard(ast.O.decl) && invariant)
+      return true;
+    offer(ast.E, invariant);
+    return false;
+  }
+
+  public Boolean visitVnameExpression(VnameExpression ast, Void o) {
+    boolean invariant = ast.V.visit(this, null);
+    if (invariant && unchanging(baseDeclaration(ast.V)))
+      return true;
+    offer(ast.V, invariant);
+    return false;
+  }
+
+  // Declarations
+  // A routine declared in the loop is noted, but its body is not searched.
+
+  public Boolean visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Void o) {
+    declared.add(ast);
+    return null;
+  }
+
+  public Boolean visitConstDeclaration(ConstDeclaration ast, Void o) {
+    declared.add(ast);
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitErrorDeclaration(ErrorDeclaration ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitFuncDeclaration(FuncDeclaration ast, Void o) {
+    declared.add(ast);
+    return null;
+  }
+
+  public Boolean visitProcDeclaration(ProcDeclaration ast, Void o) {
+    declared.add(ast);
+    return null;
+  }
+
+  public Boolean visitSequentialDeclaration(SequentialDeclaration ast, Void o) {
+    for (int i = 0; i < ast.DS.length; i++)
+      ast.DS[i].visit(this, null);
+    return null;
+  }
+
+  public Boolean visitTypeDeclaration(TypeDeclaration ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Void o) {
+    declared.add(ast);
+    return null;
+  }
+
+  public Boolean visitVarDeclaration(VarDeclaration ast, Void o) {
+    declared.add(ast);
+    return null;
+  }
+
+  public Boolean visitVarInitialized(VarInitialized ast, Void o) {
+    declared.add(ast);
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  // Array Aggregates
+
+  public Boolean visitMultipleArrayAggregate(MultipleArrayAggregate ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    ast.AA.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitSingleArrayAggregate(SingleArrayAggregate ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  // Record Aggregates
+
+  public Boolean visitMultipleRecordAggregate(MultipleRecordAggregate ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    ast.RA.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitSingleRecordAggregate(SingleRecordAggregate ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  // Formal Parameters
+
+  public Boolean visitConstFormalParameter(ConstFormalParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitFuncFormalParameter(FuncFormalParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitProcFormalParameter(ProcFormalParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitVarFormalParameter(VarFormalParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Void o) {
+    return null;
+  }
+
+  // Actual Parameters
+
+  public Boolean visitConstActualParameter(ConstActualParameter ast, Void o) {
+    offer(ast.E, ast.E.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitFuncActualParameter(FuncActualParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitProcActualParameter(ProcActualParameter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitVarActualParameter(VarActualParameter ast, Void o) {
+    noteUpdate(ast.V);
+    offer(ast.V, ast.V.visit(this, null));
+    return null;
+  }
+
+  public Boolean visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Void o) {
+    ast.AP.visit(this, null);
+    ast.APS.visit(this, null);
+    return null;
+  }
+
+  public Boolean visitSingleActualParameterSequence(SingleActualParameterSequence ast, Void o) {
+    ast.AP.visit(this, null);
+    return null;
+  }
+
+  // Type Denoters
+
+  public Boolean visitAnyTypeDenoter(AnyTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitArrayTypeDenoter(ArrayTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitBoolTypeDenoter(BoolTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitCharTypeDenoter(CharTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitErrorTypeDenoter(ErrorTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitSimpleTypeDenoter(SimpleTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitIntTypeDenoter(IntTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitRecordTypeDenoter(RecordTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Void o) {
+    return null;
+  }
+
+  // Literals, Identifiers and Operators
+
+  public Boolean visitCharacterLiteral(CharacterLiteral ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitIdentifier(Identifier ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitIntegerLiteral(IntegerLiteral ast, Void o) {
+    return null;
+  }
+
+  public Boolean visitOperator(Operator ast, Void o) {
+    return null;
+  }
+
+  // Value-or-variable names
+
+  public Boolean visitDotVname(DotVname ast, Void o) {
+    return ast.V.visit(this, null);
+  }
+
+  public Boolean visitSimpleVname(SimpleVname ast, Void o) {
+    return !declared.contains(ast.I.decl);
+  }
+
+  public Boolean visitSubscriptVname(SubscriptVname ast, Void o) {
+    boolean invariant = ast.V.visit(this, null);
+    boolean indexInvariant = ast.E.visit(this, null);
+    if (invariant && indexInvariant)
+      return true;
+    offer(ast.V, invariant);
+    offer(ast.E, indexInvariant);
+    return false;
+  }
+
+  // Programs
+
+  public Boolean visitProgram(Program ast, Void o) {
+    return null;
+  }
+
+  // Invariant phrases
+
+  // Records an expression or v-name that the caller has found to be
+  // invariant, but that is not part of a larger invariant phrase, if it is
+  // worth hoisting and may be hoisted. Otherwise its parts are offered in
+  // its place, since they may be hoisted where it may not.
+
+  private void offer (AST phrase, boolean invariant) {
+    if (!finding || !invariant)
+      return;
+    else if (!canFail(phrase) || certain) {
+      if (phrase instanceof BinaryExpression || phrase instanceof UnaryExpression
+          || phrase instanceof SubscriptVname || phrase instanceof DotVname
+          || (phrase instanceof VnameExpression
+              && !(((VnameExpression) phrase).V instanceof SimpleVname)))
+        invariants.add(phrase);
+    } else if (phrase instanceof BinaryExpression) {
+      offer(((BinaryExpression) phrase).E1, true);
+      offer(((BinaryExpression) phrase).E2, true);
+    } else if (phrase instanceof UnaryExpression)
+      offer(((UnaryExpression) phrase).E, true);
+    else if (phrase instanceof VnameExpression)
+      offer(((VnameExpression) phrase).V, true);
+    else if (phrase instanceof DotVname)
+      offer(((DotVname) phrase).V, true);
+    else if (phrase instanceof SubscriptVname) {
+      offer(((SubscriptVname) phrase).V, true);
+      offer(((SubscriptVname) phrase).E, true);
+    }
+  }
+
+  // Returns true iff evaluating the phrase could fail at run-time.
+
+  private boolean canFail (AST phrase) {
+    if (phrase instanceof BinaryExpression) {
+      BinaryExpression E = (BinaryExpression) phrase;
+      Declaration op = E.O.decl;
+      return op == std.addDecl || op == std.subtractDecl
+          || op == std.multiplyDecl || op == std.divideDecl
+          || op == std.moduloDecl || canFail(E.E1) || canFail(E.E2);
+    } else if (phrase instanceof UnaryExpression)
+      return canFail(((UnaryExpression) phrase).E);
+    else if (phrase instanceof VnameExpression)
+      return canFail(((VnameExpression) phrase).V);
+    else if (phrase instanceof DotVname)
+      return canFail(((DotVname) phrase).V);
+    else if (phrase instanceof SubscriptVname)
+      return canFail(((SubscriptVname) phrase).V)
+          || canFail(((SubscriptVname) phrase).E);
+    else
+      return false;
+  }
+
+  // Notes that the variable named by V may be updated in the loop.
+
+  private void noteUpdate (Vname V) {
+    if (finding)
+      return;
+    AST decl = baseDeclaration(V);
+    if (decl instanceof VarFormalParameter)
+      updatesAnything = true;
+    else
+      updated.add(decl);
+  }
+
+  // Returns true iff the value of the named constant or variable cannot
+  // change while the loop runs.
+
+  private boolean unchanging (AST decl) {
+    if (declared.contains(decl))
+      return false;
+    else if (decl instanceof ConstDeclaration || decl instanceof ConstFormalParameter)
+      return true;
+    else if (decl instanceof VarDeclaration)
+      return !updatesAnything && !updated.contains(decl);
+    else if (decl instanceof VarFormalParameter)
+      // could be an alias of any variable
+      return !updatesAnything && updated.isEmpty();
+    else
+      return false;
+  }
+
+  private static AST baseDeclaration (Vname V) {
+    while (!(V instanceof SimpleVname))
+      V = (V instanceof DotVname) ? ((DotVname) V).V : ((SubscriptVname) V).V;
+    return ((SimpleVname) V).I.decl;
+  }
+
+  // Returns true iff the operator or procedure is one of the standard
+  // environment's, none of which updates anything but its var parameters.
+
+  private boolean isStandard (AST decl) {
+    return decl == std.notDecl || decl == std.andDecl || decl == std.orDecl
+        || decl == std.addDecl || decl == std.subtractDecl
+        || decl == std.multiplyDecl || decl == std.divideDecl
+        || decl == std.moduloDecl || decl == std.equalDecl
+        || decl == std.unequalDecl || decl == std.lessDecl
+        || decl == std.notlessDecl || decl == std.greaterDecl
+        || decl == std.notgreaterDecl
+        || decl == std.getDecl || decl == std.putDecl
+        || decl == std.getintDecl || decl == std.putintDecl
+        || decl == std.geteolDecl || decl == std.puteolDecl;
+  }
+}
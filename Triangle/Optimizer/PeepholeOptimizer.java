@@ -0,0 +1,314 @@
+/*
+ * @(#)PeepholeOptimizer.java
+ *
+ * Improves finished TAM object code by rewriting short sequences of
+ * instructions, before it is saved.
+ */
+
+package Triangle.Optimizer;
+
+import TAM.Instruction;
+import TAM.Machine;
+
+// Each pass first threads jumps to jumps through to their final targets,
+// then copies the code, dropping whatever cannot be reached after an
+// unconditional transfer of control, and rewriting any window of
+// instructions matched by a rule of the table. No window may extend past a
+// jump target, except to start at one. A pass ends by relocating every
+// code address to the instruction's new address. Passes are repeated until
+// the code shrinks no further, since one rewrite can enable another.
+//
+// An instruction addresses code iff it is a JUMP, JUMPIF, LOOP, CALL or
+// LOADA relative to CB; no other instruction is ever generated relative to
+// CB.
+
+public final class PeepholeOptimizer {
+
+  private Instruction[] code;
+  private int size;
+
+  // The instructions at which control may arrive other than from the
+  // instruction before: the first, and the target of any code address.
+  private boolean[] leaders;
+
+  // Optimizes the object code in code[CB .. size-1], returning its new
+  // size.
+
+  public int optimize (Instruction[] code, int size) {
+    this.code = code;
+    this.size = size;
+    int oldSize;
+    do {
+      oldSize = this.size;
+      threadJumps();
+      findLeaders();
+      rewrite();
+    } while (this.size < oldSize);
+    for (int addr = this.size; addr < size; addr++)
+      code[addr] = null;
+    return this.size;
+  }
+
+  private void threadJumps () {
+    for (int addr = Machine.CB; addr < size; addr++) {
+      Instruction instr = code[addr];
+      if ((instr.op == Machine.JUMPop || instr.op == Machine.JUMPIFop)
+          && instr.r == Machine.CBr) {
+        // the count guards against a loop of jumps
+        for (int count = 0; count < size && instr.d < size
+                             && isJump(code[instr.d]); count++)
+          instr.d = code[instr.d].d;
+      }
+    }
+  }
+
+  private void findLeaders () {
+    leaders = new boolean[size + 1];
+    leaders[Machine.CB] = true;
+    for (int addr = Machine.CB; addr < size; addr++)
+      if (addressesCode(code[addr]))
+        leaders[code[addr].d] = true;
+  }
+
+  private void rewrite () {
+    Instruction[] result = new Instruction[size];
+    int[] newAddr = new int[size + 1];
+    int resultSize = Machine.CB;
+    int addr = Machine.CB;
+    while (addr < size) {
+      newAddr[addr] = resultSize;
+      Instruction[] replacement = null;
+      int length = 1;
+      for (int i = 0; i < rules.length && replacement == null; i++) {
+        length = rules[i].length;
+        if (fits(addr, length))
+          replacement = rules[i].apply(code, addr);
+      }
+      if (replacement == null) {
+        replacement = new Instruction[] {code[addr]};
+        length = 1;
+      }
+      for (int i = 1; i < length; i++)
+        newAddr[addr + i] = resultSize;
+      for (int i = 0; i < replacement.length; i++)
+        result[resultSize++] = replacement[i];
+      addr = addr + length;
+      if (replacement.length > 0 && endsFlow(replacement[replacement.length - 1]))
+        while (addr < size && !leaders[addr])
+          newAddr[addr++] = resultSize;
+    }
+    newAddr[size] = resultSize;
+    for (addr = Machine.CB; addr < resultSize; addr++) {
+      code[addr] = result[addr];
+      if (addressesCode(code[addr]))
+        code[addr].d = newAddr[code[addr].d];
+    }
+    size = resultSize;
+  }
+
+  // Returns true iff a window of the given length starting at addr lies
+  // within the code and contains no leader after its first instruction.
+
+  private boolean fits (int addr, int length) {
+    if (addr + length > size)
+      return false;
+    for (int i = 1; i < length; i++)
+      if (leaders[addr + i])
+        return false;
+    return true;
+  }
+
+  private static boolean addressesCode (Instruction instr) {
+    return instr.r == Machine.CBr
+        && (instr.op == Machine.JUMPop || instr.op == Machine.JUMPIFop
+            || instr.op == Machine.LOOPop || instr.op == Machine.CALLop
+            || instr.op == Machine.LOADAop);
+  }
+
+  private static boolean isJump (Instruction instr) {
+    return instr.op == Machine.JUMPop && instr.r == Machine.CBr;
+  }
+
+  // Returns true iff control never passes to the next instruction.
+
+  private static boolean endsFlow (Instruction instr) {
+    return instr.op == Machine.JUMPop || instr.op == Machine.JUMPIop
+        || instr.op == Machine.RETURNop || instr.op == Machine.HALTop;
+  }
+
+  private static boolean isPrimitiveCall (Instruction instr, int displacement) {
+    return instr.op == Machine.CALLop && instr.r == Machine.PBr
+        && instr.d == displacement;
+  }
+
+  private static boolean isLiteral (Instruction instr, int value) {
+    return instr.op == Machine.LOADLop && instr.d == value;
+  }
+
+  // Returns true iff the instruction is a LOADA of data addressed by SB or
+  // by one of LB, L1, ..., L6.
+
+  private static boolean isDataAddress (Instruction instr) {
+    return instr.op == Machine.LOADAop
+        && (instr.r == Machine.SBr
+            || (instr.r >= Machine.LBr && instr.r <= Machine.L6r));
+  }
+
+  private static boolean fitsOperand (long d) {
+    return -Machine.maxintRep <= d && d <= Machine.maxintRep;
+  }
+
+  private static Instruction instruction (int op, int n, int r, int d) {
+    Instruction instr = new Instruction();
+    instr.op = op;
+    instr.n = n;
+    instr.r = r;
+    instr.d = d;
+    return instr;
+  }
+
+  private final static Instruction[] NONE = new Instruction[0];
+
+  // RULES
+
+  // A rule matches a window of consecutive instructions, and returns those
+  // that are to replace it, or null if it does not match.
+
+  private static abstract class Rule {
+
+    final int length;
+
+    Rule (int length) {
+      this.length = length;
+    }
+
+    abstract Instruction[] apply (Instruction[] code, int addr);
+  }
+
+  private final static Rule[] rules = {
+
+    // JUMP to the next instruction  =>  nothing
+    new Rule(1) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        return (isJump(code[addr]) && code[addr].d == addr + 1) ? NONE : null;
+      }
+    },
+
+    // PUSH 0  or  POP(n) 0  =>  nothing
+    new Rule(1) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction instr = code[addr];
+        return ((instr.op == Machine.PUSHop || instr.op == Machine.POPop)
+                && instr.d == 0) ? NONE : null;
+      }
+    },
+
+    // POP(0) a; PUSH b  =>  POP(0) a-b  or  PUSH b-a  or  nothing
+    new Rule(2) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction pop = code[addr], push = code[addr + 1];
+        if (pop.op != Machine.POPop || pop.n != 0 || push.op != Machine.PUSHop)
+          return null;
+        else if (pop.d > push.d)
+          return new Instruction[] {
+            instruction(Machine.POPop, 0, 0, pop.d - push.d)};
+        else if (pop.d < push.d)
+          return new Instruction[] {
+            instruction(Machine.PUSHop, 0, 0, push.d - pop.d)};
+        else
+          return NONE;
+      }
+    },
+
+    // LOADL 0; CALL add  or  LOADL 0; CALL sub  =>  nothing
+    new Rule(2) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        return (isLiteral(code[addr], 0)
+                && (isPrimitiveCall(code[addr + 1], Machine.addDisplacement)
+                    || isPrimitiveCall(code[addr + 1], Machine.subDisplacement)))
+               ? NONE : null;
+      }
+    },
+
+    // LOADL 1; CALL mult  or  LOADL 1; CALL div  =>  nothing
+    new Rule(2) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        return (isLiteral(code[addr], 1)
+                && (isPrimitiveCall(code[addr + 1], Machine.multDisplacement)
+                    || isPrimitiveCall(code[addr + 1], Machine.divDisplacement)))
+               ? NONE : null;
+      }
+    },
+
+    // LOADL a; LOADL b; CALL add  =>  LOADL a+b, and likewise for sub and
+    // mult, unless the result would overflow
+    new Rule(3) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction left = code[addr], right = code[addr + 1];
+        long result;
+        if (left.op != Machine.LOADLop || right.op != Machine.LOADLop)
+          return null;
+        else if (isPrimitiveCall(code[addr + 2], Machine.addDisplacement))
+          result = (long) left.d + right.d;
+        else if (isPrimitiveCall(code[addr + 2], Machine.subDisplacement))
+          result = (long) left.d - right.d;
+        else if (isPrimitiveCall(code[addr + 2], Machine.multDisplacement))
+          result = (long) left.d * right.d;
+        else
+          return null;
+        if (!fitsOperand(result))
+          return null;
+        return new Instruction[] {
+          instruction(Machine.LOADLop, 0, 0, (int) result)};
+      }
+    },
+
+    // LOADA d[r]; LOADL k; CALL add  =>  LOADA d+k[r]
+    new Rule(3) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction loada = code[addr], loadl = code[addr + 1];
+        if (!isDataAddress(loada) || loadl.op != Machine.LOADLop
+            || !isPrimitiveCall(code[addr + 2], Machine.addDisplacement)
+            || !fitsOperand(loada.d + loadl.d))
+          return null;
+        return new Instruction[] {
+          instruction(Machine.LOADAop, 0, loada.r, loada.d + loadl.d)};
+      }
+    },
+
+    // LOADL k; LOADA d[r]; CALL add  =>  LOADA d+k[r]
+    new Rule(3) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction loadl = code[addr], loada = code[addr + 1];
+        if (loadl.op != Machine.LOADLop || !isDataAddress(loada)
+            || !isPrimitiveCall(code[addr + 2], Machine.addDisplacement)
+            || !fitsOperand(loada.d + loadl.d))
+          return null;
+        return new Instruction[] {
+          instruction(Machine.LOADAop, 0, loada.r, loada.d + loadl.d)};
+      }
+    },
+
+    // LOADA d[r]; LOADI(n)  =>  LOAD(n) d[r]
+    new Rule(2) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction loada = code[addr], loadi = code[addr + 1];
+        if (!isDataAddress(loada) || loadi.op != Machine.LOADIop)
+          return null;
+        return new Instruction[] {
+          instruction(Machine.LOADop, loadi.n, loada.r, loada.d)};
+      }
+    },
+
+    // LOADA d[r]; STOREI(n)  =>  STORE(n) d[r]
+    new Rule(2) {
+      Instruction[] apply (Instruction[] code, int addr) {
+        Instruction loada = code[addr], storei = code[addr + 1];
+        if (!isDataAddress(loada) || storei.op != Machine.STOREIop)
+          return null;
+        return new Instruction[] {
+          instruction(Machine.STOREop, storei.n, loada.r, loada.d)};
+      }
+    }
+  };
+}
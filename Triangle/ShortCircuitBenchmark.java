@@ -0,0 +1,117 @@
+/*
+ * @(#)ShortCircuitBenchmark.java
+ *
+ * Counts the TAM instructions that a guarded search loop executes when
+ * compiled with and without short-circuit connectives.
+ */
+
+package Triangle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+/**
+ * Compiles a search loop, guarded by <code>(i &lt; 100) /\ \ (a[i] &gt; 40)</code>
+ * and with connectives in its if conditions and in a function, once as
+ * before and once with -shortcircuit. Runs each object program on the
+ * TAM interpreter with -count, and reports the instructions each
+ * executed. Both must give the same output.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.ShortCircuitBenchmark
+ * </pre>
+ */
+public final class ShortCircuitBenchmark {
+
+  private final static String PROGRAM =
+    "let\n"
+    + "  type A ~ array 100 of Integer;\n"
+    + "  var a: A;\n"
+    + "  var i: Integer;\n"
+    + "  var n: Integer;\n"
+    + "  var hits: Integer;\n"
+    + "  var ok: Boolean;\n"
+    + "  func pos : (k: Integer): Boolean ~ (k < 100) /\\ (a[k] > 0)\n"
+    + "in\n"
+    + "  i := 0;\n"
+    + "  loop while i < 100 do a[i] := (i // 3) - 1; i := i + 1 end;\n"
+    + "  n := 0; hits := 0;\n"
+    + "  loop while n < 200 do\n"
+    + "    i := 0;\n"
+    + "    loop while (i < 100) /\\ \\ (a[i] > 40) do\n"
+    + "      if (a[i] > 0) /\\ ((a[i] // 2) = 0) \\/ (i = 99) then\n"
+    + "        hits := (hits + 1) // 10000\n"
+    + "      else\n"
+    + "        hits := hits\n"
+    + "      end;\n"
+    + "      ok := pos(i) \\/ (i > 50);\n"
+    + "      if ok then hits := (hits + 1) // 10000 else hits := hits end;\n"
+    + "      i := i + 1\n"
+    + "    end;\n"
+    + "    n := n + 1\n"
+    + "  end;\n"
+    + "  putint(hits); puteol()\n"
+    + "end\n";
+
+  private final static String COUNT_SUFFIX = " instructions executed.";
+
+  public static void main (String[] args) throws IOException {
+    File directory = Files.createTempDirectory("shortcircuit").toFile();
+    File source = new File(directory, "guard.tri");
+    Files.write(source.toPath(), PROGRAM.getBytes("US-ASCII"));
+
+    String[] full = run(source, new File(directory, "full.tam"), false);
+    String[] shorted = run(source, new File(directory, "short.tam"), true);
+    for (File file : directory.listFiles())
+      file.delete();
+    directory.delete();
+
+    if (!full[0].equals(shorted[0])) {
+      System.out.println("The two modes give different output");
+      System.exit(1);
+    }
+    long before = Long.parseLong(full[1]), after = Long.parseLong(shorted[1]);
+    System.out.println("full evaluation " + before + ", short-circuit "
+                       + after + " instructions executed ("
+                       + String.format("%+.1f", 100.0 * (after - before) / before)
+                       + "%)");
+  }
+
+  // Compiles the source program, runs it, and returns its output and the
+  // number of instructions it executed.
+
+  private static String[] run (File source, File object, boolean shortCircuiting) {
+    PrintStream out = System.out;
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    boolean compiledOK;
+    try {
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      CompilationContext context = new CompilationContext();
+      context.shortCircuiting = shortCircuiting;
+      compiledOK = Compiler.compileProgram(context, source.getPath(),
+                                           object.getPath(), false, false);
+      if (compiledOK) {
+        System.setOut(new PrintStream(output));
+        TAM.Interpreter.main(new String[] {object.getPath(), "-count"});
+        System.out.flush();
+      }
+    } finally {
+      System.setOut(out);
+    }
+    if (!compiledOK) {
+      System.out.println("The guard-loop program does not compile");
+      System.exit(1);
+    }
+
+    String text = output.toString();
+    int end = text.lastIndexOf(COUNT_SUFFIX);
+    int start = text.lastIndexOf('\n', end) + 1;
+    return new String[] {text.substring(0, start),
+                         text.substring(start, end)};
+  }
+}
@@ -14,41 +14,246 @@
 
 package Triangle;
 
+import Triangle.AbstractSyntaxTrees.AST;
+import Triangle.AbstractSyntaxTrees.AnyTypeDenoter;
 import Triangle.AbstractSyntaxTrees.BinaryOperatorDeclaration;
+import Triangle.AbstractSyntaxTrees.BoolTypeDenoter;
+import Triangle.AbstractSyntaxTrees.CharTypeDenoter;
 import Triangle.AbstractSyntaxTrees.ConstDeclaration;
+import Triangle.AbstractSyntaxTrees.ConstFormalParameter;
+import Triangle.AbstractSyntaxTrees.EmptyCommand;
+import Triangle.AbstractSyntaxTrees.EmptyExpression;
+import Triangle.AbstractSyntaxTrees.EmptyFormalParameterSequence;
+import Triangle.AbstractSyntaxTrees.ErrorTypeDenoter;
+import Triangle.AbstractSyntaxTrees.FormalParameterSequence;
 import Triangle.AbstractSyntaxTrees.FuncDeclaration;
+import Triangle.AbstractSyntaxTrees.Identifier;
+import Triangle.AbstractSyntaxTrees.IntTypeDenoter;
+import Triangle.AbstractSyntaxTrees.IntegerExpression;
+import Triangle.AbstractSyntaxTrees.Operator;
 import Triangle.AbstractSyntaxTrees.ProcDeclaration;
+import Triangle.AbstractSyntaxTrees.SingleFormalParameterSequence;
 import Triangle.AbstractSyntaxTrees.TypeDeclaration;
 import Triangle.AbstractSyntaxTrees.TypeDenoter;
 import Triangle.AbstractSyntaxTrees.UnaryOperatorDeclaration;
+import Triangle.AbstractSyntaxTrees.VarFormalParameter;
+import Triangle.CodeGenerator.Encoder;
+import Triangle.ContextualAnalyzer.IdentificationTable;
+import Triangle.SyntacticAnalyzer.SourcePosition;
 
 public final class StdEnvironment {
 
+  // The standard environment is built once, complete with the run-time
+  // entities of its declarations and the frozen scope in which they are
+  // declared, and is shared by every compilation; see CompilationContext.
+  // Every field is final and assigned by the constructor, so the shared
+  // instance is safely published to every thread that compiles.
+
+  private final static SourcePosition dummyPos = new SourcePosition();
+
+  private final static StdEnvironment shared = new StdEnvironment();
+
+  public static StdEnvironment shared () {
+    return shared;
+  }
+
+  // The level-0 scope declaring all of the below.
+
+  public final IdentificationTable scope;
+
   // These are small ASTs representing standard types.
 
-  public static TypeDenoter
+  public final TypeDenoter
     booleanType, charType, integerType, anyType, errorType;
 
-  public static TypeDeclaration
+  public final TypeDeclaration
     booleanDecl, charDecl, integerDecl;
 
   // These are small ASTs representing "declarations" of standard entities.
 
-  public static ConstDeclaration
+  public final ConstDeclaration
     falseDecl, trueDecl, maxintDecl;
 
-  public static UnaryOperatorDeclaration
+  public final UnaryOperatorDeclaration
     notDecl;
 
-  public static BinaryOperatorDeclaration
+  public final BinaryOperatorDeclaration
     andDecl, orDecl,
     addDecl, subtractDecl, multiplyDecl, divideDecl, moduloDecl,
     equalDecl, unequalDecl, lessDecl, notlessDecl, greaterDecl, notgreaterDecl;
 
-  public static ProcDeclaration
+  public final ProcDeclaration
     getDecl, putDecl, getintDecl, putintDecl, geteolDecl, puteolDecl;
 
-  public static FuncDeclaration
+  public final FuncDeclaration
     chrDecl, ordDecl, eolDecl, eofDecl;
 
+  // Creates small ASTs to represent the standard types.
+  // Creates small ASTs to represent "declarations" of standard types,
+  // constants, procedures, functions, and operators.
+  // Enters these "declarations" in the identification table, which is
+  // then frozen, and has the encoder decide their run-time entities.
+
+  private StdEnvironment () {
+
+    IdentificationTable idTable = new IdentificationTable();
+    Identifier dummyI = new Identifier("", dummyPos);
+
+    booleanType = new BoolTypeDenoter(dummyPos);
+    integerType = new IntTypeDenoter(dummyPos);
+    charType = new CharTypeDenoter(dummyPos);
+    anyType = new AnyTypeDenoter(dummyPos);
+    errorType = new ErrorTypeDenoter(dummyPos);
+
+    booleanDecl = declareStdType(idTable, "Boolean", booleanType);
+    falseDecl = declareStdConst(idTable, "false", booleanType);
+    trueDecl = declareStdConst(idTable, "true", booleanType);
+    notDecl = declareStdUnaryOp(idTable, "\\", booleanType, booleanType);
+    andDecl = declareStdBinaryOp(idTable, "/\\", booleanType, booleanType, booleanType);
+    orDecl = declareStdBinaryOp(idTable, "\\/", booleanType, booleanType, booleanType);
+
+    integerDecl = declareStdType(idTable, "Integer", integerType);
+    maxintDecl = declareStdConst(idTable, "maxint", integerType);
+    addDecl = declareStdBinaryOp(idTable, "+", integerType, integerType, integerType);
+    subtractDecl = declareStdBinaryOp(idTable, "-", integerType, integerType, integerType);
+    multiplyDecl = declareStdBinaryOp(idTable, "*", integerType, integerType, integerType);
+    divideDecl = declareStdBinaryOp(idTable, "/", integerType, integerType, integerType);
+    moduloDecl = declareStdBinaryOp(idTable, "//", integerType, integerType, integerType);
+    lessDecl = declareStdBinaryOp(idTable, "<", integerType, integerType, booleanType);
+    notgreaterDecl = declareStdBinaryOp(idTable, "<=", integerType, integerType, booleanType);
+    greaterDecl = declareStdBinaryOp(idTable, ">", integerType, integerType, booleanType);
+    notlessDecl = declareStdBinaryOp(idTable, ">=", integerType, integerType, booleanType);
+
+    charDecl = declareStdType(idTable, "Char", charType);
+    chrDecl = declareStdFunc(idTable, "chr", new SingleFormalParameterSequence(
+                                 new ConstFormalParameter(dummyI, integerType, dummyPos), dummyPos), charType);
+    ordDecl = declareStdFunc(idTable, "ord", new SingleFormalParameterSequence(
+                                 new ConstFormalParameter(dummyI, charType, dummyPos), dummyPos), integerType);
+    eofDecl = declareStdFunc(idTable, "eof", new EmptyFormalParameterSequence(dummyPos), booleanType);
+    eolDecl = declareStdFunc(idTable, "eol", new EmptyFormalParameterSequence(dummyPos), booleanType);
+    getDecl = declareStdProc(idTable, "get", new SingleFormalParameterSequence(
+                                 new VarFormalParameter(dummyI, charType, dummyPos), dummyPos));
+    putDecl = declareStdProc(idTable, "put", new SingleFormalParameterSequence(
+                                 new ConstFormalParameter(dummyI, charType, dummyPos), dummyPos));
+    getintDecl = declareStdProc(idTable, "getint", new SingleFormalParameterSequence(
+                                    new VarFormalParameter(dummyI, integerType, dummyPos), dummyPos));
+    putintDecl = declareStdProc(idTable, "putint", new SingleFormalParameterSequence(
+                                    new ConstFormalParameter(dummyI, integerType, dummyPos), dummyPos));
+    geteolDecl = declareStdProc(idTable, "geteol", new EmptyFormalParameterSequence(dummyPos));
+    puteolDecl = declareStdProc(idTable, "puteol", new EmptyFormalParameterSequence(dummyPos));
+    equalDecl = declareStdBinaryOp(idTable, "=", anyType, anyType, booleanType);
+    unequalDecl = declareStdBinaryOp(idTable, "\\=", anyType, anyType, booleanType);
+
+    idTable.freeze();
+    scope = idTable;
+
+    Encoder.elaborateStdEnvironment(this);
+  }
+
+  // Creates a small AST to represent the "declaration" of a standard
+  // type, and enters it in the identification table.
+
+  private static TypeDeclaration declareStdType
+    (IdentificationTable idTable, String id, TypeDenoter typedenoter) {
+
+    TypeDeclaration binding;
+
+    binding = new TypeDeclaration(new Identifier(id, dummyPos), typedenoter, dummyPos);
+    idTable.enter(id, binding);
+    return binding;
+  }
+
+  // Creates a small AST to represent the "declaration" of a standard
+  // constant, and enters it in the identification table.
+
+  private static ConstDeclaration declareStdConst
+    (IdentificationTable idTable, String id, TypeDenoter constType) {
+
+    IntegerExpression constExpr;
+    ConstDeclaration binding;
+
+    // constExpr used only as a placeholder for constType
+    constExpr = new IntegerExpression(null, dummyPos);
+    constExpr.type = constType;
+    binding = new ConstDeclaration(new Identifier(id, dummyPos), constExpr, dummyPos);
+    idTable.enter(id, binding);
+    return binding;
+  }
+
+  // Creates a small AST to represent the "declaration" of a standard
+  // procedure, and enters it in the identification table.
+
+  private static ProcDeclaration declareStdProc
+    (IdentificationTable idTable, String id, FormalParameterSequence fps) {
+
+    ProcDeclaration binding;
+
+    binding = new ProcDeclaration(new Identifier(id, dummyPos), fps,
+                                  new EmptyCommand(dummyPos), dummyPos);
+    idTable.enter(id, binding);
+    return binding;
+  }
+
+  // Creates a small AST to represent the "declaration" of a standard
+  // function, and enters it in the identification table.
+
+  private static FuncDeclaration declareStdFunc
+    (IdentificationTable idTable, String id, FormalParameterSequence fps,
+     TypeDenoter resultType) {
+
+    FuncDeclaration binding;
+
+    binding = new FuncDeclaration(new Identifier(id, dummyPos), fps, resultType,
+                                  new EmptyExpression(dummyPos), dummyPos);
+    idTable.enter(id, binding);
+    return binding;
+  }
+
+  // Creates a small AST to represent the "declaration" of a
+  // unary operator, and enters it in the identification table.
+  // This "declaration" summarises the operator's type info.
+
+  private static UnaryOperatorDeclaration declareStdUnaryOp
+    (IdentificationTable idTable, String op, TypeDenoter argType, TypeDenoter resultType) {
+
+    UnaryOperatorDeclaration binding;
+
+    binding = new UnaryOperatorDeclaration (new Operator(op, dummyPos),
+                                            argType, resultType, dummyPos);
+    idTable.enter(op, binding);
+    return binding;
+  }
+
+  // Creates a small AST to represent the "declaration" of a
+  // binary operator, and enters it in the identification table.
+  // This "declaration" summarises the operator's type info.
+
+  private static BinaryOperatorDeclaration declareStdBinaryOp
+    (IdentificationTable idTable, String op, TypeDenoter arg1Type, TypeDenoter arg2type,
+     TypeDenoter resultType) {
+
+    BinaryOperatorDeclaration binding;
+
+    binding = new BinaryOperatorDeclaration (new Operator(op, dummyPos),
+                                             arg1Type, arg2type, resultType, dummyPos);
+    idTable.enter(op, binding);
+    return binding;
+  }
+
+  // Returns all of the above, always in the same order.
+
+  public AST[] trees () {
+    return new AST[] {
+      booleanType, charType, integerType, anyType, errorType,
+      booleanDecl, charDecl, integerDecl,
+      falseDecl, trueDecl, maxintDecl,
+      notDecl,
+      andDecl, orDecl,
+      addDecl, subtractDecl, multiplyDecl, divideDecl, moduloDecl,
+      equalDecl, unequalDecl, lessDecl, notlessDecl, greaterDecl, notgreaterDecl,
+      getDecl, putDecl, getintDecl, putintDecl, geteolDecl, puteolDecl,
+      chrDecl, ordDecl, eolDecl, eofDecl
+    };
+  }
+
 }
@@ -0,0 +1,84 @@
+/*
+ * @(#)BufferedSourceFile.java
+ *
+ * Reads the whole source program into memory with a single bulk read and
+ * serves its characters from an index, instead of issuing one read per
+ * character as SourceFile does.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+public class BufferedSourceFile extends SourceFile {
+
+  // The length of the longest source program that can be held, that of
+  // the longest array a virtual machine will commonly allocate.
+  public static final long MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+  char[] text;
+  int length;
+  int index;
+
+  public BufferedSourceFile(String filename) throws java.io.IOException {
+    super();
+    byte[] bytes = java.nio.file.Files.readAllBytes(
+                     new java.io.File(filename).toPath());
+    sourceFile = new java.io.File(filename);
+    text = new char[bytes.length];
+    // Each byte stands for one character, exactly as FileInputStream.read()
+    // delivers it in SourceFile.
+    for (int i = 0; i < bytes.length; i++)
+      text[i] = (char) (bytes[i] & 0xFF);
+    length = text.length;
+    index = 0;
+  }
+
+  public BufferedSourceFile(char[] text) {
+    this(text, 0);
+  }
+
+  // A view of the text that starts reading at the given offset. Line
+  // numbers are counted from 1 at that offset.
+
+  BufferedSourceFile(char[] text, int offset) {
+    this(text, offset, 1);
+  }
+
+  // As above, but counting lines from the given line number, which should
+  // be the line on which the character at the offset lies, less one if
+  // that character is itself a line end.
+
+  BufferedSourceFile(char[] text, int offset, int line) {
+    super();
+    this.text = text;
+    this.length = text.length;
+    this.index = offset;
+    this.currentLine = line;
+  }
+
+  public boolean isReadable() {
+    return true;
+  }
+
+  // Returns the bytes from which the text was read, one per character.
+
+  public byte[] getBytes() {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++)
+      bytes[i] = (byte) text[i];
+    return bytes;
+  }
+
+  char getSource() {
+    currentOffset = index;
+    if (index >= length)
+      return EOT;
+    char c = text[index++];
+    if (c == EOL)
+      currentLine++;
+    return c;
+  }
+
+  int getCurrentLine() {
+    return currentLine;
+  }
+}
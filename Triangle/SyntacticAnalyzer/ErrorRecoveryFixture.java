@@ -0,0 +1,165 @@
+/*
+ * @(#)ErrorRecoveryFixture.java
+ *
+ * Checks that the parser reports each syntactic mistake in a program
+ * once, and that the damaged tree it builds gives no contextual errors.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+import Triangle.CompilationContext;
+import Triangle.ErrorReporter;
+import Triangle.AbstractSyntaxTrees.Program;
+import Triangle.ContextualAnalyzer.Checker;
+
+import java.util.ArrayList;
+
+/**
+ * Parses each of a set of small programs, every one with a known number
+ * of syntactic mistakes, and checks that the parser reports exactly one
+ * error for each. The tree it builds is then checked, and must give no
+ * contextual errors, since every declaration and scope in the programs
+ * survives the mistakes. The errors reported are shown for any program on
+ * which a count is wrong, and the fixture then fails.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.SyntacticAnalyzer.ErrorRecoveryFixture
+ * </pre>
+ */
+public final class ErrorRecoveryFixture {
+
+  // Each program is followed by the number of mistakes in it.
+
+  private final static Object[] PROGRAMS = {
+    // a colon missing in the middle of a formal parameter list
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc bump : (x Integer, var y : Integer) ~ y := x + 1 end\n"
+    + "in\n"
+    + "  bump(1, var z)\n"
+    + "end\n", 1,
+
+    // a colon missing in a var parameter
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc p : (var x Integer) ~ x := 1 end\n"
+    + "in\n"
+    + "  p(var z); putint(z)\n"
+    + "end\n", 1,
+
+    // the same, with the final end missing too
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc p : (var x Integer) ~ x := 1 end\n"
+    + "in\n"
+    + "  p(var z); putint(z)\n", 2,
+
+    // a formal parameter list that is never closed
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc p : (var x : Integer ~ x := 1 end\n"
+    + "in\n"
+    + "  p(var z)\n"
+    + "end\n", 1,
+
+    // a damaged formal procedure parameter, nested in the list
+    "let\n"
+    + "  proc q : (proc r (x Integer), var y : Integer) ~ r(y) end;\n"
+    + "  func f : (n Integer) : Integer ~ n + 1\n"
+    + "in\n"
+    + "  putint(f(1))\n"
+    + "end\n", 2,
+
+    // a colon missing after the name of a routine, and a mistake in its body
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc p (var x : Integer) ~ x := := 1 end\n"
+    + "in\n"
+    + "  p(var z)\n"
+    + "end\n", 2,
+
+    // a stray token in the body of a let
+    "let\n"
+    + "  var z : Integer\n"
+    + "in\n"
+    + "  z := 1 ) ; putint(z)\n"
+    + "end\n", 1,
+
+    // the same, in a nested let
+    "let\n"
+    + "  var z : Integer\n"
+    + "in\n"
+    + "  let\n"
+    + "    var w : Integer\n"
+    + "  in\n"
+    + "    w := 2 ) ; z := w\n"
+    + "  end;\n"
+    + "  putint(z)\n"
+    + "end\n", 1,
+
+    // no mistakes at all
+    "let\n"
+    + "  var z : Integer;\n"
+    + "  proc bump : (x : Integer, var y : Integer) ~ y := x + 1 end\n"
+    + "in\n"
+    + "  bump(1, var z); putint(z)\n"
+    + "end\n", 0,
+  };
+
+  public static void main (String[] args) {
+    boolean passed = true;
+    for (int i = 0; i < PROGRAMS.length; i += 2) {
+      String program = (String) PROGRAMS[i];
+      int mistakes = (Integer) PROGRAMS[i + 1];
+      ArrayList<String> errors = new ArrayList<String>();
+      Program programAST = parse(program, errors);
+      ErrorReporter reporter = ErrorReporter.deferred();
+      if (programAST != null)
+        new Checker(new CompilationContext(reporter)).check(programAST);
+      if (errors.size() == mistakes && reporter.errorCount() == 0)
+        continue;
+      passed = false;
+      System.out.println("Expected " + mistakes + " syntactic errors and no"
+                         + " contextual errors, but got " + errors.size()
+                         + " and " + reporter.errorCount() + ", in:");
+      System.out.print(program);
+      for (String error : errors)
+        System.out.println("  " + error);
+      reporter.commit(new ErrorReporter());
+    }
+    if (!passed)
+      System.exit(1);
+    System.out.println((PROGRAMS.length / 2) + " programs passed.");
+  }
+
+  // Any phrase event out of step with the phrases open is counted as an
+  // error too, so a program passes only if its phrases nest properly.
+
+  private static Program parse (String program,
+                                final ArrayList<String> errors) {
+    Scanner scanner = new Scanner(new BufferedSourceFile(program.toCharArray()));
+    Parser parser = new Parser(scanner, ErrorReporter.deferred());
+    final ArrayList<String> phrases = new ArrayList<String>();
+    parser.setParseListener(new ParseListener() {
+      public void tokenAccepted (Token token) {}
+      public void phraseStarted (String phrase, SourcePosition position) {
+        phrases.add(phrase);
+      }
+      public void phraseFinished (String phrase, SourcePosition position) {
+        if (phrases.isEmpty()
+            || !phrases.remove(phrases.size() - 1).equals(phrase))
+          errors.add("unmatched finish of " + phrase);
+      }
+      public void syntaxError (String messageTemplate, String tokenQuoted,
+                               SourcePosition position) {
+        errors.add(messageTemplate.replace("%", tokenQuoted) + " "
+                   + position.start + ".." + position.finish);
+      }
+    });
+    Program programAST = parser.parseProgram();
+    for (String phrase : phrases)
+      errors.add("unfinished " + phrase);
+    return programAST;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * @(#)IncrementalScanner.java
+ *
+ * Brings the tokens of a source text up to date after an edit by scanning
+ * again only the part of the text the edit can have affected.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+public final class IncrementalScanner {
+
+  // The outcome of a rescan: the edited text, its tokens, and the range
+  // of tokens that changed. Old tokens firstChanged .. oldLimit-1 have been
+  // replaced by new tokens firstChanged .. newLimit-1; the tokens beyond
+  // are the old ones, moved by the edit.
+
+  public static final class Rescan {
+
+    public final char[] text;
+    public final Token[] tokens;
+    public final int firstChanged, oldLimit, newLimit;
+
+    Rescan (char[] text, Token[] tokens, int firstChanged, int oldLimit,
+            int newLimit) {
+      this.text = text;
+      this.tokens = tokens;
+      this.firstChanged = firstChanged;
+      this.oldLimit = oldLimit;
+      this.newLimit = newLimit;
+    }
+  }
+
+  private IncrementalScanner () {
+  }
+
+  // scan tokenizes a whole text, ending with the EOT token.
+
+  public static Token[] scan (char[] text) {
+    Scanner scanner = new Scanner(new BufferedSourceFile(text, 0));
+    java.util.ArrayList<Token> tokens = new java.util.ArrayList<Token>();
+    Token token;
+    do {
+      token = scanner.scan();
+      tokens.add(token);
+    } while (token.kind != Token.EOT);
+    return tokens.toArray(new Token[tokens.size()]);
+  }
+
+  // rescan applies an edit to text, whose tokens are oldTokens: the
+  // removedLength characters at offset are replaced by insertedText.
+  //
+  // The scanner looks one character beyond a token to decide where it
+  // ends, so a token that finishes before the edit offset is unaffected,
+  // and scanning restarts just after the last such token. It stops as soon
+  // as a new token starts, beyond the inserted text, at the place where an
+  // old token started: from there on the text is the same as before, and
+  // so are the tokens.
+
+  public static Rescan rescan (char[] text, Token[] oldTokens, int offset,
+                               int removedLength, String insertedText) {
+    int insertedLength = insertedText.length();
+    int delta = insertedLength - removedLength;
+    char[] newText = new char[text.length + delta];
+    System.arraycopy(text, 0, newText, 0, offset);
+    insertedText.getChars(0, insertedLength, newText, offset);
+    System.arraycopy(text, offset + removedLength, newText,
+                     offset + insertedLength, text.length - offset - removedLength);
+
+    int lineDelta = 0;
+    for (int i = 0; i < insertedLength; i++)
+      if (insertedText.charAt(i) == SourceFile.EOL)
+        lineDelta++;
+    for (int i = offset; i < offset + removedLength; i++)
+      if (text[i] == SourceFile.EOL)
+        lineDelta--;
+
+    // Find the last token that is unaffected by the edit. The final EOT
+    // token is always scanned again.
+    int first = 0;
+    while (first < oldTokens.length - 1
+           && oldTokens[first].position.finishOffset < offset)
+      first++;
+
+    int restart, line;
+    if (first == 0) {
+      restart = 0;
+      line = 1;
+    } else {
+      SourcePosition last = oldTokens[first - 1].position;
+      restart = last.finishOffset;
+      line = last.finish;
+      if (restart < newText.length && newText[restart] == SourceFile.EOL)
+        line--;
+    }
+
+    Scanner scanner = new Scanner(new BufferedSourceFile(newText, restart, line));
+    java.util.ArrayList<Token> scanned = new java.util.ArrayList<Token>();
+    int resync = oldTokens.length;
+    int old = first;
+    while (true) {
+      Token token = scanner.scan();
+      int start = token.position.startOffset;
+      if (start >= offset + insertedLength) {
+        while (old < oldTokens.length
+               && oldTokens[old].position.startOffset < start - delta)
+          old++;
+        if (old < oldTokens.length
+            && oldTokens[old].position.startOffset == start - delta
+            && start - delta >= offset + removedLength) {
+          resync = old;
+          break;
+        }
+      }
+      scanned.add(token);
+      if (token.kind == Token.EOT)
+        break;
+    }
+
+    int newLimit = first + scanned.size();
+    Token[] tokens = new Token[newLimit + oldTokens.length - resync];
+    System.arraycopy(oldTokens, 0, tokens, 0, first);
+    for (int i = 0; i < scanned.size(); i++)
+      tokens[first + i] = scanned.get(i);
+    for (int i = resync; i < oldTokens.length; i++)
+      tokens[newLimit + i - resync] = moved(oldTokens[i], delta, lineDelta);
+    return new Rescan(newText, tokens, first, resync, newLimit);
+  }
+
+  private static Token moved (Token token, int delta, int lineDelta) {
+    if (delta == 0 && lineDelta == 0)
+      return token;
+    SourcePosition pos = token.position;
+    Token copy = new Token(Token.ERROR, token.spelling,
+                           new SourcePosition(pos.start + lineDelta,
+                                              pos.finish + lineDelta,
+                                              pos.startOffset + delta,
+                                              pos.finishOffset + delta));
+    copy.kind = token.kind;
+    return copy;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * @(#)ParallelScanner.java
+ *
+ * Scans a large buffered source program in chunks on a ForkJoinPool and
+ * stitches the chunks back into one TokenStream, identical to the one the
+ * sequential Scanner produces.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class ParallelScanner {
+
+  public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+  private final ForkJoinPool pool;
+  private final int chunkSize;
+
+  public ParallelScanner () {
+    this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  public ParallelScanner (ForkJoinPool pool, int chunkSize) {
+    this.pool = pool;
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  // Each chunk covers whole lines. A chunk owns the tokens that start
+  // within it, but may read past its end to finish the last of them.
+
+  private final class Chunk extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final char[] text;
+    final int begin, end;
+    int origin;           // offset at which scanning actually started
+    int stop;             // offset at which scanning stopped
+    boolean reachedEnd;   // an EOT token was scanned
+    int lineEnds;         // number of line ends between begin and end
+    TokenStream tokens;
+    SymbolTable symbols;
+
+    Chunk (char[] text, int begin, int end) {
+      this.text = text;
+      this.begin = begin;
+      this.end = end;
+    }
+
+    protected void compute () {
+      scanFrom(begin);
+      int limit = Math.min(end, text.length);
+      for (int i = begin; i < limit; i++)
+        if (text[i] == SourceFile.EOL)
+          lineEnds++;
+    }
+
+    void scanFrom (int offset) {
+      BufferedSourceFile view = new BufferedSourceFile(text, offset);
+      Scanner scanner = new Scanner(view);
+      origin = offset;
+      symbols = new SymbolTable();
+      tokens = scanner.scanAll(symbols, end);
+      stop = view.currentOffset;
+      reachedEnd = tokens.size() > 0
+                   && tokens.kind(tokens.size() - 1) == Token.EOT;
+    }
+  }
+
+  // scan tokenizes the whole of the buffered source. Sources too small to
+  // be split into two chunks are scanned sequentially.
+
+  public TokenStream scan (BufferedSourceFile source, SymbolTable symbols) {
+    char[] text = source.text;
+    int length = source.length;
+    if (length < 2 * chunkSize)
+      return new Scanner(new BufferedSourceFile(text, 0)).scanAll(symbols);
+
+    // Split the source just after line ends. The last chunk extends one
+    // past the end of the text, so that it owns the final EOT token.
+    java.util.ArrayList<Chunk> chunks = new java.util.ArrayList<Chunk>();
+    int begin = 0;
+    while (begin <= length) {
+      int end = begin + chunkSize;
+      while (end < length && text[end - 1] != SourceFile.EOL)
+        end++;
+      if (end >= length)
+        end = length + 1;
+      chunks.add(new Chunk(text, begin, end));
+      begin = end;
+    }
+
+    for (Chunk chunk : chunks)
+      pool.execute(chunk);
+    for (Chunk chunk : chunks)
+      chunk.join();
+
+    // Stitch the chunks together in order. Comments and blanks never run
+    // past a line end, so a chunk boundary is normally a point where the
+    // sequential scanner is between tokens, and the previous chunk stops
+    // exactly there. If a token did run across the boundary (a character
+    // literal quoting a line end), the next chunk has started at the wrong
+    // place and is scanned again from where the previous one really
+    // stopped.
+    int count = 0;
+    int resume = 0;
+    int used = 0;
+    for (Chunk chunk : chunks) {
+      if (chunk.begin != resume)
+        chunk.scanFrom(resume);
+      count += chunk.tokens.size();
+      resume = chunk.stop;
+      used++;
+      if (chunk.reachedEnd)
+        break;
+    }
+
+    // Symbol ids are allocated in order of first occurrence, so entering
+    // each chunk's symbols in chunk order reproduces the sequential ids.
+    TokenStream result = new TokenStream(text, symbols, count);
+    result.setSize(count);
+    int[][] symbolMaps = new int[used][];
+    int[] lineShifts = new int[used];
+    int[] positions = new int[used];
+    int lineShift = 0;
+    int at = 0;
+    for (int k = 0; k < used; k++) {
+      Chunk chunk = chunks.get(k);
+      SymbolTable table = chunk.symbols;
+      int[] map = new int[table.size()];
+      for (int id = 0; id < map.length; id++)
+        map[id] = symbols.intern(table.spelling(id));
+      symbolMaps[k] = map;
+      // Lines are numbered from 1 at the offset where the chunk was
+      // scanned from.
+      lineShifts[k] = lineShift;
+      for (int i = chunk.begin; i < chunk.origin; i++)
+        if (text[i] == SourceFile.EOL)
+          lineShifts[k]++;
+      lineShift += chunk.lineEnds;
+      positions[k] = at;
+      at += chunk.tokens.size();
+    }
+
+    RecursiveAction[] copies = new RecursiveAction[used];
+    for (int k = 0; k < used; k++) {
+      final Chunk chunk = chunks.get(k);
+      final int shift = lineShifts[k], position = positions[k];
+      final int[] map = symbolMaps[k];
+      copies[k] = new RecursiveAction() {
+        protected void compute () {
+          result.copyFrom(chunk.tokens, 0, chunk.tokens.size(), position,
+                          shift, map);
+        }
+      };
+      pool.execute(copies[k]);
+    }
+    for (RecursiveAction copy : copies)
+      copy.join();
+    return result;
+  }
+}
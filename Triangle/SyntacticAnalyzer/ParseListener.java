@@ -0,0 +1,29 @@
+/*
+ * @(#)ParseListener.java
+ *
+ * Receives notice of the parser's progress through the source program.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+public interface ParseListener {
+
+  // A token has been accepted as part of the phrase being parsed.
+  public void tokenAccepted (Token token);
+
+  // The parser has started on the named phrase, whose first token is at
+  // this position. A V-name is only known to start once its first
+  // identifier has been accepted.
+  public void phraseStarted (String phrase, SourcePosition position);
+
+  // The parser has finished the named phrase, which runs from the start
+  // of its first token to the end of the last token accepted in it. Each
+  // phrase started is finished, innermost first, even when a syntax error
+  // cuts it short.
+  public void phraseFinished (String phrase, SourcePosition position);
+
+  // A syntactic error is being reported; tokenQuoted replaces the % in
+  // the message template.
+  public void syntaxError (String messageTemplate, String tokenQuoted,
+                           SourcePosition position);
+}
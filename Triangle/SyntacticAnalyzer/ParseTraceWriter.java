@@ -0,0 +1,62 @@
+/*
+ * @(#)ParseTraceWriter.java
+ *
+ * A ParseListener that writes a trace of the parse to a file, one event
+ * per line, through a buffer.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class ParseTraceWriter implements ParseListener {
+
+  private BufferedWriter out;
+  private boolean failed;
+
+  public ParseTraceWriter (String filename) throws IOException {
+    out = new BufferedWriter(new FileWriter(filename));
+    failed = false;
+  }
+
+  public void tokenAccepted (Token token) {
+    write("token " + token.spelling + " " + token.position);
+  }
+
+  public void phraseStarted (String phrase, SourcePosition position) {
+    write("start " + phrase + " " + position);
+  }
+
+  public void phraseFinished (String phrase, SourcePosition position) {
+    write("finish " + phrase + " " + position);
+  }
+
+  public void syntaxError (String messageTemplate, String tokenQuoted,
+                           SourcePosition position) {
+    write("error " + messageTemplate.replace("%", tokenQuoted) + " " + position);
+  }
+
+  // close flushes the trace, and reports whether it was all written.
+
+  public boolean close () {
+    try {
+      out.close();
+    } catch (IOException e) {
+      failed = true;
+    }
+    return !failed;
+  }
+
+  private void write (String line) {
+    if (failed)
+      return;
+    try {
+      out.write(line);
+      out.newLine();
+    } catch (IOException e) {
+      failed = true;
+    }
+  }
+}
@@ -20,9 +20,26 @@ import Triangle.AbstractSyntaxTrees.*;
 public class Parser {
 
   private Scanner lexicalAnalyser;
+  private TokenStream tokenStream;
+  private int tokenIndex;
   private ErrorReporter errorReporter;
   private Token currentToken;
   private SourcePosition previousTokenPosition;
+  private ParseListener listener;
+
+  // Error recovery: no further error is reported until a token has been
+  // accepted since the last one, so that one mistake is reported once.
+  private boolean recovering;
+  // The identifier of the declaration being parsed, if it has got that far.
+  private Identifier declaredIdentifier;
+  // Whether the body of the routine being declared is still to come.
+  private boolean bodyPending;
+  // The number of formal parameter lists now open.
+  private int openFormals;
+  // The phrases now open, innermost last, while a listener is installed.
+  private String[] phraseNames = new String[16];
+  private SourcePosition[] phraseStarts = new SourcePosition[16];
+  private int phraseDepth;
 
   public Parser(Scanner lexer, ErrorReporter reporter) {
     lexicalAnalyser = lexer;
@@ -30,23 +47,56 @@ public class Parser {
     previousTokenPosition = new SourcePosition();
   }
 
+  // This parser takes its tokens from an already scanned TokenStream,
+  // walking it through a single Token object.
+
+  public Parser(TokenStream tokens, ErrorReporter reporter) {
+    tokenStream = tokens;
+    tokenIndex = 0;
+    currentToken = new Token(Token.EOT, "", null);
+    errorReporter = reporter;
+    previousTokenPosition = new SourcePosition();
+  }
+
+  // Installs a listener to be told of the parser's progress, or removes
+  // it if null. Without a listener, the parser does no extra work.
+
+  public void setParseListener(ParseListener listener) {
+    this.listener = listener;
+  }
+
+  // nextToken fetches the next token, either from the scanner or from
+  // the token stream.
+
+  private Token nextToken() {
+    if (tokenStream == null)
+      return lexicalAnalyser.scan();
+    tokenStream.load(tokenIndex++, currentToken);
+    return currentToken;
+  }
+
   // accept checks whether the current token matches tokenExpected.
   // If so, fetches the next token.
   // If not, reports a syntactic error.
 
   void accept(int tokenExpected) throws SyntaxError {
-    System.out.println(currentToken.spelling);
     if (currentToken.kind == tokenExpected) {
+      if (listener != null)
+        listener.tokenAccepted(currentToken);
+      recovering = false;
       previousTokenPosition = currentToken.position;
-      currentToken = lexicalAnalyser.scan();
+      currentToken = nextToken();
     } else {
       syntacticError("\"%\" expected here", Token.spell(tokenExpected));
     }
   }
 
   void acceptIt() {
+    if (listener != null)
+      listener.tokenAccepted(currentToken);
+    recovering = false;
     previousTokenPosition = currentToken.position;
-    currentToken = lexicalAnalyser.scan();
+    currentToken = nextToken();
   }
 
   // start records the position of the start of a phrase.
@@ -55,6 +105,7 @@ public class Parser {
 
   void start(SourcePosition position) {
     position.start = currentToken.position.start;
+    position.startOffset = currentToken.position.startOffset;
   }
 
   // finish records the position of the end of a phrase.
@@ -63,12 +114,207 @@ public class Parser {
 
   void finish(SourcePosition position) {
     position.finish = previousTokenPosition.finish;
+    position.finishOffset = previousTokenPosition.finishOffset;
+  }
+
+  // enter and leave tell the listener of the start and finish of a phrase,
+  // and keep its name and start on a stack so that the two always match.
+  // A phrase abandoned by a syntax error is finished when the recovery
+  // point that catches the error unwinds the stack to its own depth.
+
+  private void enter(String phrase) {
+    if (listener != null)
+      enter(phrase, currentToken.position);
+  }
+
+  private void enter(String phrase, SourcePosition first) {
+    if (listener == null)
+      return;
+    if (phraseDepth == phraseNames.length) {
+      phraseNames = java.util.Arrays.copyOf(phraseNames, 2 * phraseDepth);
+      phraseStarts = java.util.Arrays.copyOf(phraseStarts, 2 * phraseDepth);
+    }
+    phraseNames[phraseDepth] = phrase;
+    phraseStarts[phraseDepth] = first;
+    phraseDepth++;
+    listener.phraseStarted(phrase,
+        new SourcePosition(first.start, first.finish,
+                           first.startOffset, first.finishOffset));
+  }
+
+  private void leave() {
+    if (listener == null)
+      return;
+    phraseDepth--;
+    SourcePosition first = phraseStarts[phraseDepth];
+    listener.phraseFinished(phraseNames[phraseDepth],
+        new SourcePosition(first.start, previousTokenPosition.finish,
+                           first.startOffset,
+                           previousTokenPosition.finishOffset));
+    phraseNames[phraseDepth] = null;
+    phraseStarts[phraseDepth] = null;
+  }
+
+  private void unwind(int depth) {
+    while (phraseDepth > depth)
+      leave();
   }
 
   void syntacticError(String messageTemplate, String tokenQuoted) throws SyntaxError {
+    reportSyntacticError(messageTemplate, tokenQuoted);
+    throw (new SyntaxError());
+  }
+
+  // reportSyntacticError reports an error at the current token, unless
+  // the parser is still recovering from an earlier one, and carries on.
+
+  void reportSyntacticError(String messageTemplate, String tokenQuoted) {
+    if (recovering)
+      return;
     SourcePosition pos = currentToken.position;
+    if (listener != null)
+      listener.syntaxError(messageTemplate, tokenQuoted, pos);
     errorReporter.reportError(messageTemplate, tokenQuoted, pos);
-    throw (new SyntaxError());
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  //
+  // ERROR RECOVERY
+  //
+  ///////////////////////////////////////////////////////////////////////////////
+
+  // After a syntactic error, the parser skips tokens up to one at which a
+  // command or declaration may end, and resumes parsing there. The damaged
+  // phrase is represented by an ErrorCommand or ErrorDeclaration.
+
+  private boolean endsCommand(int kind) {
+    switch (kind) {
+    case Token.SEMICOLON: case Token.END: case Token.ELSE: case Token.ELSIF:
+    case Token.IN: case Token.WHILE: case Token.UNTIL: case Token.EOT:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private boolean startsCommand(int kind) {
+    switch (kind) {
+    case Token.IDENTIFIER: case Token.LOOP: case Token.LET: case Token.IF:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private boolean endsDeclaration(int kind) {
+    switch (kind) {
+    case Token.SEMICOLON: case Token.IN: case Token.END: case Token.EOT:
+      return true;
+    default:
+      return startsDeclaration(kind);
+    }
+  }
+
+  private boolean startsDeclaration(int kind) {
+    switch (kind) {
+    case Token.CONST: case Token.VAR: case Token.PROC: case Token.FUNC:
+    case Token.TYPE: case Token.REC: case Token.PRIVATE:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  // skipToEndOfCommand and skipToEndOfDeclaration discard tokens, without
+  // reporting them as accepted, up to one that may end the phrase.
+
+  private void skipToEndOfCommand() {
+    recovering = true;
+    while (! endsCommand(currentToken.kind))
+      skip();
+  }
+
+  // skipToEndOfDeclaration first leaves any formal parameter lists the
+  // error occurred in, and then skips parenthesized phrases whole, so that
+  // a "var" or "proc" among parameters is not taken for the start of the
+  // next declaration. A list that is never closed is given up at a token
+  // that cannot occur in one. If the heading of a routine is damaged, the
+  // skip stops at the "~" of its body.
+
+  private void skipToEndOfDeclaration() {
+    recovering = true;
+    int depth = openFormals;
+    openFormals = 0;
+    while (true) {
+      int kind = currentToken.kind;
+      if (depth > 0) {
+        if (kind == Token.IS || kind == Token.SEMICOLON
+            || kind == Token.IN || kind == Token.EOT) {
+          depth = 0;
+          continue;
+        }
+        if (kind == Token.LPAREN)
+          depth++;
+        else if (kind == Token.RPAREN)
+          depth--;
+      } else if (kind == Token.LPAREN)
+        depth = 1;
+      else if (kind == Token.IS && bodyPending)
+        return;
+      else if (endsDeclaration(kind))
+        return;
+      skip();
+    }
+  }
+
+  // parseDamagedBody parses the body of a routine whose heading is
+  // damaged, for the sake of any errors in it, and discards it. The
+  // current token is the "~" that starts the body.
+
+  private void parseDamagedBody(int routineKind) {
+    bodyPending = false;
+    acceptIt();
+    int phrases = phraseDepth;
+    try {
+      if (routineKind == Token.PROC) {
+        parseCommand();
+        accept(Token.END);
+      } else
+        parseExpression();
+    } catch (SyntaxError s) {
+      unwind(phrases);
+      skipToEndOfDeclaration();
+    }
+  }
+
+  // parseExpressionBefore parses an expression that must be followed by
+  // the given keyword, as in the header of a compound command. If the
+  // expression is damaged, the tokens up to that keyword are skipped and
+  // an ErrorExpression is returned, so that the rest of the command can
+  // still be parsed. If the keyword is not found before the end of a
+  // command, the error is passed on.
+
+  Expression parseExpressionBefore(int keyword) throws SyntaxError {
+    SourcePosition expressionPos = new SourcePosition();
+    start(expressionPos);
+    int phrases = phraseDepth;
+    try {
+      return parseExpression();
+    } catch (SyntaxError s) {
+      unwind(phrases);
+      recovering = true;
+      while (currentToken.kind != keyword && ! endsCommand(currentToken.kind))
+        skip();
+      if (currentToken.kind != keyword)
+        throw s;
+      finish(expressionPos);
+      return new ErrorExpression(expressionPos);
+    }
+  }
+
+  private void skip() {
+    previousTokenPosition = currentToken.position;
+    currentToken = nextToken();
   }
 
   ///////////////////////////////////////////////////////////////////////////////
@@ -83,17 +329,30 @@ public class Parser {
 
     previousTokenPosition.start = 0;
     previousTokenPosition.finish = 0;
-    currentToken = lexicalAnalyser.scan();
+    recovering = false;
+    bodyPending = false;
+    openFormals = 0;
+    currentToken = nextToken();
+    phraseDepth = 0;
+    enter("Program");
 
     try {
       Command cAST = parseCommand();
       programAST = new Program(cAST, previousTokenPosition);
-      if (currentToken.kind != Token.EOT) {
-        syntacticError("\"%\" not expected after end of program", currentToken.spelling);
+      // Anything left over is reported, and parsed as far as possible for
+      // the sake of any further errors in it.
+      while (currentToken.kind != Token.EOT) {
+        reportSyntacticError("\"%\" not expected after end of program",
+                             currentToken.spelling);
+        skip();
+        recovering = true;
+        parseCommand();
       }
     } catch (SyntaxError s) {
+      unwind(0);
       return null;
     }
+    leave();
     return programAST;
   }
 
@@ -113,7 +372,9 @@ public class Parser {
       previousTokenPosition = currentToken.position;
       String spelling = currentToken.spelling;
       IL = new IntegerLiteral(spelling, previousTokenPosition);
-      currentToken = lexicalAnalyser.scan();
+      if (listener != null)
+        listener.tokenAccepted(currentToken);
+      currentToken = nextToken();
     } else {
       IL = null;
       syntacticError("integer literal expected here", "");
@@ -131,7 +392,9 @@ public class Parser {
       previousTokenPosition = currentToken.position;
       String spelling = currentToken.spelling;
       CL = new CharacterLiteral(spelling, previousTokenPosition);
-      currentToken = lexicalAnalyser.scan();
+      if (listener != null)
+        listener.tokenAccepted(currentToken);
+      currentToken = nextToken();
     } else {
       CL = null;
       syntacticError("character literal expected here", "");
@@ -149,7 +412,9 @@ public class Parser {
       previousTokenPosition = currentToken.position;
       String spelling = currentToken.spelling;
       I = new Identifier(spelling, previousTokenPosition);
-      currentToken = lexicalAnalyser.scan();
+      if (listener != null)
+        listener.tokenAccepted(currentToken);
+      currentToken = nextToken();
     } else {
       I = null;
       syntacticError("identifier expected here", "");
@@ -167,7 +432,9 @@ public class Parser {
       previousTokenPosition = currentToken.position;
       String spelling = currentToken.spelling;
       O = new Operator(spelling, previousTokenPosition);
-      currentToken = lexicalAnalyser.scan();
+      if (listener != null)
+        listener.tokenAccepted(currentToken);
+      currentToken = nextToken();
     } else {
       O = null;
       syntacticError("operator expected here", "");
@@ -185,22 +452,74 @@ public class Parser {
   // to represent its phrase structure.
 
   Command parseCommand() throws SyntaxError {
+    enter("Command");
     Command commandAST = null; // in case there's a syntactic error
 
     SourcePosition commandPos = new SourcePosition();
 
     start(commandPos);
-    commandAST = parseSingleCommand();
-    while (currentToken.kind == Token.SEMICOLON) {
-      acceptIt();
-      Command c2AST = parseSingleCommand();
-      finish(commandPos);
-      commandAST = new SequentialCommand(commandAST, c2AST, commandPos);
+    commandAST = parseListedCommand();
+    if (currentToken.kind != Token.SEMICOLON
+        && ! startsCommand(currentToken.kind)) {
+      leave();
+      return commandAST;
+    }
+
+    // A sequence is gathered into a single node, however long it is.
+    java.util.ArrayList<Command> commands = new java.util.ArrayList<Command>();
+    commands.add(commandAST);
+    while (currentToken.kind == Token.SEMICOLON
+           || startsCommand(currentToken.kind)) {
+      if (currentToken.kind == Token.SEMICOLON)
+        acceptIt();
+      else
+        reportSyntacticError("\"%\" expected here", ";");
+      commands.add(parseListedCommand());
     }
+    finish(commandPos);
+    commandAST = new SequentialCommand(
+                   commands.toArray(new Command[commands.size()]), commandPos);
+    leave();
     return commandAST;
   }
 
+  // parseListedCommand parses a single-command of a sequence. If it is
+  // followed by a token that can neither end it nor start another, that
+  // token is reported, the tokens up to the end of the command are
+  // skipped, and an ErrorCommand spanning them is returned, so that the
+  // enclosing command, and any scope it opens, is kept.
+
+  Command parseListedCommand() {
+    SourcePosition commandPos = new SourcePosition();
+    start(commandPos);
+    Command commandAST = parseRecoveringCommand();
+    if (endsCommand(currentToken.kind) || startsCommand(currentToken.kind))
+      return commandAST;
+    reportSyntacticError("\"%\" not expected here", currentToken.spelling);
+    skipToEndOfCommand();
+    finish(commandPos);
+    return new ErrorCommand(commandPos);
+  }
+
+  // parseRecoveringCommand parses a single-command; if that fails, it
+  // recovers at the end of the command and returns an ErrorCommand.
+
+  Command parseRecoveringCommand() {
+    SourcePosition commandPos = new SourcePosition();
+    start(commandPos);
+    int phrases = phraseDepth;
+    try {
+      return parseSingleCommand();
+    } catch (SyntaxError s) {
+      unwind(phrases);
+      skipToEndOfCommand();
+      finish(commandPos);
+      return new ErrorCommand(commandPos);
+    }
+  }
+
   Command parseSingleCommand() throws SyntaxError {
+    enter("single-Command");
     Command commandAST = null; // in case there's a syntactic error
 
     SourcePosition commandPos = new SourcePosition();
@@ -235,7 +554,7 @@ public class Parser {
 
       case Token.WHILE: {
         acceptIt();
-        Expression eAST = parseExpression();
+        Expression eAST = parseExpressionBefore(Token.DO);
         accept(Token.DO);
         Command cAST = parseCommand();
         accept(Token.END);
@@ -246,7 +565,7 @@ public class Parser {
 
       case Token.UNTIL: {
         acceptIt();
-        Expression eAST = parseExpression();
+        Expression eAST = parseExpressionBefore(Token.DO);
         accept(Token.DO);
         Command cAST = parseCommand();
         accept(Token.END);
@@ -261,13 +580,13 @@ public class Parser {
 
         if (currentToken.kind == Token.WHILE) {
           acceptIt();
-          Expression eAST = parseExpression();
+          Expression eAST = parseExpressionBefore(Token.END);
           accept(Token.END);
           finish(commandPos);
           commandAST = new DoWhileCommand(cAST, eAST, commandPos);
         } else {
           accept(Token.UNTIL);
-          Expression eAST = parseExpression();
+          Expression eAST = parseExpressionBefore(Token.END);
           accept(Token.END);
           finish(commandPos);
           commandAST = new DoUntilCommand(cAST, eAST, commandPos);
@@ -279,9 +598,9 @@ public class Parser {
         acceptIt();
         Identifier iAST = parseIdentifier();
         accept(Token.BECOMES);
-        Expression eAST = parseExpression();
+        Expression eAST = parseExpressionBefore(Token.TO);
         accept(Token.TO);
-        Expression eAST1 = parseExpression();
+        Expression eAST1 = parseExpressionBefore(Token.DO);
         accept(Token.DO);
         Command cAST = parseCommand();
         accept(Token.END);
@@ -290,6 +609,10 @@ public class Parser {
       }
         break;
 
+      default:
+        syntacticError("\"%\" cannot follow \"loop\"", currentToken.spelling);
+        break;
+
       }
     }
       break;
@@ -309,7 +632,7 @@ public class Parser {
       {
        Command c2AST = null;
        acceptIt();
-       Expression eAST = parseExpression();
+       Expression eAST = parseExpressionBefore(Token.THEN);
        accept(Token.THEN);
        Command c1AST = parseCommand();
        
@@ -378,18 +701,20 @@ public class Parser {
 
     }
 
+    leave();
     return commandAST;
   }
   
   // Recursion of IF
   Command parserElsIf() throws SyntaxError{
+        enter("elsif-Command");
         SourcePosition commandPos = new SourcePosition();
         
         start(commandPos);
         Command commandAST = null;
        //Al menos una vez se cumple
         accept(Token.ELSIF);
-        Expression eAST2= parseExpression();
+        Expression eAST2= parseExpressionBefore(Token.THEN);
         accept(Token.THEN);
         Command cAST2 = parseCommand();
         finish(commandPos);
@@ -401,6 +726,7 @@ public class Parser {
               Command elseCommand = parseCommand();
               commandAST = new ElsIfCommand(eAST2, cAST2, elseCommand , commandPos);
           }
+      leave();
       return commandAST;
   }
   ///////////////////////////////////////////////////////////////////////////////
@@ -410,6 +736,7 @@ public class Parser {
   ///////////////////////////////////////////////////////////////////////////////
 
   Expression parseExpression() throws SyntaxError {
+    enter("Expression");
     Expression expressionAST = null; // in case there's a syntactic error
 
     SourcePosition expressionPos = new SourcePosition();
@@ -444,10 +771,12 @@ public class Parser {
       expressionAST = parseSecondaryExpression();
       break;
     }
+    leave();
     return expressionAST;
   }
 
   Expression parseSecondaryExpression() throws SyntaxError {
+    enter("secondary-Expression");
     Expression expressionAST = null; // in case there's a syntactic error
 
     SourcePosition expressionPos = new SourcePosition();
@@ -459,10 +788,12 @@ public class Parser {
       Expression e2AST = parsePrimaryExpression();
       expressionAST = new BinaryExpression(expressionAST, opAST, e2AST, expressionPos);
     }
+    leave();
     return expressionAST;
   }
 
   Expression parsePrimaryExpression() throws SyntaxError {
+    enter("primary-Expression");
     Expression expressionAST = null; // in case there's a syntactic error
 
     SourcePosition expressionPos = new SourcePosition();
@@ -538,10 +869,12 @@ public class Parser {
       break;
 
     }
+    leave();
     return expressionAST;
   }
 
   RecordAggregate parseRecordAggregate() throws SyntaxError {
+    enter("Record-Aggregate");
     RecordAggregate aggregateAST = null; // in case there's a syntactic error
 
     SourcePosition aggregatePos = new SourcePosition();
@@ -560,10 +893,12 @@ public class Parser {
       finish(aggregatePos);
       aggregateAST = new SingleRecordAggregate(iAST, eAST, aggregatePos);
     }
+    leave();
     return aggregateAST;
   }
 
   ArrayAggregate parseArrayAggregate() throws SyntaxError {
+    enter("Array-Aggregate");
     ArrayAggregate aggregateAST = null; // in case there's a syntactic error
 
     SourcePosition aggregatePos = new SourcePosition();
@@ -579,6 +914,7 @@ public class Parser {
       finish(aggregatePos);
       aggregateAST = new SingleArrayAggregate(eAST, aggregatePos);
     }
+    leave();
     return aggregateAST;
   }
 
@@ -596,6 +932,7 @@ public class Parser {
   }
 
   Vname parseRestOfVname(Identifier identifierAST) throws SyntaxError {
+    enter("V-name", identifierAST.position);
     SourcePosition vnamePos = new SourcePosition();
     vnamePos = identifierAST.position;
     Vname vAST = new SimpleVname(identifierAST, vnamePos);
@@ -614,6 +951,7 @@ public class Parser {
         vAST = new SubscriptVname(vAST, eAST, vnamePos);
       }
     }
+    leave();
     return vAST;
   }
 
@@ -627,22 +965,68 @@ public class Parser {
   // Old: Declaration ::= single-Declaration (; single-Declaration)*
   // New: Declaration ::= compound-Declaration (";" compound-Declaration)*
   Declaration parseDeclaration() throws SyntaxError {
+    enter("Declaration");
     Declaration declarationAST = null; // in case there's a syntactic error
 
     SourcePosition declarationPos = new SourcePosition();
     start(declarationPos);
-    declarationAST = parseCompoundDeclaration();
-    while (currentToken.kind == Token.SEMICOLON) {
-      acceptIt();
-      Declaration d2AST = parseCompoundDeclaration();
-      finish(declarationPos);
-      declarationAST = new SequentialDeclaration(declarationAST, d2AST,
-        declarationPos);
+    declarationAST = parseRecoveringDeclaration();
+    if (currentToken.kind != Token.SEMICOLON
+        && ! startsDeclaration(currentToken.kind)) {
+      leave();
+      return declarationAST;
+    }
+
+    java.util.ArrayList<Declaration> declarations =
+      new java.util.ArrayList<Declaration>();
+    declarations.add(declarationAST);
+    while (currentToken.kind == Token.SEMICOLON
+           || startsDeclaration(currentToken.kind)) {
+      if (currentToken.kind == Token.SEMICOLON)
+        acceptIt();
+      else
+        reportSyntacticError("\"%\" expected here", ";");
+      declarations.add(parseRecoveringDeclaration());
     }
+    finish(declarationPos);
+    declarationAST = new SequentialDeclaration(
+      declarations.toArray(new Declaration[declarations.size()]),
+      declarationPos);
+    leave();
     return declarationAST;
   }
 
+  // parseRecoveringDeclaration parses a compound-declaration; if that
+  // fails, it recovers at the end of the declaration and returns an
+  // ErrorDeclaration that keeps the declared identifier, if any.
+
+  Declaration parseRecoveringDeclaration() {
+    SourcePosition declarationPos = new SourcePosition();
+    Identifier outerIdentifier = declaredIdentifier;
+    boolean outerPending = bodyPending;
+    int kind = currentToken.kind;
+    start(declarationPos);
+    declaredIdentifier = null;
+    bodyPending = false;
+    int phrases = phraseDepth;
+    try {
+      return parseCompoundDeclaration();
+    } catch (SyntaxError s) {
+      unwind(phrases);
+      Identifier iAST = declaredIdentifier;
+      skipToEndOfDeclaration();
+      if (bodyPending && currentToken.kind == Token.IS)
+        parseDamagedBody(kind);
+      finish(declarationPos);
+      return new ErrorDeclaration(iAST, declarationPos);
+    } finally {
+      declaredIdentifier = outerIdentifier;
+      bodyPending = outerPending;
+    }
+  }
+
   Declaration parseSingleDeclaration() throws SyntaxError {
+    enter("single-Declaration");
     Declaration declarationAST = null; // in case there's a syntactic error
 
     SourcePosition declarationPos = new SourcePosition();
@@ -654,6 +1038,7 @@ public class Parser {
       {
         acceptIt();
         Identifier iAST = parseIdentifier();
+        declaredIdentifier = iAST;
         accept(Token.IS);
         Expression eAST = parseExpression();
         finish(declarationPos);
@@ -665,6 +1050,7 @@ public class Parser {
       {
         acceptIt();
         Identifier iAST = parseIdentifier();
+        declaredIdentifier = iAST;
 
         if (currentToken.kind == Token.COLON)
         {
@@ -678,7 +1064,9 @@ public class Parser {
           Expression eAST = parseExpression();
           finish(declarationPos);
           declarationAST = new VarInitialized(iAST, eAST, declarationPos);
-        }
+        } else
+          syntacticError("\":\" or \":=\" expected here, not \"%\"",
+            currentToken.spelling);
       }
       break;
 
@@ -686,11 +1074,12 @@ public class Parser {
       {
         acceptIt();
         Identifier iAST = parseIdentifier();
+        declaredIdentifier = iAST;
+        bodyPending = true;
         accept(Token.COLON);
-        accept(Token.LPAREN);
-        FormalParameterSequence fpsAST = parseFormalParameterSequence();
-        accept(Token.RPAREN);
+        FormalParameterSequence fpsAST = parseParenthesizedFormals();
         accept(Token.IS);
+        bodyPending = false;
         Command cAST = parseCommand();
         accept(Token.END);
         finish(declarationPos);
@@ -702,13 +1091,14 @@ public class Parser {
       {
         acceptIt();
         Identifier iAST = parseIdentifier();
+        declaredIdentifier = iAST;
+        bodyPending = true;
         accept(Token.COLON);
-        accept(Token.LPAREN);
-        FormalParameterSequence fpsAST = parseFormalParameterSequence();
-        accept(Token.RPAREN);
+        FormalParameterSequence fpsAST = parseParenthesizedFormals();
         accept(Token.COLON);
         TypeDenoter tAST = parseTypeDenoter();
         accept(Token.IS);
+        bodyPending = false;
         Expression eAST = parseExpression();
         finish(declarationPos);
         declarationAST = new FuncDeclaration(iAST, fpsAST, tAST, eAST,
@@ -720,6 +1110,7 @@ public class Parser {
       {
         acceptIt();
         Identifier iAST = parseIdentifier();
+        declaredIdentifier = iAST;
         accept(Token.IS);
         TypeDenoter tAST = parseTypeDenoter();
         finish(declarationPos);
@@ -733,11 +1124,13 @@ public class Parser {
       break;
 
     }
+    leave();
     return declarationAST;
   }
 
   // New rule.
   Declaration parseCompoundDeclaration() throws SyntaxError {
+    enter("compound-Declaration");
     Declaration declarationAST = null; // in case there's a syntactic error
 
     SourcePosition declarationPos = new SourcePosition();
@@ -781,11 +1174,13 @@ public class Parser {
       break;
 
     }
+    leave();
     return declarationAST;
   }
 
   // New rule.
   ProcFunc parseProcFunc() throws SyntaxError {
+    enter("Proc-Func");
     Declaration declarationAST = null; // in case there's a syntactic error
 
     SourcePosition declarationPos = new SourcePosition();
@@ -798,10 +1193,9 @@ public class Parser {
       acceptIt();
       // accept(Token.IDENTIFIER); // Do I have to accept it?
       Identifier iAST = parseIdentifier();
+      declaredIdentifier = iAST;
       accept(Token.COLON);
-      accept(Token.LPAREN);
-      FormalParameterSequence fpsAST = parseFormalParameterSequence();
-      accept(Token.RPAREN);
+      FormalParameterSequence fpsAST = parseParenthesizedFormals();
       accept(Token.IS);
       Command cAST = parseSingleCommand();
       accept(Token.END);
@@ -815,10 +1209,9 @@ public class Parser {
       acceptIt();
       // accept(Token.IDENTIFIER); // Do I have to accept it?
       Identifier iAST = parseIdentifier();
+      declaredIdentifier = iAST;
       accept(Token.COLON);
-      accept(Token.LPAREN);
-      FormalParameterSequence fpsAST = parseFormalParameterSequence();
-      accept(Token.RPAREN);
+      FormalParameterSequence fpsAST = parseParenthesizedFormals();
       accept(Token.COLON);
       TypeDenoter tAST = parseTypeDenoter();
       accept(Token.IS);
@@ -835,11 +1228,13 @@ public class Parser {
       break;
 
     }
+    leave();
     return (ProcFunc) declarationAST;
   }
 
   // New rule.
   Declaration parseProcFuncs() throws SyntaxError {
+    enter("Proc-Funcs");
     Declaration declarationAST = null; // in case there's a syntactic error
 
     SourcePosition declarationPos = new SourcePosition();
@@ -854,6 +1249,7 @@ public class Parser {
       declarationAST = new ProcFuncs(declarationAST, dAST2, declarationPos);
     } while (currentToken.kind == Token.AND);
 
+    leave();
     return (ProcFuncs) declarationAST;
   }
 
@@ -863,7 +1259,21 @@ public class Parser {
 //
 ///////////////////////////////////////////////////////////////////////////////
 
+  // parseParenthesizedFormals parses a formal-parameter-sequence in
+  // parentheses, keeping count of the lists open, so that recovery from
+  // an error in one can skip to its end.
+
+  FormalParameterSequence parseParenthesizedFormals() throws SyntaxError {
+    accept(Token.LPAREN);
+    openFormals++;
+    FormalParameterSequence fpsAST = parseFormalParameterSequence();
+    accept(Token.RPAREN);
+    openFormals--;
+    return fpsAST;
+  }
+
   FormalParameterSequence parseFormalParameterSequence() throws SyntaxError {
+    enter("Formal-Parameter-Sequence");
     FormalParameterSequence formalsAST;
 
     SourcePosition formalsPos = new SourcePosition();
@@ -876,10 +1286,12 @@ public class Parser {
     } else {
       formalsAST = parseProperFormalParameterSequence();
     }
+    leave();
     return formalsAST;
   }
 
   FormalParameterSequence parseProperFormalParameterSequence() throws SyntaxError {
+    enter("proper-Formal-Parameter-Sequence");
     FormalParameterSequence formalsAST = null; // in case there's a syntactic error;
 
     SourcePosition formalsPos = new SourcePosition();
@@ -895,10 +1307,12 @@ public class Parser {
       finish(formalsPos);
       formalsAST = new SingleFormalParameterSequence(fpAST, formalsPos);
     }
+    leave();
     return formalsAST;
   }
 
   FormalParameter parseFormalParameter() throws SyntaxError {
+    enter("Formal-Parameter");
     FormalParameter formalAST = null; // in case there's a syntactic error;
 
     SourcePosition formalPos = new SourcePosition();
@@ -928,9 +1342,7 @@ public class Parser {
     case Token.PROC: {
       acceptIt();
       Identifier iAST = parseIdentifier();
-      accept(Token.LPAREN);
-      FormalParameterSequence fpsAST = parseFormalParameterSequence();
-      accept(Token.RPAREN);
+      FormalParameterSequence fpsAST = parseParenthesizedFormals();
       finish(formalPos);
       formalAST = new ProcFormalParameter(iAST, fpsAST, formalPos);
     }
@@ -939,9 +1351,7 @@ public class Parser {
     case Token.FUNC: {
       acceptIt();
       Identifier iAST = parseIdentifier();
-      accept(Token.LPAREN);
-      FormalParameterSequence fpsAST = parseFormalParameterSequence();
-      accept(Token.RPAREN);
+      FormalParameterSequence fpsAST = parseParenthesizedFormals();
       accept(Token.COLON);
       TypeDenoter tAST = parseTypeDenoter();
       finish(formalPos);
@@ -954,10 +1364,12 @@ public class Parser {
       break;
 
     }
+    leave();
     return formalAST;
   }
 
   ActualParameterSequence parseActualParameterSequence() throws SyntaxError {
+    enter("Actual-Parameter-Sequence");
     ActualParameterSequence actualsAST;
 
     SourcePosition actualsPos = new SourcePosition();
@@ -970,10 +1382,12 @@ public class Parser {
     } else {
       actualsAST = parseProperActualParameterSequence();
     }
+    leave();
     return actualsAST;
   }
 
   ActualParameterSequence parseProperActualParameterSequence() throws SyntaxError {
+    enter("proper-Actual-Parameter-Sequence");
     ActualParameterSequence actualsAST = null; // in case there's a syntactic error
 
     SourcePosition actualsPos = new SourcePosition();
@@ -989,10 +1403,12 @@ public class Parser {
       finish(actualsPos);
       actualsAST = new SingleActualParameterSequence(apAST, actualsPos);
     }
+    leave();
     return actualsAST;
   }
 
   ActualParameter parseActualParameter() throws SyntaxError {
+    enter("Actual-Parameter");
     ActualParameter actualAST = null; // in case there's a syntactic error
 
     SourcePosition actualPos = new SourcePosition();
@@ -1045,6 +1461,7 @@ public class Parser {
       break;
 
     }
+    leave();
     return actualAST;
   }
 
@@ -1055,6 +1472,7 @@ public class Parser {
   ///////////////////////////////////////////////////////////////////////////////
 
   TypeDenoter parseTypeDenoter() throws SyntaxError {
+    enter("Type-denoter");
     TypeDenoter typeAST = null; // in case there's a syntactic error
     SourcePosition typePos = new SourcePosition();
 
@@ -1102,10 +1520,12 @@ public class Parser {
       break;
 
     }
+    leave();
     return typeAST;
   }
 
   FieldTypeDenoter parseFieldTypeDenoter() throws SyntaxError {
+    enter("Field-Type-denoter");
     FieldTypeDenoter fieldAST = null; // in case there's a syntactic error
 
     SourcePosition fieldPos = new SourcePosition();
@@ -1123,6 +1543,7 @@ public class Parser {
       finish(fieldPos);
       fieldAST = new SingleFieldTypeDenoter(iAST, tAST, fieldPos);
     }
+    leave();
     return fieldAST;
   }
 }
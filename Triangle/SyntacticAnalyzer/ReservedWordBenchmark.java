@@ -0,0 +1,108 @@
+/*
+ * @(#)ReservedWordBenchmark.java
+ *
+ * Times the classification of identifier spellings as reserved words or
+ * identifiers, by Token's perfect hash and by the linear search of
+ * tokenTable that it replaced.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+import java.util.Random;
+
+/**
+ * Compares reserved-word recognition by perfect hash with the former
+ * linear search, on identifier-heavy input: one spelling in five is a
+ * reserved word, the rest are random identifiers. Both methods must
+ * classify every spelling alike.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.SyntacticAnalyzer.ReservedWordBenchmark 200000
+ * </pre>
+ */
+public final class ReservedWordBenchmark {
+
+  private final static int ROUNDS = 20;
+
+  public static void main (String[] args) {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+    String[] spellings = spellings(count, new Random(1));
+
+    for (int i = 0; i < spellings.length; i++)
+      if (Token.reservedWordKind(spellings[i]) != linearKind(spellings[i])) {
+        System.out.println("Methods disagree on \"" + spellings[i] + "\"");
+        System.exit(1);
+      }
+
+    // the first rounds only warm up the JIT compiler
+    for (int round = 0; round < ROUNDS; round++) {
+      long hashTime = timeHash(spellings), linearTime = timeLinear(spellings);
+      if (round >= ROUNDS / 2)
+        System.out.println("hash " + nsPer(hashTime, count)
+                           + " ns, linear " + nsPer(linearTime, count)
+                           + " ns per identifier");
+    }
+  }
+
+  // The reserved-word recognition that Token's constructor used to do: a
+  // search of tokenTable in alphabetical order, stopping at the first
+  // reserved word that is not less than the spelling.
+
+  static int linearKind (String spelling) {
+    int currentKind = Token.ARRAY;
+    while (true) {
+      int comparison = Token.spell(currentKind).compareTo(spelling);
+      if (comparison == 0)
+        return currentKind;
+      else if (comparison > 0 || currentKind == Token.WHILE)
+        return Token.IDENTIFIER;
+      currentKind ++;
+    }
+  }
+
+  private static String[] spellings (int count, Random random) {
+    String[] spellings = new String[count];
+    for (int i = 0; i < count; i++) {
+      if (random.nextInt(5) == 0)
+        spellings[i] = Token.spell(Token.ARRAY
+                                   + random.nextInt(Token.WHILE - Token.ARRAY + 1));
+      else {
+        char[] id = new char[1 + random.nextInt(10)];
+        for (int j = 0; j < id.length; j++)
+          id[j] = (char) ('a' + random.nextInt(26));
+        spellings[i] = new String(id);
+      }
+    }
+    return spellings;
+  }
+
+  // Each timing adds the kinds it finds into sink, so that its work cannot
+  // be optimized away.
+
+  private static long sink;
+
+  private static long timeHash (String[] spellings) {
+    long start = System.nanoTime();
+    long sum = 0;
+    for (int i = 0; i < spellings.length; i++)
+      sum += Token.reservedWordKind(spellings[i]);
+    long time = System.nanoTime() - start;
+    sink += sum;
+    return time;
+  }
+
+  private static long timeLinear (String[] spellings) {
+    long start = System.nanoTime();
+    long sum = 0;
+    for (int i = 0; i < spellings.length; i++)
+      sum += linearKind(spellings[i]);
+    long time = System.nanoTime() - start;
+    sink += sum;
+    return time;
+  }
+
+  private static String nsPer (long time, int count) {
+    return String.format("%.1f", (double) time / count);
+  }
+}
@@ -23,6 +23,7 @@ public final class Scanner {
   private char currentChar;
   private StringBuffer currentSpelling;
   private boolean currentlyScanningToken;
+  private int currentLength;
 
   private boolean isLetter(char c) {
     return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
@@ -60,6 +61,7 @@ public final class Scanner {
   private void takeIt() {
     if (currentlyScanningToken)
       currentSpelling.append(currentChar);
+    currentLength++;
     currentChar = sourceFile.getSource();
   }
 
@@ -206,14 +208,87 @@ public final class Scanner {
     currentSpelling = new StringBuffer("");
     pos = new SourcePosition();
     pos.start = sourceFile.getCurrentLine();
+    pos.startOffset = sourceFile.getCurrentOffset();
 
     kind = scanToken();
 
     pos.finish = sourceFile.getCurrentLine();
+    pos.finishOffset = sourceFile.getCurrentOffset();
     tok = new Token(kind, currentSpelling.toString(), pos);
     if (debug)
       System.out.println(tok);
     return tok;
   }
 
-}
\ No newline at end of file
+  // scanAll scans the rest of a buffered source program in one go, and
+  // records the tokens in a TokenStream rather than creating a Token
+  // object for each of them. No spelling is accumulated: the characters
+  // of each token are interned in the symbol table straight from the
+  // source buffer, so a spelling seen before costs no allocation at all.
+  // A source program read from a stream has no buffer to intern from, so
+  // its tokens are scanned one at a time and recorded as they come.
+
+  public TokenStream scanAll (SymbolTable symbols) {
+    if (!(sourceFile instanceof BufferedSourceFile))
+      return scanEach(symbols);
+    return scanAll(symbols, Integer.MAX_VALUE);
+  }
+
+  private TokenStream scanEach (SymbolTable symbols) {
+    TokenStream tokens = new TokenStream(null, symbols, 256);
+    Token token;
+
+    do {
+      token = scan();
+      SourcePosition pos = token.position;
+      tokens.add(token.kind, pos.startOffset,
+                 pos.finishOffset - pos.startOffset, pos.start, pos.finish,
+                 symbols.intern(token.spelling));
+    } while (token.kind != Token.EOT);
+    return tokens;
+  }
+
+  // This version stops at the first token that would start at or beyond
+  // the offset limit, leaving the source positioned at that offset.
+
+  TokenStream scanAll (SymbolTable symbols, int limit) {
+    BufferedSourceFile buffer = (BufferedSourceFile) sourceFile;
+    int capacity = Math.max(16,
+                     (Math.min(limit, buffer.length) - buffer.currentOffset) / 4);
+    TokenStream tokens = new TokenStream(buffer.text, symbols, capacity);
+    int kind;
+
+    do {
+      currentlyScanningToken = false;
+      while ((currentChar == '!'
+              || currentChar == ' '
+              || currentChar == '\n'
+              || currentChar == '\r'
+              || currentChar == '\t')
+             && buffer.currentOffset < limit)
+        scanSeparator();
+
+      int start = buffer.currentOffset;
+      if (start >= limit)
+        break;
+      int line = buffer.getCurrentLine();
+      currentLength = 0;
+
+      kind = scanToken();
+
+      int symbol;
+      if (start + currentLength <= buffer.length)
+        symbol = symbols.intern(buffer.text, start, currentLength);
+      else
+        // Only an unterminated character literal at the very end of the
+        // source takes in the end-of-text character itself.
+        symbol = symbols.intern(new String(buffer.text, start, buffer.length - start)
+                                + SourceFile.EOT);
+      if (kind == Token.IDENTIFIER)
+        kind = symbols.wordKind(symbol);
+      tokens.add(kind, start, currentLength, line, buffer.getCurrentLine(), symbol);
+    } while (kind != Token.EOT);
+    return tokens;
+  }
+
+}
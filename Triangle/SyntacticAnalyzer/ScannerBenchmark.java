@@ -0,0 +1,142 @@
+/*
+ * @(#)ScannerBenchmark.java
+ *
+ * Times the scanning of a large source program by the sequential Scanner
+ * and by ParallelScanner on pools of increasing size.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares sequential scanning with chunked parallel scanning, on a
+ * generated program of the given size in kilobytes: a mix of
+ * declarations, commands, comments and character literals. The parallel
+ * scanner runs on pools of 1, 2, 4 ... threads, up to the number of
+ * available processors, and must give a token stream identical to the
+ * sequential one on each of them.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.SyntacticAnalyzer.ScannerBenchmark 8192
+ * </pre>
+ */
+public final class ScannerBenchmark {
+
+  private final static int ROUNDS = 20;
+
+  public static void main (String[] args) {
+    int kilobytes = (args.length > 0) ? Integer.parseInt(args[0]) : 8192;
+    char[] text = program(kilobytes * 1024, new Random(1));
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    int pools = 1;
+    while ((1 << pools) <= processors)
+      pools++;
+    ParallelScanner[] scanners = new ParallelScanner[pools];
+    ForkJoinPool[] threads = new ForkJoinPool[pools];
+    for (int p = 0; p < pools; p++) {
+      threads[p] = new ForkJoinPool(1 << p);
+      scanners[p] = new ParallelScanner(threads[p],
+                                        ParallelScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+    TokenStream expected = sequential(text);
+    for (int p = 0; p < pools; p++)
+      if (!same(expected, scanners[p].scan(new BufferedSourceFile(text),
+                                           new SymbolTable()))) {
+        System.out.println("Scanners disagree with " + (1 << p) + " threads");
+        System.exit(1);
+      }
+    System.out.println(expected.size() + " tokens, " + processors
+                       + " processors");
+
+    // the first rounds only warm up the JIT compiler
+    for (int round = 0; round < ROUNDS; round++) {
+      long sequentialTime = timeSequential(text);
+      StringBuilder line = new StringBuilder("sequential "
+                                             + msOf(sequentialTime) + " ms");
+      for (int p = 0; p < pools; p++)
+        line.append(", " + (1 << p) + " threads "
+                    + msOf(timeParallel(scanners[p], text)) + " ms");
+      if (round >= ROUNDS / 2)
+        System.out.println(line);
+    }
+
+    for (int p = 0; p < pools; p++)
+      threads[p].shutdown();
+  }
+
+  private static TokenStream sequential (char[] text) {
+    return new Scanner(new BufferedSourceFile(text)).scanAll(new SymbolTable());
+  }
+
+  // Two token streams are the same if their tokens agree in kind,
+  // position and spelling.
+
+  private static boolean same (TokenStream s1, TokenStream s2) {
+    if (s1.size() != s2.size())
+      return false;
+    for (int i = 0; i < s1.size(); i++)
+      if (s1.kind(i) != s2.kind(i) || s1.start(i) != s2.start(i)
+          || s1.length(i) != s2.length(i) || s1.line(i) != s2.line(i)
+          || s1.finishLine(i) != s2.finishLine(i)
+          || !s1.spelling(i).equals(s2.spelling(i)))
+        return false;
+    return true;
+  }
+
+  private final static String[] PHRASES = {
+    "  var v% : Integer;\n",
+    "  v% := v% + 17 * (v% // 3);\n",
+    "  if v% < v% then putint(v%) else put('%')\n",
+    "  ! a comment about v%, which runs to the end of the line\n",
+    "  while v% > 0 do v% := v% - 1;\n",
+    "  const c% ~ '%';\n",
+  };
+
+  private static char[] program (int size, Random random) {
+    StringBuilder text = new StringBuilder(size + 100);
+    while (text.length() < size) {
+      String phrase = PHRASES[random.nextInt(PHRASES.length)];
+      for (int i = 0; i < phrase.length(); i++)
+        if (phrase.charAt(i) != '%')
+          text.append(phrase.charAt(i));
+        else if (i > 0 && phrase.charAt(i - 1) == '\'')
+          text.append((char) ('a' + random.nextInt(26)));
+        else
+          text.append(random.nextInt(1000));
+    }
+    char[] chars = new char[text.length()];
+    text.getChars(0, chars.length, chars, 0);
+    return chars;
+  }
+
+  // Each timing adds the number of tokens it finds into sink, so that its
+  // work cannot be optimized away.
+
+  private static long sink;
+
+  private static long timeSequential (char[] text) {
+    long start = System.nanoTime();
+    TokenStream tokens = sequential(text);
+    long time = System.nanoTime() - start;
+    sink += tokens.size();
+    return time;
+  }
+
+  private static long timeParallel (ParallelScanner scanner, char[] text) {
+    long start = System.nanoTime();
+    TokenStream tokens = scanner.scan(new BufferedSourceFile(text),
+                                      new SymbolTable());
+    long time = System.nanoTime() - start;
+    sink += tokens.size();
+    return time;
+  }
+
+  private static String msOf (long time) {
+    return String.format("%.1f", time / 1e6);
+  }
+}
@@ -22,6 +22,16 @@ public class SourceFile {
   java.io.File sourceFile;
   java.io.FileInputStream source;
   int currentLine;
+  int currentOffset;  // offset of the character most recently delivered
+  private int charsRead;
+
+  // Used by subclasses that supply the source text by other means.
+
+  SourceFile() {
+    sourceFile = null;
+    source = null;
+    currentLine = 1;
+  }
 
   public SourceFile(String filename) {
     try {
@@ -36,13 +46,22 @@ public class SourceFile {
     }
   }
 
+  // A source file that could not be opened delivers nothing but EOT.
+
+  public boolean isReadable() {
+    return source != null;
+  }
+
   char getSource() {
     try {
       int c = source.read();
 
+      currentOffset = charsRead;
       if (c == -1) {
         c = EOT;
-      } else if (c == EOL) {
+      } else {
+        charsRead++;
+        if (c == EOL)
           currentLine++;
       }
       return (char) c;
@@ -55,4 +74,8 @@ public class SourceFile {
   int getCurrentLine() {
     return currentLine;
   }
+
+  int getCurrentOffset() {
+    return currentOffset;
+  }
 }
@@ -18,6 +18,10 @@ public class SourcePosition {
 
   public int start, finish;
 
+  // Character offsets of the first character, and of the character just
+  // past the last one.
+  public int startOffset, finishOffset;
+
   public SourcePosition () {
     start = 0;
     finish = 0;
@@ -28,6 +32,13 @@ public class SourcePosition {
     finish = f;
   }
 
+  public SourcePosition (int s, int f, int so, int fo) {
+    start = s;
+    finish = f;
+    startOffset = so;
+    finishOffset = fo;
+  }
+
   public String toString() {
     return "(" + start + ", " + finish + ")";
   }
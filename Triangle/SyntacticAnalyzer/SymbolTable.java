@@ -0,0 +1,115 @@
+/*
+ * @(#)SymbolTable.java
+ *
+ * Interns token spellings so that each distinct spelling is held once,
+ * as a single String, and is identified by a small int.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+public final class SymbolTable {
+
+  private String[] spellings;
+  private int[] wordKinds;
+  private int[] hashes;
+  private int count;
+
+  // Open-addressed hash table; each slot holds a symbol id + 1, or 0 if
+  // the slot is free.
+  private int[] slots;
+
+  public SymbolTable () {
+    spellings = new String[256];
+    wordKinds = new int[256];
+    hashes = new int[256];
+    slots = new int[512];
+    count = 0;
+  }
+
+  // Returns the id of the spelling held in text[start .. start+length-1],
+  // entering it in the table if it is not already there. No objects are
+  // allocated when the spelling is already present.
+
+  public int intern (char[] text, int start, int length) {
+    int hash = 0;
+    for (int i = start; i < start + length; i++)
+      hash = 31 * hash + text[i];
+
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int id = slots[slot] - 1;
+      if (hashes[id] == hash && sameSpelling(spellings[id], text, start, length))
+        return id;
+      slot = (slot + 1) & mask;
+    }
+    return add(new String(text, start, length), hash, slot);
+  }
+
+  public int intern (String spelling) {
+    int hash = spelling.hashCode();
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int id = slots[slot] - 1;
+      if (hashes[id] == hash && spellings[id].equals(spelling))
+        return id;
+      slot = (slot + 1) & mask;
+    }
+    return add(spelling, hash, slot);
+  }
+
+  public String spelling (int id) {
+    return spellings[id];
+  }
+
+  public int size () {
+    return count;
+  }
+
+  // Returns the kind of an identifier token with the given spelling:
+  // either the kind of the reserved word it spells, or IDENTIFIER.
+  // The classification is done once per symbol, when it is entered.
+
+  int wordKind (int id) {
+    return wordKinds[id];
+  }
+
+  private int add (String spelling, int hash, int slot) {
+    int id = count;
+    if (id == spellings.length) {
+      spellings = java.util.Arrays.copyOf(spellings, 2 * id);
+      wordKinds = java.util.Arrays.copyOf(wordKinds, 2 * id);
+      hashes = java.util.Arrays.copyOf(hashes, 2 * id);
+    }
+    spellings[id] = spelling;
+    wordKinds[id] = Token.reservedWordKind(spelling);
+    hashes[id] = hash;
+    count++;
+    slots[slot] = id + 1;
+    if (2 * count > slots.length)
+      rehash();
+    return id;
+  }
+
+  private void rehash () {
+    slots = new int[2 * slots.length];
+    int mask = slots.length - 1;
+    for (int id = 0; id < count; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != 0)
+        slot = (slot + 1) & mask;
+      slots[slot] = id + 1;
+    }
+  }
+
+  private static boolean sameSpelling (String spelling, char[] text,
+                                       int start, int length) {
+    if (spelling.length() != length)
+      return false;
+    for (int i = 0; i < length; i++)
+      if (spelling.charAt(i) != text[start + i])
+        return false;
+    return true;
+  }
+}
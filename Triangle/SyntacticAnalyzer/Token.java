@@ -15,7 +15,7 @@
 package Triangle.SyntacticAnalyzer;
 
 
-final class Token extends Object {
+public final class Token extends Object {
 
   protected int kind;
   protected String spelling;
@@ -23,23 +23,9 @@ final class Token extends Object {
 
   public Token(int kind, String spelling, SourcePosition position) {
 
-    if (kind == Token.IDENTIFIER) {
-      int currentKind = firstReservedWord;
-      boolean searching = true;
-
-      while (searching) {
-        int comparison = tokenTable[currentKind].compareTo(spelling);
-        if (comparison == 0) {
-          this.kind = currentKind;
-          searching = false;
-        } else if (comparison > 0 || currentKind == lastReservedWord) {
-          this.kind = Token.IDENTIFIER;
-          searching = false;
-        } else {
-          currentKind ++;
-        }
-      }
-    } else
+    if (kind == Token.IDENTIFIER)
+      this.kind = reservedWordKind(spelling);
+    else
       this.kind = kind;
 
     this.spelling = spelling;
@@ -47,6 +33,18 @@ final class Token extends Object {
 
   }
 
+  public int getKind () {
+    return kind;
+  }
+
+  public String getSpelling () {
+    return spelling;
+  }
+
+  public SourcePosition getPosition () {
+    return position;
+  }
+
   public static String spell (int kind) {
     return tokenTable[kind];
   }
@@ -165,4 +163,66 @@ final class Token extends Object {
   private final static int  firstReservedWord = Token.ARRAY,
                 lastReservedWord  = Token.WHILE;
 
+// Reserved-word recognition...
+
+  // reservedWordKind returns the kind of the reserved word with the given
+  // spelling, or IDENTIFIER if the spelling is not a reserved word.
+  // The reserved words are held in a small perfect hash table keyed on
+  // the length and the first and last characters of the spelling, so a
+  // lookup costs one hash and at most one string comparison.
+
+  static int reservedWordKind(String spelling) {
+    int length = spelling.length();
+    if (length < minReservedLength || length > maxReservedLength)
+      return Token.IDENTIFIER;
+    int candidate = reservedTable[reservedHash(length, spelling.charAt(0),
+                                               spelling.charAt(length - 1))];
+    if (candidate != Token.IDENTIFIER && tokenTable[candidate].equals(spelling))
+      return candidate;
+    else
+      return Token.IDENTIFIER;
+  }
+
+  private static int reservedHash(int length, char first, char last) {
+    return (length * reservedLengthFactor + first * reservedFirstFactor + last)
+           & (reservedTable.length - 1);
+  }
+
+  private static int[] reservedTable;
+  private static int reservedLengthFactor, reservedFirstFactor,
+                     minReservedLength, maxReservedLength;
+
+  // Chooses the smallest table and hash factors for which no two reserved
+  // words collide. This runs once, when the class is loaded.
+
+  static {
+    minReservedLength = Integer.MAX_VALUE;
+    maxReservedLength = 0;
+    for (int kind = firstReservedWord; kind <= lastReservedWord; kind++) {
+      minReservedLength = Math.min(minReservedLength, tokenTable[kind].length());
+      maxReservedLength = Math.max(maxReservedLength, tokenTable[kind].length());
+    }
+    boolean found = false;
+    for (int size = 32; !found; size = size * 2) {
+      for (int lengthFactor = 1; lengthFactor < size && !found; lengthFactor++) {
+        for (int firstFactor = 1; firstFactor < size && !found; firstFactor++) {
+          reservedTable = new int[size];
+          reservedLengthFactor = lengthFactor;
+          reservedFirstFactor = firstFactor;
+          java.util.Arrays.fill(reservedTable, Token.IDENTIFIER);
+          found = true;
+          for (int kind = firstReservedWord; kind <= lastReservedWord && found; kind++) {
+            String word = tokenTable[kind];
+            int h = reservedHash(word.length(), word.charAt(0),
+                                 word.charAt(word.length() - 1));
+            if (reservedTable[h] != Token.IDENTIFIER)
+              found = false;
+            else
+              reservedTable[h] = kind;
+          }
+        }
+      }
+    }
+  }
+
 }
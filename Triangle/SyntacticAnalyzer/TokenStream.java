@@ -0,0 +1,145 @@
+/*
+ * @(#)TokenStream.java
+ *
+ * The tokens of a whole source program, held column-wise in parallel int
+ * arrays rather than as one Token object per token.
+ */
+
+package Triangle.SyntacticAnalyzer;
+
+public final class TokenStream {
+
+  private int[] kinds;
+  private int[] starts;      // offset of the token's first character
+  private int[] lengths;
+  private int[] lines;       // line on which the token starts
+  private int[] finishLines; // line reported as the token's finish
+  private int[] symbols;     // symbol id of the token's spelling
+  private int count;
+
+  private final char[] text;  // null if scanned from a stream
+  private final SymbolTable symbolTable;
+
+  TokenStream (char[] text, SymbolTable symbolTable, int capacity) {
+    this.text = text;
+    this.symbolTable = symbolTable;
+    kinds = new int[capacity];
+    starts = new int[capacity];
+    lengths = new int[capacity];
+    lines = new int[capacity];
+    finishLines = new int[capacity];
+    symbols = new int[capacity];
+    count = 0;
+  }
+
+  void add (int kind, int start, int length, int line, int finishLine,
+            int symbol) {
+    if (count == kinds.length)
+      grow();
+    kinds[count] = kind;
+    starts[count] = start;
+    lengths[count] = length;
+    lines[count] = line;
+    finishLines[count] = finishLine;
+    symbols[count] = symbol;
+    count++;
+  }
+
+  private void grow () {
+    int capacity = 2 * kinds.length;
+    kinds = java.util.Arrays.copyOf(kinds, capacity);
+    starts = java.util.Arrays.copyOf(starts, capacity);
+    lengths = java.util.Arrays.copyOf(lengths, capacity);
+    lines = java.util.Arrays.copyOf(lines, capacity);
+    finishLines = java.util.Arrays.copyOf(finishLines, capacity);
+    symbols = java.util.Arrays.copyOf(symbols, capacity);
+  }
+
+  // Copies count tokens of another stream, starting at token from, into
+  // this stream at index at, which must lie within the size already set.
+  // Line numbers are shifted by lineShift and symbol ids are translated
+  // through symbolMap. Copies into disjoint ranges may run concurrently.
+
+  void copyFrom (TokenStream other, int from, int count, int at,
+                 int lineShift, int[] symbolMap) {
+    System.arraycopy(other.kinds, from, kinds, at, count);
+    System.arraycopy(other.starts, from, starts, at, count);
+    System.arraycopy(other.lengths, from, lengths, at, count);
+    for (int i = 0; i < count; i++) {
+      lines[at + i] = other.lines[from + i] + lineShift;
+      finishLines[at + i] = other.finishLines[from + i] + lineShift;
+      symbols[at + i] = symbolMap[other.symbols[from + i]];
+    }
+  }
+
+  void setSize (int size) {
+    while (kinds.length < size)
+      grow();
+    count = size;
+  }
+
+  // A stream produced by scanning a whole source ends with a single EOT
+  // token.
+
+  public int size () {
+    return count;
+  }
+
+  public int kind (int i) {
+    return kinds[i];
+  }
+
+  public int start (int i) {
+    return starts[i];
+  }
+
+  public int length (int i) {
+    return lengths[i];
+  }
+
+  public int line (int i) {
+    return lines[i];
+  }
+
+  public int finishLine (int i) {
+    return finishLines[i];
+  }
+
+  public int symbol (int i) {
+    return symbols[i];
+  }
+
+  public String spelling (int i) {
+    return symbolTable.spelling(symbols[i]);
+  }
+
+  public SymbolTable getSymbolTable () {
+    return symbolTable;
+  }
+
+  char[] getText () {
+    return text;
+  }
+
+  // Loads token i into an existing Token, so that a consumer can walk the
+  // stream through a single Token object. Reading beyond the end of the
+  // stream yields the final EOT token again.
+
+  void load (int i, Token token) {
+    if (i >= count)
+      i = count - 1;
+    token.kind = kinds[i];
+    token.spelling = symbolTable.spelling(symbols[i]);
+    int finish = starts[i] + lengths[i];
+    if (text != null)
+      finish = Math.min(finish, text.length);
+    token.position = new SourcePosition(lines[i], finishLines[i], starts[i],
+                                        finish);
+  }
+
+  public Token toToken (int i) {
+    Token token = new Token(Token.ERROR, "", null);
+    load(i, token);
+    return token;
+  }
+}
@@ -43,7 +43,7 @@ public class Drawer {
     FontMetrics fontMetrics = frame.getFontMetrics(font);
 
     LayoutVisitor layout = new LayoutVisitor(fontMetrics);
-    theDrawing = (DrawingTree) theAST.visit(layout, null);
+    theDrawing = theAST.visit(layout, null);
     theDrawing.position(new Point(2048, 10));
 
     frame.show();
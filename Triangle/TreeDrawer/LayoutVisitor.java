@@ -18,7 +18,7 @@ import java.awt.FontMetrics;
 
 import Triangle.AbstractSyntaxTrees.*;
 
-public class LayoutVisitor implements Visitor {
+public class LayoutVisitor implements Visitor<DrawingTree, Void> {
 
   private final int BORDER = 5;
   private final int PARENT_SEP = 30;
@@ -30,336 +30,351 @@ public class LayoutVisitor implements Visitor {
   }
 
   // Commands
-  public Object visitAssignCommand(AssignCommand ast, Object obj) {
+  public DrawingTree visitAssignCommand(AssignCommand ast, Void obj) {
     return layoutBinary("AssignCom.", ast.V, ast.E);
   }
 
-  public Object visitCallCommand(CallCommand ast, Object obj) {
+  public DrawingTree visitCallCommand(CallCommand ast, Void obj) {
     return layoutBinary("CallCom.", ast.I, ast.APS);
    }
   
   /*
-  public Object visitDoUntilCommand(DoUntilCommand ast, Object obj) {
+  public DrawingTree visitDoUntilCommand(DoUntilCommand ast, Void obj) {
     return layoutNullary("DoUntilCom.");
   }
   
-  public Object visitDoWhileCommand(DoWhileCommand ast, Object obj) {
+  public DrawingTree visitDoWhileCommand(DoWhileCommand ast, Void obj) {
     return layoutNullary("DoWhileCom.");
   }
   */
 
-  public Object visitEmptyCommand(EmptyCommand ast, Object obj) {
+  public DrawingTree visitEmptyCommand(EmptyCommand ast, Void obj) {
     return layoutNullary("EmptyCom.");
   }
 
-  public Object visitForCommand(ForCommand ast, Object obj) {
+  public DrawingTree visitErrorCommand(ErrorCommand ast, Void obj) {
+    return layoutNullary("ErrorCom.");
+  }
+
+  public DrawingTree visitForCommand(ForCommand ast, Void obj) {
     return layoutQuaternary("ForCom.", ast.I, ast.E1, ast.E2, ast.C);
   }
   
-  public Object visitIfCommand(IfCommand ast, Object obj) {
+  public DrawingTree visitIfCommand(IfCommand ast, Void obj) {
     return layoutTernary("IfCom.", ast.E, ast.C1, ast.C2);
   }
 
-  public Object visitLetCommand(LetCommand ast, Object obj) {
+  public DrawingTree visitLetCommand(LetCommand ast, Void obj) {
     return layoutBinary("LetCom.", ast.D, ast.C);
   }
 
-  public Object visitSequentialCommand(SequentialCommand ast, Object obj) {
-    return layoutBinary("Seq.Com.", ast.C1, ast.C2);
+  public DrawingTree visitSequentialCommand(SequentialCommand ast, Void obj) {
+    return layoutNary("Seq.Com.", ast.CS);
   }
 
-  public Object visitUntilCommand(UntilCommand ast, Object obj) {
+  public DrawingTree visitUntilCommand(UntilCommand ast, Void obj) {
     return layoutBinary("UntilCom.", ast.E, ast.C);
   }
   
   // New
-  public Object visitWhileCommand(WhileCommand ast, Object obj) {
+  public DrawingTree visitWhileCommand(WhileCommand ast, Void obj) {
     return layoutBinary("WhileCom.", ast.E, ast.C);
   }
 
   // New
-  public Object visitDoWhileCommand(DoWhileCommand ast, Object o){
+  public DrawingTree visitDoWhileCommand(DoWhileCommand ast, Void o){
     return layoutBinary("DoWhileCommand",ast.C,ast.E);
   }
 
   // New
-  public Object visitDoUntilCommand(DoUntilCommand ast, Object o){
+  public DrawingTree visitDoUntilCommand(DoUntilCommand ast, Void o){
     return layoutBinary("DoUntilCommand",ast.C,ast.E);
   }
 
   // New
-  public Object visitElsIfCommand(ElsIfCommand ast, Object o) {
+  public DrawingTree visitElsIfCommand(ElsIfCommand ast, Void o) {
       return layoutTernary("ElsIfCommand",ast.E1,ast.C,ast.C2);
   }
 
   // Expressions
-  public Object visitArrayExpression(ArrayExpression ast, Object obj) {
+  public DrawingTree visitArrayExpression(ArrayExpression ast, Void obj) {
     return layoutUnary("ArrayExpr.", ast.AA);
   }
 
-  public Object visitBinaryExpression(BinaryExpression ast, Object obj) {
+  public DrawingTree visitBinaryExpression(BinaryExpression ast, Void obj) {
     return layoutTernary("Bin.Expr.", ast.E1, ast.O, ast.E2);
   }
 
-  public Object visitCallExpression(CallExpression ast, Object obj) {
+  public DrawingTree visitCallExpression(CallExpression ast, Void obj) {
     return layoutBinary("CallExpr.", ast.I, ast.APS);
   }
 
-  public Object visitCharacterExpression(CharacterExpression ast, Object obj) {
+  public DrawingTree visitCharacterExpression(CharacterExpression ast, Void obj) {
     return layoutUnary("Char.Expr.", ast.CL);
   }
 
-  public Object visitEmptyExpression(EmptyExpression ast, Object obj) {
+  public DrawingTree visitEmptyExpression(EmptyExpression ast, Void obj) {
     return layoutNullary("EmptyExpr.");
   }
 
-  public Object visitIfExpression(IfExpression ast, Object obj) {
+  public DrawingTree visitErrorExpression(ErrorExpression ast, Void obj) {
+    return layoutNullary("ErrorExpr.");
+  }
+
+
+  public DrawingTree visitIfExpression(IfExpression ast, Void obj) {
     return layoutTernary("IfExpr.", ast.E1, ast.E2, ast.E3);
   }
 
-  public Object visitIntegerExpression(IntegerExpression ast, Object obj) {
+  public DrawingTree visitIntegerExpression(IntegerExpression ast, Void obj) {
     return layoutUnary("Int.Expr.", ast.IL);
   }
 
-  public Object visitLetExpression(LetExpression ast, Object obj) {
+  public DrawingTree visitLetExpression(LetExpression ast, Void obj) {
     return layoutBinary("LetExpr.", ast.D, ast.E);
   }
 
-  public Object visitRecordExpression(RecordExpression ast, Object obj) {
+  public DrawingTree visitRecordExpression(RecordExpression ast, Void obj) {
     return layoutUnary("Rec.Expr.", ast.RA);
   }
 
-  public Object visitUnaryExpression(UnaryExpression ast, Object obj) {
+  public DrawingTree visitUnaryExpression(UnaryExpression ast, Void obj) {
     return layoutBinary("UnaryExpr.", ast.O, ast.E);
   }
 
-  public Object visitVnameExpression(VnameExpression ast, Object obj) {
+  public DrawingTree visitVnameExpression(VnameExpression ast, Void obj) {
     return layoutUnary("VnameExpr.", ast.V);
   }
 
   // New
-  public Object visitVarInitialized(VarInitialized ast, Object obj){
+  public DrawingTree visitVarInitialized(VarInitialized ast, Void obj){
     return  layoutBinary("VarInitializedCommand",ast.I,ast.E);
   }
 
   // New
-  public Object visitArrayStatic(ArrayTypeDenoterStatic ast, Object obj){
+  public DrawingTree visitArrayStatic(ArrayTypeDenoterStatic ast, Void obj){
     return layoutTernary("ArrayStaticDeclaration",ast.IL,ast.IL2,ast.T);
   }
 
   // Declarations
-  public Object visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Object obj) {
+  public DrawingTree visitBinaryOperatorDeclaration(BinaryOperatorDeclaration ast, Void obj) {
     return layoutQuaternary("Bin.Op.Decl.", ast.O, ast.ARG1, ast.ARG2, ast.RES);
   }
 
-  public Object visitConstDeclaration(ConstDeclaration ast, Object obj) {
+  public DrawingTree visitConstDeclaration(ConstDeclaration ast, Void obj) {
     return layoutBinary("ConstDecl.", ast.I, ast.E);
   }
 
-  public Object visitFuncDeclaration(FuncDeclaration ast, Object obj) {
+  public DrawingTree visitFuncDeclaration(FuncDeclaration ast, Void obj) {
     return layoutQuaternary("FuncDecl.", ast.I, ast.FPS, ast.T, ast.E);
   }
 
-  public Object visitProcDeclaration(ProcDeclaration ast, Object obj) {
+  public DrawingTree visitProcDeclaration(ProcDeclaration ast, Void obj) {
     return layoutTernary("ProcDecl.", ast.I, ast.FPS, ast.C);
   }
 
-  public Object visitSequentialDeclaration(SequentialDeclaration ast, Object obj) {
-    return layoutBinary("Seq.Decl.", ast.D1, ast.D2);
+  public DrawingTree visitErrorDeclaration(ErrorDeclaration ast, Void obj) {
+    if (ast.I == null)
+      return layoutNullary("ErrorDecl.");
+    return layoutUnary("ErrorDecl.", ast.I);
+  }
+
+  public DrawingTree visitSequentialDeclaration(SequentialDeclaration ast, Void obj) {
+    return layoutNary("Seq.Decl.", ast.DS);
   }
 
-  public Object visitTypeDeclaration(TypeDeclaration ast, Object obj) {
+  public DrawingTree visitTypeDeclaration(TypeDeclaration ast, Void obj) {
     return layoutBinary("TypeDecl.", ast.I, ast.T);
   }
 
-  public Object visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Object obj) {
+  public DrawingTree visitUnaryOperatorDeclaration(UnaryOperatorDeclaration ast, Void obj) {
     return layoutTernary("UnaryOp.Decl.", ast.O, ast.ARG, ast.RES);
   }
 
-  public Object visitVarDeclaration(VarDeclaration ast, Object obj) {
+  public DrawingTree visitVarDeclaration(VarDeclaration ast, Void obj) {
     return layoutBinary("VarDecl.", ast.I, ast.T);
   }
 
   // New
-  public Object visitProcFuncs(ProcFuncs ast, Object o) {
+  public DrawingTree visitProcFuncs(ProcFuncs ast, Void o) {
     return layoutBinary("ProcFuncsDeclaration", ast.D1, ast.D2);
   }
 
   // New
-  public Object visitPrivateDeclaration(PrivateDeclaration ast, Object o) {
+  public DrawingTree visitPrivateDeclaration(PrivateDeclaration ast, Void o) {
     return layoutBinary("PrivateDeclaration", ast.D, ast.D2);
   }
 
   // New
-  public Object visitRecDeclaration(RecDeclaration ast,Object obj){
+  public DrawingTree visitRecDeclaration(RecDeclaration ast,Void obj){
     return layoutUnary("RecDeclaration",ast.D);
   }
 
 
   // Array Aggregates
-  public Object visitMultipleArrayAggregate(MultipleArrayAggregate ast, Object obj) {
+  public DrawingTree visitMultipleArrayAggregate(MultipleArrayAggregate ast, Void obj) {
     return layoutBinary("Mult.ArrayAgg.", ast.E, ast.AA);
   }
 
-  public Object visitSingleArrayAggregate(SingleArrayAggregate ast, Object obj) {
+  public DrawingTree visitSingleArrayAggregate(SingleArrayAggregate ast, Void obj) {
     return layoutUnary("Sing.ArrayAgg.", ast.E);
   }
 
 
   // Record Aggregates
-  public Object visitMultipleRecordAggregate(MultipleRecordAggregate ast, Object obj) {
+  public DrawingTree visitMultipleRecordAggregate(MultipleRecordAggregate ast, Void obj) {
     return layoutTernary("Mult.Rec.Agg.", ast.I, ast.E, ast.RA);
   }
 
-  public Object visitSingleRecordAggregate(SingleRecordAggregate ast, Object obj) {
+  public DrawingTree visitSingleRecordAggregate(SingleRecordAggregate ast, Void obj) {
     return layoutBinary("Sing.Rec.Agg.", ast.I, ast.E);
   }
 
 
   // Formal Parameters
-  public Object visitConstFormalParameter(ConstFormalParameter ast, Object obj) {
+  public DrawingTree visitConstFormalParameter(ConstFormalParameter ast, Void obj) {
     return layoutBinary("ConstF.P.", ast.I, ast.T);
   }
 
-  public Object visitFuncFormalParameter(FuncFormalParameter ast, Object obj) {
+  public DrawingTree visitFuncFormalParameter(FuncFormalParameter ast, Void obj) {
     return layoutTernary("FuncF.P.", ast.I, ast.FPS, ast.T);
   }
 
-  public Object visitProcFormalParameter(ProcFormalParameter ast, Object obj) {
+  public DrawingTree visitProcFormalParameter(ProcFormalParameter ast, Void obj) {
     return layoutBinary("ProcF.P.", ast.I, ast.FPS);
   }
 
-  public Object visitVarFormalParameter(VarFormalParameter ast, Object obj) {
+  public DrawingTree visitVarFormalParameter(VarFormalParameter ast, Void obj) {
     return layoutBinary("VarF.P.", ast.I, ast.T);
   }
 
 
-  public Object visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Object obj) {
+  public DrawingTree visitEmptyFormalParameterSequence(EmptyFormalParameterSequence ast, Void obj) {
     return layoutNullary("EmptyF.P.S.");
   }
 
-  public Object visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Object obj) {
+  public DrawingTree visitMultipleFormalParameterSequence(MultipleFormalParameterSequence ast, Void obj) {
     return layoutBinary("Mult.F.P.S.", ast.FP, ast.FPS);
   }
 
-  public Object visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Object obj) {
+  public DrawingTree visitSingleFormalParameterSequence(SingleFormalParameterSequence ast, Void obj) {
     return layoutUnary("Sing.F.P.S.", ast.FP);
   }
 
 
   // Actual Parameters
-  public Object visitConstActualParameter(ConstActualParameter ast, Object obj) {
+  public DrawingTree visitConstActualParameter(ConstActualParameter ast, Void obj) {
     return layoutUnary("ConstA.P.", ast.E);
   }
 
-  public Object visitFuncActualParameter(FuncActualParameter ast, Object obj) {
+  public DrawingTree visitFuncActualParameter(FuncActualParameter ast, Void obj) {
     return layoutUnary("FuncA.P.", ast.I);
   }
 
-  public Object visitProcActualParameter(ProcActualParameter ast, Object obj) {
+  public DrawingTree visitProcActualParameter(ProcActualParameter ast, Void obj) {
     return layoutUnary("ProcA.P.", ast.I);
   }
 
-  public Object visitVarActualParameter(VarActualParameter ast, Object obj) {
+  public DrawingTree visitVarActualParameter(VarActualParameter ast, Void obj) {
     return layoutUnary("VarA.P.", ast.V);
   }
 
 
-  public Object visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Object obj) {
+  public DrawingTree visitEmptyActualParameterSequence(EmptyActualParameterSequence ast, Void obj) {
     return layoutNullary("EmptyA.P.S.");
   }
 
-  public Object visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Object obj) {
+  public DrawingTree visitMultipleActualParameterSequence(MultipleActualParameterSequence ast, Void obj) {
     return layoutBinary("Mult.A.P.S.", ast.AP, ast.APS);
   }
 
-  public Object visitSingleActualParameterSequence(SingleActualParameterSequence ast, Object obj) {
+  public DrawingTree visitSingleActualParameterSequence(SingleActualParameterSequence ast, Void obj) {
     return layoutUnary("Sing.A.P.S.", ast.AP);
   }
 
 
   // Type Denoters
-  public Object visitAnyTypeDenoter(AnyTypeDenoter ast, Object obj) {
+  public DrawingTree visitAnyTypeDenoter(AnyTypeDenoter ast, Void obj) {
     return layoutNullary("any");
   }
 
-  public Object visitArrayTypeDenoter(ArrayTypeDenoter ast, Object obj) {
+  public DrawingTree visitArrayTypeDenoter(ArrayTypeDenoter ast, Void obj) {
     return layoutBinary("ArrayTypeD.", ast.IL, ast.T);
   }
   
-  public Object visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Object o) {
+  public DrawingTree visitArrayTypeDenoterStatic(ArrayTypeDenoterStatic ast, Void o) {
     return layoutTernary("ArrayTypeDS.", ast.IL, ast.IL2, ast.T);
   }
 
-  public Object visitBoolTypeDenoter(BoolTypeDenoter ast, Object obj) {
+  public DrawingTree visitBoolTypeDenoter(BoolTypeDenoter ast, Void obj) {
     return layoutNullary("bool");
   }
 
-  public Object visitCharTypeDenoter(CharTypeDenoter ast, Object obj) {
+  public DrawingTree visitCharTypeDenoter(CharTypeDenoter ast, Void obj) {
     return layoutNullary("char");
   }
 
-  public Object visitErrorTypeDenoter(ErrorTypeDenoter ast, Object obj) {
+  public DrawingTree visitErrorTypeDenoter(ErrorTypeDenoter ast, Void obj) {
     return layoutNullary("error");
   }
 
-  public Object visitSimpleTypeDenoter(SimpleTypeDenoter ast, Object obj) {
+  public DrawingTree visitSimpleTypeDenoter(SimpleTypeDenoter ast, Void obj) {
     return layoutUnary("Sim.TypeD.", ast.I);
   }
 
-  public Object visitIntTypeDenoter(IntTypeDenoter ast, Object obj) {
+  public DrawingTree visitIntTypeDenoter(IntTypeDenoter ast, Void obj) {
     return layoutNullary("int");
   }
 
-  public Object visitRecordTypeDenoter(RecordTypeDenoter ast, Object obj) {
+  public DrawingTree visitRecordTypeDenoter(RecordTypeDenoter ast, Void obj) {
     return layoutUnary("Rec.TypeD.", ast.FT);
   }
 
 
-  public Object visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Object obj) {
+  public DrawingTree visitMultipleFieldTypeDenoter(MultipleFieldTypeDenoter ast, Void obj) {
     return layoutTernary("Mult.F.TypeD.", ast.I, ast.T, ast.FT);
   }
 
-  public Object visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Object obj) {
+  public DrawingTree visitSingleFieldTypeDenoter(SingleFieldTypeDenoter ast, Void obj) {
     return layoutBinary("Sing.F.TypeD.", ast.I, ast.T);
   }
 
 
   // Literals, Identifiers and Operators
-  public Object visitCharacterLiteral(CharacterLiteral ast, Object obj) {
+  public DrawingTree visitCharacterLiteral(CharacterLiteral ast, Void obj) {
     return layoutNullary(ast.spelling);
   }
 
-  public Object visitIdentifier(Identifier ast, Object obj) {
+  public DrawingTree visitIdentifier(Identifier ast, Void obj) {
     return layoutNullary(ast.spelling);
  }
 
-  public Object visitIntegerLiteral(IntegerLiteral ast, Object obj) {
+  public DrawingTree visitIntegerLiteral(IntegerLiteral ast, Void obj) {
     return layoutNullary(ast.spelling);
   }
 
-  public Object visitOperator(Operator ast, Object obj) {
+  public DrawingTree visitOperator(Operator ast, Void obj) {
     return layoutNullary(ast.spelling);
   }
 
 
   // Value-or-variable names
-  public Object visitDotVname(DotVname ast, Object obj) {
+  public DrawingTree visitDotVname(DotVname ast, Void obj) {
     return layoutBinary("DotVname", ast.I, ast.V);
   }
 
-  public Object visitSimpleVname(SimpleVname ast, Object obj) {
+  public DrawingTree visitSimpleVname(SimpleVname ast, Void obj) {
     return layoutUnary("Sim.Vname", ast.I);
   }
 
-  public Object visitSubscriptVname(SubscriptVname ast, Object obj) {
+  public DrawingTree visitSubscriptVname(SubscriptVname ast, Void obj) {
     return layoutBinary("Sub.Vname",
         ast.V, ast.E);
   }
 
 
   // Programs
-  public Object visitProgram(Program ast, Object obj) {
+  public DrawingTree visitProgram(Program ast, Void obj) {
     return layoutUnary("Program", ast.C);
   }
 
@@ -380,7 +395,7 @@ public class LayoutVisitor implements Visitor {
 
   private DrawingTree layoutUnary (String name, AST child1) {
     DrawingTree dt = layoutCaption(name);
-    DrawingTree d1 = (DrawingTree) child1.visit(this, null);
+    DrawingTree d1 = child1.visit(this, null);
     dt.setChildren(new DrawingTree[] {d1});
     attachParent(dt, join(dt));
     return dt;
@@ -388,8 +403,8 @@ public class LayoutVisitor implements Visitor {
 
   private DrawingTree layoutBinary (String name, AST child1, AST child2) {
     DrawingTree dt = layoutCaption(name);
-    DrawingTree d1 = (DrawingTree) child1.visit(this, null);
-    DrawingTree d2 = (DrawingTree) child2.visit(this, null);
+    DrawingTree d1 = child1.visit(this, null);
+    DrawingTree d2 = child2.visit(this, null);
     dt.setChildren(new DrawingTree[] {d1, d2});
     attachParent(dt, join(dt));
     return dt;
@@ -398,9 +413,9 @@ public class LayoutVisitor implements Visitor {
   private DrawingTree layoutTernary (String name, AST child1, AST child2,
                                      AST child3) {
     DrawingTree dt = layoutCaption(name);
-    DrawingTree d1 = (DrawingTree) child1.visit(this, null);
-    DrawingTree d2 = (DrawingTree) child2.visit(this, null);
-    DrawingTree d3 = (DrawingTree) child3.visit(this, null);
+    DrawingTree d1 = child1.visit(this, null);
+    DrawingTree d2 = child2.visit(this, null);
+    DrawingTree d3 = child3.visit(this, null);
     dt.setChildren(new DrawingTree[] {d1, d2, d3});
     attachParent(dt, join(dt));
     return dt;
@@ -409,15 +424,25 @@ public class LayoutVisitor implements Visitor {
   private DrawingTree layoutQuaternary (String name, AST child1, AST child2,
                                         AST child3, AST child4) {
     DrawingTree dt = layoutCaption(name);
-    DrawingTree d1 = (DrawingTree) child1.visit(this, null);
-    DrawingTree d2 = (DrawingTree) child2.visit(this, null);
-    DrawingTree d3 = (DrawingTree) child3.visit(this, null);
-    DrawingTree d4 = (DrawingTree) child4.visit(this, null);
+    DrawingTree d1 = child1.visit(this, null);
+    DrawingTree d2 = child2.visit(this, null);
+    DrawingTree d3 = child3.visit(this, null);
+    DrawingTree d4 = child4.visit(this, null);
     dt.setChildren(new DrawingTree[] {d1, d2, d3, d4});
     attachParent(dt, join(dt));
     return dt;
   }
 
+  private DrawingTree layoutNary (String name, AST[] children) {
+    DrawingTree dt = layoutCaption(name);
+    DrawingTree[] ds = new DrawingTree[children.length];
+    for (int i = 0; i < children.length; i++)
+      ds[i] = children[i].visit(this, null);
+    dt.setChildren(ds);
+    attachParent(dt, join(dt));
+    return dt;
+  }
+
   private void attachParent(DrawingTree dt, int w) {
     int y = PARENT_SEP;
     int x2 = (w - dt.width) / 2 - BORDER;
@@ -541,4 +566,4 @@ public class LayoutVisitor implements Visitor {
     return r;
   }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * @(#)VisitorBenchmark.java
+ *
+ * Times the contextual analysis and code generation passes over a
+ * generated program, and measures what they allocate.
+ */
+
+package Triangle;
+
+import Triangle.AbstractSyntaxTrees.Program;
+import Triangle.CodeGenerator.Encoder;
+import Triangle.ContextualAnalyzer.Checker;
+import Triangle.SyntacticAnalyzer.BufferedSourceFile;
+import Triangle.SyntacticAnalyzer.Parser;
+import Triangle.SyntacticAnalyzer.Scanner;
+import Triangle.SyntacticAnalyzer.SymbolTable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Times the Checker and the Encoder, which visit every node of the AST, on
+ * a program of the given number of routines. Each routine declares
+ * records, arrays and a nested procedure, and runs a few conditional
+ * commands over them. Each run parses the program afresh, then checks it
+ * and, if it is small enough to fit the code store, encodes it. The best
+ * time of all the runs is reported, with the bytes allocated by each pass
+ * on the last run, where the JVM can count them.
+ *
+ * For example:
+ * <pre>
+ *   java Triangle.VisitorBenchmark 3 20000
+ *   java Triangle.VisitorBenchmark 400 200
+ * </pre>
+ */
+public final class VisitorBenchmark {
+
+  // Larger programs overflow the code store when encoded.
+  private final static int MAX_ENCODED_ROUTINES = 8;
+
+  public static void main (String[] args) {
+    int routines = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+    int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+    char[] text = program(routines).toCharArray();
+    boolean encoding = routines <= MAX_ENCODED_ROUTINES;
+
+    long bestCheck = Long.MAX_VALUE, bestEncode = Long.MAX_VALUE;
+    long checkBytes = 0, encodeBytes = 0;
+    // the passes report their progress, which is not wanted here
+    java.io.PrintStream out = System.out;
+    System.setOut(new java.io.PrintStream(java.io.OutputStream.nullOutputStream()));
+    for (int run = 0; run < runs; run++) {
+      CompilationContext context = new CompilationContext();
+      Program ast = new Parser(new Scanner(new BufferedSourceFile(text))
+                                 .scanAll(new SymbolTable()),
+                               context.reporter).parseProgram();
+      Checker checker = new Checker(context);
+      Encoder encoder = new Encoder(context);
+
+      long bytes0 = allocated(), time0 = System.nanoTime();
+      checker.check(ast);
+      long time1 = System.nanoTime(), bytes1 = allocated();
+      if (encoding)
+        encoder.encodeRun(ast, false);
+      long time2 = System.nanoTime(), bytes2 = allocated();
+
+      if (context.reporter.numErrors > 0) {
+        System.setOut(out);
+        System.out.println("The generated program has errors");
+        System.exit(1);
+      }
+      bestCheck = Math.min(bestCheck, time1 - time0);
+      bestEncode = Math.min(bestEncode, time2 - time1);
+      checkBytes = bytes1 - bytes0;
+      encodeBytes = bytes2 - bytes1;
+    }
+    System.setOut(out);
+
+    System.out.println("check  " + String.format("%.2f", bestCheck / 1e3)
+                       + " us, " + kbOf(checkBytes) + " KB allocated");
+    if (encoding)
+      System.out.println("encode " + String.format("%.2f", bestEncode / 1e3)
+                         + " us, " + kbOf(encodeBytes) + " KB allocated");
+  }
+
+  private static String program (int routines) {
+    StringBuilder text = new StringBuilder();
+    text.append("let\n"
+                + "  type R ~ record a: Integer, b: Char end;\n"
+                + "  var g: Integer;\n");
+    for (int i = 0; i < routines; i++) {
+      text.append("  proc p" + i + " : (x: Integer) ~\n"
+                  + "    let var y: Integer; var r: R; var xs: array 4 of Char;\n"
+                  + "      proc q" + i + " : (z: Integer) ~ let var w: array 3 of"
+                  + " record k: Integer, c: Char end in"
+                  + " w[1] := {k ~ z, c ~ 'q'}; y := w[1].k end end\n"
+                  + "    in\n");
+      for (int j = 0; j < 4; j++)
+        text.append("      if (y < " + j + ") /\\ \\(x = " + j + ") then"
+                    + " y := (y * " + (j + 1) + ") + x else"
+                    + " r.a := r.a - " + j + "; xs[" + j + "] :="
+                    + " chr(ord('a') + " + j + ") end;\n");
+      text.append("      q" + i + "(y)\n"
+                  + "    end end;\n"
+                  + "  func f" + i + " : (k: Integer): Integer ~ k * " + i
+                  + " + g;\n");
+    }
+    text.append("  var last: Integer\n"
+                + "in\n"
+                + "  g := 1\n"
+                + "end\n");
+    return text.toString();
+  }
+
+  // Returns the bytes allocated so far by this thread, or 0 if the JVM
+  // can't count them.
+
+  private static long allocated () {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) bean)
+               .getThreadAllocatedBytes(Thread.currentThread().getId());
+    return 0;
+  }
+
+  private static long kbOf (long bytes) {
+    return bytes / 1024;
+  }
+}